@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.api.services.slides.v1.model.Request;
+
+import io.snowcamp.signage.benchmark.InMemoryGoogle;
+import io.snowcamp.signage.benchmark.SyntheticSchedule;
+import io.snowcamp.signage.session.Session;
+import io.vavr.collection.List;
+
+/**
+ * Builds the batch of a presentation, splits it, and generates a whole presentation against in-memory Google clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SlidesRequestsBenchmark {
+    @Param({"100", "1000"})
+    private int sessions;
+    private List<Session> schedule;
+    private SlideTemplate template;
+    private List<String> slideIds;
+    private List<Request> requests;
+    private Deck deck;
+    private SlidesGenerator slidesGenerator;
+
+    @Setup
+    public void setUp() throws IOException {
+        schedule = SyntheticSchedule.sessions(sessions);
+        deck = new Deck("synthetic", "Synthetic", schedule);
+        final InMemoryGoogle google = new InMemoryGoogle();
+        slidesGenerator = new SlidesGenerator(google.slides(), google.drive());
+        template = slidesGenerator.template("template");
+        slideIds = SlidesGenerator.slideIds(sessions);
+        requests = SlidesGenerator.slidesRequests(template, slideIds, schedule);
+    }
+
+    @Benchmark
+    public List<Request> slidesRequests() {
+        return SlidesGenerator.slidesRequests(template, slideIds, schedule);
+    }
+
+    @Benchmark
+    public List<BatchUpdater.Batch> splitBatches() {
+        return BatchUpdater.split(requests, BatchUpdater.DEFAULT_MAX_REQUESTS, BatchUpdater.DEFAULT_MAX_BYTES);
+    }
+
+    @Benchmark
+    public String generateSlides() {
+        return slidesGenerator.generateSlides("template", deck).get();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.benchmark;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.Json;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.slides.v1.Slides;
+
+/**
+ * Google clients answering from memory, so that the benchmarks measure the client side only: building the requests,
+ * serializing and parsing the JSON.
+ */
+public final class InMemoryGoogle {
+    public static final String COPY_ID = "presentation_copy";
+    public static final String TEMPLATE_SLIDE_ID = "template_slide";
+    private static final String COPY_RESPONSE = "{\"id\":\"" + COPY_ID + "\"}";
+    // the template slide holds the four usual variables in a single shape
+    private static final String PRESENTATION_RESPONSE = "{\"slides\":[{\"objectId\":\"" + TEMPLATE_SLIDE_ID + "\","
+            + "\"pageElements\":[{\"objectId\":\"text\",\"shape\":{\"text\":{\"textElements\":[{\"textRun\":"
+            + "{\"content\":\"{{ title }}\\n{{ room }}\\n{{ speakers }}\\n{{ hours }}\\n\"}}]}}}]}]}";
+    private static final String BATCH_UPDATE_RESPONSE = "{\"presentationId\":\"" + COPY_ID + "\",\"replies\":[]}";
+    private final MockHttpTransport transport = new MockHttpTransport() {
+        @Override
+        public LowLevelHttpRequest buildRequest(final String method, final String url) {
+            return new MockLowLevelHttpRequest(url) {
+                @Override
+                public LowLevelHttpResponse execute() {
+                    return new MockLowLevelHttpResponse().setContentType(Json.MEDIA_TYPE).setContent(response(url));
+                }
+            };
+        }
+    };
+
+    public Slides slides() {
+        return new Slides.Builder(transport, JacksonFactory.getDefaultInstance(), null).build();
+    }
+
+    public Drive drive() {
+        return new Drive.Builder(transport, JacksonFactory.getDefaultInstance(), null).build();
+    }
+
+    private static String response(final String url) {
+        if (url.contains(":batchUpdate")) {
+            return BATCH_UPDATE_RESPONSE;
+        }
+        if (url.contains("/copy")) {
+            return COPY_RESPONSE;
+        }
+        return PRESENTATION_RESPONSE;
+    }
+}
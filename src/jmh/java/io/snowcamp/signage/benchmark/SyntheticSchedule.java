@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.benchmark;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import io.snowcamp.signage.session.Session;
+import io.vavr.collection.List;
+
+/**
+ * Sessions shaped like the SnowCamp ones: days of 12 slots in 8 rooms, 1 to 3 speakers per session.
+ */
+public final class SyntheticSchedule {
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("M/dd/yyyy h:mm a");
+    private static final LocalDateTime FIRST_SLOT = LocalDateTime.of(2019, 1, 16, 9, 0);
+    private static final int DAYS = 3;
+    private static final int SLOTS = 12;
+    private static final int ROOMS = 8;
+
+    private SyntheticSchedule() {
+    }
+
+    /**
+     * The rows of the Sched export, as read by Sheets.
+     */
+    public static java.util.List<java.util.List<Object>> values(final int rows) {
+        final java.util.List<java.util.List<Object>> values = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            values.add(row(i));
+        }
+        return values;
+    }
+
+    public static List<Session> sessions(final int count) {
+        return sessions(count, DAYS);
+    }
+
+    public static List<Session> sessions(final int count, final int days) {
+        return List.range(0, count).map(index -> session(index, days));
+    }
+
+    private static Session session(final int index, final int days) {
+        final LocalDateTime start = start(index, days);
+        return new Session.Builder()
+                          .title("Session " + index)
+                          .speakers(List.range(0, 1 + index % 3).map(i -> "Speaker " + (index + i)))
+                          .room("Room " + index % ROOMS)
+                          .start(start)
+                          .end(start.plusMinutes(40))
+                          .build();
+    }
+
+    private static LocalDateTime start(final int index, final int days) {
+        final int slot = index / ROOMS % SLOTS;
+        final int day = index / (ROOMS * SLOTS) % days;
+        return FIRST_SLOT.plusDays(day).plusMinutes(45L * slot);
+    }
+
+    private static java.util.List<Object> row(final int index) {
+        final LocalDateTime start = start(index, DAYS);
+        return new ArrayList<>(Arrays.asList("Session " + index,
+                                             "",
+                                             start.format(TIME_FORMATTER),
+                                             start.plusMinutes(40).format(TIME_FORMATTER),
+                                             "",
+                                             "",
+                                             "",
+                                             "",
+                                             speakers(index),
+                                             "",
+                                             "",
+                                             "",
+                                             "",
+                                             "Room " + index % ROOMS));
+    }
+
+    private static String speakers(final int index) {
+        final StringBuilder speakers = new StringBuilder("FIRST SPEAKER" + index);
+        for (int i = 1; i <= index % 3; i++) {
+            speakers.append("; other speaker").append(index + i);
+        }
+        return speakers.toString();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.sched;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.text.WordUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.snowcamp.signage.benchmark.SyntheticSchedule;
+import io.snowcamp.signage.session.Session;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+
+/**
+ * Decodes a synthetic sheet with {@link SchedParser} and with the decoding it replaced.
+ * Run with the gc profiler to compare the allocations per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SchedParserBenchmark {
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("M/dd/yyyy h:mm a");
+
+    @Param("100000")
+    private int sessions;
+    private java.util.List<java.util.List<Object>> values;
+    private SchedParser parser;
+
+    @Setup
+    public void setUp() {
+        values = SyntheticSchedule.values(sessions);
+        parser = new SchedParser((spreadsheetId, range) -> values);
+    }
+
+    @Benchmark
+    public void decode(final Blackhole blackhole) {
+        parser.parseSessions("synthetic").get().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void previousDecode(final Blackhole blackhole) {
+        values.stream()
+              .map(List::ofAll)
+              .filter(row -> row.size() == 14 && !cell(row, 8).getOrElse("").isEmpty())
+              .map(SchedParserBenchmark::previousSession)
+              .forEach(blackhole::consume);
+    }
+
+    private static Session previousSession(final List<Object> row) {
+        return new Session.Builder()
+                          .title(cell(row, 0).getOrNull())
+                          .speakers(cell(row, 8).map(String::toLowerCase)
+                                                .map(WordUtils::capitalize)
+                                                .map(speakers -> speakers.split("; "))
+                                                .map(List::of)
+                                                .getOrElse(List.of()))
+                          .room(cell(row, 13).getOrNull())
+                          .start(cell(row, 2).map(s -> LocalDateTime.parse(s, TIME_FORMATTER)).getOrNull())
+                          .end(cell(row, 3).map(s -> LocalDateTime.parse(s, TIME_FORMATTER)).getOrNull())
+                          .build();
+    }
+
+    private static Option<String> cell(final List<Object> row, final int index) {
+        return Option.of(row.get(index)).map(Object::toString);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.session;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.snowcamp.signage.benchmark.SyntheticSchedule;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+
+/**
+ * Looks up the sessions of a room or of a time with {@link ScheduleIndex} and by scanning the list of sessions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ScheduleIndexBenchmark {
+    private static final String ROOM = "Room 3";
+
+    @Param({"300", "100000"})
+    private int sessions;
+    private List<Session> schedule;
+    private ScheduleIndex index;
+    private LocalDateTime time;
+
+    @Setup
+    public void setUp() {
+        schedule = SyntheticSchedule.sessions(sessions, 60);
+        index = ScheduleIndex.of(schedule);
+        // in the middle of a session of the last day
+        time = schedule.last().start().plusMinutes(10);
+    }
+
+    @Benchmark
+    public Option<Session> currentWithIndex() {
+        return index.current(ROOM, time);
+    }
+
+    @Benchmark
+    public Option<Session> currentWithScan() {
+        return schedule.find(session -> session.room().equals(ROOM)
+                && !session.start().isAfter(time)
+                && session.end().isAfter(time));
+    }
+
+    @Benchmark
+    public Option<Session> nextWithIndex() {
+        return index.next(ROOM, time);
+    }
+
+    @Benchmark
+    public Option<Session> nextWithScan() {
+        return schedule.filter(session -> session.room().equals(ROOM) && session.start().isAfter(time))
+                       .minBy(Session::start);
+    }
+
+    @Benchmark
+    public List<Session> atWithIndex() {
+        return index.at(time);
+    }
+
+    @Benchmark
+    public List<Session> atWithScan() {
+        return schedule.filter(session -> !session.start().isAfter(time) && session.end().isAfter(time));
+    }
+
+    @Benchmark
+    public boolean isFreeWithIndex() {
+        return index.isFree(ROOM, time, time.plusMinutes(30));
+    }
+
+    @Benchmark
+    public boolean isFreeWithScan() {
+        final LocalDateTime end = time.plusMinutes(30);
+        return !schedule.exists(session -> session.room().equals(ROOM)
+                && session.start().isBefore(end)
+                && session.end().isAfter(time));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.session;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.snowcamp.signage.benchmark.SyntheticSchedule;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import io.vavr.collection.Stream;
+import io.vavr.control.Try;
+
+/**
+ * Groups the sessions by date and sorts them, from a 3-day conference to a schedule of several weeks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SessionsParserBenchmark {
+    @Param({"300", "100000"})
+    private int sessions;
+    @Param({"3", "60"})
+    private int days;
+    @Param({"false", "true"})
+    private boolean parallel;
+    private SessionsParser parser;
+
+    @Setup
+    public void setUp() {
+        final List<Session> schedule = SyntheticSchedule.sessions(sessions, days);
+        final SessionRowParser rowParser = spreadSheetId -> Try.success(Stream.ofAll(schedule));
+        parser = parallel ? new SessionsParser(rowParser, ForkJoinPool.commonPool()) : new SessionsParser(rowParser);
+    }
+
+    @Benchmark
+    public Seq<DaySessions> parse() {
+        return parser.parse("synthetic").get();
+    }
+}
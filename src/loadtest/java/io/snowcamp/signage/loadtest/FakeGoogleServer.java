@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.loadtest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.drive.model.File;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import com.google.api.services.slides.v1.model.BatchUpdatePresentationRequest;
+import com.google.api.services.slides.v1.model.BatchUpdatePresentationResponse;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.snowcamp.signage.metrics.MetricsRegistry;
+import io.vavr.collection.LinkedHashMap;
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.control.Option;
+
+/**
+ * A local stand-in of the calls this project makes to Google, to measure a generation without spending any quota:
+ * Slides {@code presentations.get} and {@code presentations.batchUpdate}, Drive {@code files.copy} and
+ * {@code files.update}, alone or in HTTP batches, and Sheets {@code spreadsheets.values.get}. Point
+ * {@link io.snowcamp.signage.gsuite.GoogleClients} at {@link #rootUrl()}.
+ * <p>
+ * Every call waits for its {@link Latency}, then may be answered with an injected error, or with a 429 once its API is
+ * beyond its quota, like Google does. The latencies and the errors are drawn from a seeded generator. The calls of a
+ * Drive batch are answered each on its own, in a single multipart response once the slowest one is.
+ * <p>
+ * The template holds every variable on a single slide, {@link #TEMPLATE_SLIDE_ID}, and the spreadsheet holds the given
+ * rows whatever its id and range.
+ */
+public final class FakeGoogleServer implements AutoCloseable {
+    public static final String TEMPLATE_SLIDE_ID = "template_slide";
+    public static final String SLIDES_GET = "slides.get";
+    public static final String SLIDES_BATCH_UPDATE = "slides.batchUpdate";
+    public static final String DRIVE_COPY = "drive.copy";
+    public static final String DRIVE_TRASH = "drive.trash";
+    public static final String DRIVE_BATCH = "drive.batch";
+    public static final String SHEETS_VALUES = "sheets.values";
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private static final String PRESENTATIONS_PATH = "/v1/presentations/";
+    private static final String BATCH_UPDATE_SUFFIX = ":batchUpdate";
+    private static final String FILES_PATH = "/drive/v3/files/";
+    private static final String COPY_SUFFIX = "/copy";
+    private static final String SPREADSHEETS_PATH = "/v4/spreadsheets/";
+    private static final String DRIVE_BATCH_PATH = "/batch/drive/v3";
+    private static final Pattern PART_REQUEST = Pattern.compile("^(GET|POST|PATCH|PUT|DELETE) (\\S+) HTTP/1.1$",
+                                                                Pattern.MULTILINE);
+    private static final String PART_BOUNDARY = "fake_google_batch";
+    private static final String PRESENTATION_RESPONSE = "{\"slides\":[{\"objectId\":\"" + TEMPLATE_SLIDE_ID + "\","
+            + "\"pageElements\":[{\"objectId\":\"text\",\"shape\":{\"text\":{\"textElements\":[{\"textRun\":"
+            + "{\"content\":\"{{ day }}\\n{{ title }}\\n{{ room }}\\n{{ speakers }}\\n{{ hours }}\\n{{ start }}\\n"
+            + "{{ end }}\\n\"}}]}}}]}]}";
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final String CALLS_PREFIX = "calls.";
+    private static final String INJECTED_PREFIX = "injected.";
+    private static final String QUOTA_EXCEEDED = "quota.exceeded";
+    private static final String BATCH_REQUESTS = "slides.batchUpdate.requests";
+    private static final String BATCH_CALLS = "drive.batch.calls";
+
+    public static final class Builder {
+        private java.util.List<java.util.List<Object>> values = java.util.List.of();
+        private Latency latency = Latency.none();
+        private Map<Integer, Double> errorRates = LinkedHashMap.empty();
+        private Map<String, Double> quotas = LinkedHashMap.empty();
+        private long seed = 42;
+        private int threads = 64;
+
+        public FakeGoogleServer start() throws IOException {
+            return new FakeGoogleServer(this);
+        }
+
+        /**
+         * The rows of the spreadsheet, as Sheets answers them.
+         */
+        public Builder values(final java.util.List<java.util.List<Object>> values) {
+            this.values = values;
+            return this;
+        }
+
+        public Builder latency(final Latency latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * The share of the calls answered with the given status, such as 429 or 503, whatever their API.
+         */
+        public Builder errorRate(final int statusCode, final double rate) {
+            Preconditions.checkArgument(rate >= 0 && rate <= 1, "rate must be between 0 and 1: %s", rate);
+            this.errorRates = errorRates.put(statusCode, rate);
+            return this;
+        }
+
+        /**
+         * The calls per second the given API, {@code slides}, {@code drive} or {@code sheets}, accepts before it
+         * answers 429. The APIs have no quota by default.
+         */
+        public Builder quota(final String api, final double callsPerSecond) {
+            this.quotas = quotas.put(api, callsPerSecond);
+            return this;
+        }
+
+        public Builder seed(final long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * The calls answered at the same time, each thread waiting for the latency of its call.
+         */
+        public Builder threads(final int threads) {
+            this.threads = threads;
+            return this;
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final java.util.List<java.util.List<Object>> values;
+    private final Latency latency;
+    private final Map<Integer, Double> errorRates;
+    private final Map<String, RateLimiter> quotas;
+    private final Random random;
+    private final AtomicLong copies = new AtomicLong();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    private FakeGoogleServer(final Builder builder) throws IOException {
+        Preconditions.checkArgument(builder.threads > 0, "threads must be positive: %s", builder.threads);
+        Preconditions.checkArgument(builder.errorRates.values().sum().doubleValue() <= 1,
+                                    "the error rates must not add up above 1: %s", builder.errorRates);
+        this.values = requireNonNull(builder.values);
+        this.latency = requireNonNull(builder.latency);
+        this.errorRates = builder.errorRates;
+        this.quotas = builder.quotas.mapValues(RateLimiter::create);
+        this.random = new Random(builder.seed);
+        this.executor = Executors.newFixedThreadPool(builder.threads,
+                                                     new ThreadFactoryBuilder().setNameFormat("fake-google-%d")
+                                                                               .setDaemon(true)
+                                                                               .build());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * The root URL of the clients, such as {@code http://127.0.0.1:<port>/}.
+     */
+    public String rootUrl() {
+        return "http://" + server.getAddress().getAddress().getHostAddress() + ':' + server.getAddress().getPort()
+                + '/';
+    }
+
+    /**
+     * The calls by kind ({@code calls.slides.get}, {@code calls.slides.batchUpdate}, {@code calls.drive.copy},
+     * {@code calls.drive.trash}, {@code calls.drive.batch}, {@code calls.sheets.values}), the injected errors by
+     * status, the calls beyond the quotas, the requests per Slides batch and the calls per Drive batch. The calls of a
+     * Drive batch count along with the ones sent alone.
+     */
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    public long calls(final String call) {
+        return metrics.counter(CALLS_PREFIX + call).sum();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final String method = exchange.getRequestMethod();
+        final String path = exchange.getRequestURI().getPath();
+        final Option<String> call = call(method, path);
+        if (call.isEmpty()) {
+            respond(exchange, 404, error(404, "not served by the fake server: " + method + ' ' + path));
+            return;
+        }
+        metrics.counter(CALLS_PREFIX + call.get()).increment();
+        try (InputStream body = requestBody(exchange)) {
+            if (DRIVE_BATCH.equals(call.get())) {
+                answerBatch(exchange, new String(body.readAllBytes(), UTF_8));
+                return;
+            }
+            waitFor(latency.nextMicros(random));
+            final Option<Integer> refused = refusal(call.get());
+            if (refused.isDefined()) {
+                if (refused.get() == TOO_MANY_REQUESTS) {
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                }
+                respond(exchange, refused.get(), refusalMessage(call.get(), refused.get()));
+                return;
+            }
+            respond(exchange, 200, answer(call.get(), path, body));
+        }
+    }
+
+    /**
+     * Answers each call of a Drive batch as if it were sent alone, but for its latency: Google answers the calls of a
+     * batch at the same time, so the batch waits for the slowest one.
+     */
+    private void answerBatch(final HttpExchange exchange, final String body) throws IOException {
+        List<Part> parts = List.empty();
+        final Matcher request = PART_REQUEST.matcher(body);
+        while (request.find()) {
+            final String path = URI.create(request.group(2)).getPath();
+            // a batch only holds calls of its API, and no batch
+            parts = parts.append(new Part(path, call(request.group(1), path).filter(call -> call.startsWith("drive.")
+                                                                                   && !call.equals(DRIVE_BATCH))));
+        }
+        metrics.histogram(BATCH_CALLS).record(parts.size());
+        waitFor(parts.map(part -> latency.nextMicros(random)).max().getOrElse(0L));
+
+        final StringBuilder response = new StringBuilder();
+        int contentId = 0;
+        for (final Part part : parts) {
+            part.call.forEach(call -> metrics.counter(CALLS_PREFIX + call).increment());
+            final int statusCode = part.call.map(call -> refusal(call).getOrElse(200)).getOrElse(404);
+            final byte[] content;
+            if (part.call.isEmpty()) {
+                content = error(statusCode, "not served in a batch by the fake server: " + part.path);
+            } else if (statusCode != 200) {
+                content = refusalMessage(part.call.get(), statusCode);
+            } else {
+                content = answer(part.call.get(), part.path, InputStream.nullInputStream());
+            }
+            response.append("--").append(PART_BOUNDARY).append("\r\n")
+                    .append("Content-Type: application/http\r\n")
+                    .append("Content-ID: <response-").append(++contentId).append(">\r\n\r\n")
+                    .append("HTTP/1.1 ").append(statusCode).append(statusCode == 200 ? " OK" : " Error").append("\r\n")
+                    .append("Content-Type: application/json; charset=UTF-8\r\n");
+            if (statusCode == TOO_MANY_REQUESTS) {
+                response.append("Retry-After: 1\r\n");
+            }
+            response.append("\r\n").append(new String(content, UTF_8)).append("\r\n");
+        }
+        response.append("--").append(PART_BOUNDARY).append("--\r\n");
+        respond(exchange, 200, "multipart/mixed; boundary=" + PART_BOUNDARY, response.toString().getBytes(UTF_8));
+    }
+
+    /**
+     * The status of the call once beyond the quota of its API, or when an error is injected.
+     */
+    private Option<Integer> refusal(final String call) {
+        final String api = call.substring(0, call.indexOf('.'));
+        if (quotas.get(api).exists(quota -> !quota.tryAcquire())) {
+            metrics.counter(QUOTA_EXCEEDED).increment();
+            return Option.some(TOO_MANY_REQUESTS);
+        }
+        final Option<Integer> injected = injectedError();
+        injected.forEach(statusCode -> metrics.counter(INJECTED_PREFIX + statusCode).increment());
+        return injected;
+    }
+
+    private static byte[] refusalMessage(final String call, final int statusCode) throws IOException {
+        return statusCode == TOO_MANY_REQUESTS
+                ? error(statusCode, "quota exceeded for " + call.substring(0, call.indexOf('.')))
+                : error(statusCode, "injected by the fake server");
+    }
+
+    private static Option<String> call(final String method, final String path) {
+        if ("GET".equals(method) && path.startsWith(PRESENTATIONS_PATH)) {
+            return Option.some(SLIDES_GET);
+        }
+        if ("POST".equals(method) && path.startsWith(PRESENTATIONS_PATH) && path.endsWith(BATCH_UPDATE_SUFFIX)) {
+            return Option.some(SLIDES_BATCH_UPDATE);
+        }
+        if ("POST".equals(method) && path.startsWith(FILES_PATH) && path.endsWith(COPY_SUFFIX)) {
+            return Option.some(DRIVE_COPY);
+        }
+        if ("PATCH".equals(method) && path.startsWith(FILES_PATH) && path.indexOf('/', FILES_PATH.length()) < 0) {
+            return Option.some(DRIVE_TRASH);
+        }
+        if ("POST".equals(method) && path.equals(DRIVE_BATCH_PATH)) {
+            return Option.some(DRIVE_BATCH);
+        }
+        if ("GET".equals(method) && path.startsWith(SPREADSHEETS_PATH) && path.contains("/values/")) {
+            return Option.some(SHEETS_VALUES);
+        }
+        return Option.none();
+    }
+
+    private byte[] answer(final String call, final String path, final InputStream body) throws IOException {
+        switch (call) {
+            case SLIDES_GET:
+                return PRESENTATION_RESPONSE.getBytes(UTF_8);
+            case SLIDES_BATCH_UPDATE:
+                final BatchUpdatePresentationRequest batch =
+                        JSON_FACTORY.fromInputStream(body, BatchUpdatePresentationRequest.class);
+                metrics.histogram(BATCH_REQUESTS).record(batch.getRequests().size());
+                final String presentationId = path.substring(PRESENTATIONS_PATH.length(),
+                                                             path.length() - BATCH_UPDATE_SUFFIX.length());
+                return JSON_FACTORY.toByteArray(new BatchUpdatePresentationResponse()
+                                                        .setPresentationId(presentationId)
+                                                        .setReplies(java.util.List.of()));
+            case DRIVE_COPY:
+                return JSON_FACTORY.toByteArray(new File().setId("copy_" + copies.incrementAndGet()));
+            case DRIVE_TRASH:
+                return JSON_FACTORY.toByteArray(new File().setId(path.substring(FILES_PATH.length())));
+            case SHEETS_VALUES:
+                return JSON_FACTORY.toByteArray(new ValueRange().setMajorDimension("ROWS").setValues(values));
+            default:
+                throw new IllegalArgumentException("unknown call: " + call);
+        }
+    }
+
+    private Option<Integer> injectedError() {
+        double draw = random.nextDouble();
+        for (final Integer statusCode : errorRates.keySet()) {
+            draw -= errorRates.get(statusCode).get();
+            if (draw < 0) {
+                return Option.some(statusCode);
+            }
+        }
+        return Option.none();
+    }
+
+    private static void waitFor(final long micros) throws IOException {
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while answering");
+        }
+    }
+
+    private static InputStream requestBody(final HttpExchange exchange) throws IOException {
+        // the clients compress the content of their calls
+        return "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+                ? new GZIPInputStream(exchange.getRequestBody())
+                : exchange.getRequestBody();
+    }
+
+    private static byte[] error(final int statusCode, final String message) throws IOException {
+        final GenericJson error = new GenericJson();
+        error.set("code", statusCode);
+        error.set("message", message);
+        final GenericJson response = new GenericJson();
+        response.set("error", error);
+        return JSON_FACTORY.toByteArray(response);
+    }
+
+    private static void respond(final HttpExchange exchange, final int statusCode, final byte[] body)
+            throws IOException {
+        respond(exchange, statusCode, "application/json; charset=utf-8", body);
+    }
+
+    private static void respond(final HttpExchange exchange,
+                                final int statusCode,
+                                final String contentType,
+                                final byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * A call of a Drive batch, when it is one the fake server answers.
+     */
+    private static final class Part {
+        private final String path;
+        private final Option<String> call;
+
+        private Part(final String path, final Option<String> call) {
+            this.path = path;
+            this.call = call;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.loadtest;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The distribution of the time the fake server takes to answer a call.
+ */
+@FunctionalInterface
+public interface Latency {
+    long nextMicros(Random random);
+
+    static Latency none() {
+        return random -> 0;
+    }
+
+    static Latency fixed(final Duration latency) {
+        final long micros = requireNonNull(latency).toNanos() / 1000;
+        return random -> micros;
+    }
+
+    static Latency uniform(final Duration min, final Duration max) {
+        final long minMicros = min.toNanos() / 1000;
+        final long maxMicros = max.toNanos() / 1000;
+        Preconditions.checkArgument(minMicros <= maxMicros, "min must not be above max: %s > %s", min, max);
+        return random -> minMicros + (long) (random.nextDouble() * (maxMicros - minMicros));
+    }
+
+    /**
+     * A long tail, as the Google APIs have: half the calls take less than {@code median}, 1% more than {@code p99}.
+     */
+    static Latency logNormal(final Duration median, final Duration p99) {
+        final double medianMicros = median.toNanos() / 1000.0;
+        Preconditions.checkArgument(medianMicros > 0 && p99.compareTo(median) >= 0,
+                                    "the median must be positive and not above the 99th percentile: %s, %s",
+                                    median, p99);
+        // 2.326 is the 99th percentile of the standard normal distribution
+        final double sigma = Math.log(p99.toNanos() / 1000.0 / medianMicros) / 2.326;
+        return random -> (long) (medianMicros * Math.exp(sigma * random.nextGaussian()));
+    }
+}
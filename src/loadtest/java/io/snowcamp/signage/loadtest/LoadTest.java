@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.loadtest;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Locale;
+
+import com.google.api.services.slides.v1.Slides;
+
+import io.snowcamp.signage.BatchUpdater;
+import io.snowcamp.signage.ConcurrentSlidesGenerator;
+import io.snowcamp.signage.DeckLayout;
+import io.snowcamp.signage.DriveDecks;
+import io.snowcamp.signage.GeneratedPresentation;
+import io.snowcamp.signage.SlidesGenerator;
+import io.snowcamp.signage.SlidesPipeline;
+import io.snowcamp.signage.benchmark.SyntheticSchedule;
+import io.snowcamp.signage.gsuite.ApiThrottle;
+import io.snowcamp.signage.gsuite.GSuiteFactories;
+import io.snowcamp.signage.gsuite.GoogleClients;
+import io.snowcamp.signage.gsuite.SheetValuesSource;
+import io.snowcamp.signage.metrics.Histogram;
+import io.snowcamp.signage.sched.SchedParser;
+import io.snowcamp.signage.session.DaySessions;
+import io.snowcamp.signage.session.SessionsParser;
+import io.vavr.collection.List;
+
+/**
+ * Runs full generations of synthetic conferences against a {@link FakeGoogleServer}: the rows are read from Sheets,
+ * parsed, grouped into decks, and the decks are copied in Drive batches and filled through the same clients, throttles
+ * and generators as a real run. For each size it prints the throughput, the latency of the decks and the calls made
+ * per deck.
+ * <p>
+ * By default, the throttles let the calls through as fast as the fake server answers them. With
+ * {@code -Dloadtest.quota=true}, the throttles and the fake server both apply the quotas of Google instead.
+ */
+public final class LoadTest {
+    private static final String SESSIONS_PROPERTY = "loadtest.sessions";
+    private static final String DECKS_PROPERTY = "loadtest.decks";
+    private static final String CONCURRENCY_PROPERTY = "loadtest.concurrency";
+    private static final String LATENCY_MEDIAN_PROPERTY = "loadtest.latency.median";
+    private static final String LATENCY_P99_PROPERTY = "loadtest.latency.p99";
+    private static final String ERRORS_429_PROPERTY = "loadtest.errors.429";
+    private static final String ERRORS_503_PROPERTY = "loadtest.errors.503";
+    private static final String QUOTA_PROPERTY = "loadtest.quota";
+    private static final String SPREADSHEET_ID = "synthetic";
+    private static final String TEMPLATE_PRESENTATION_ID = "template";
+    private static final double UNTHROTTLED_PERMITS_PER_SECOND = 10_000;
+
+    private LoadTest() {
+    }
+
+    public static void main(final String[] args) throws IOException, GeneralSecurityException, InterruptedException {
+        final List<Integer> sizes = List.of(System.getProperty(SESSIONS_PROPERTY, "10,100,1000,10000").split(","))
+                                        .map(String::trim)
+                                        .map(Integer::valueOf);
+        final DeckLayout deckLayout = DeckLayout.valueOf(System.getProperty(DECKS_PROPERTY, DeckLayout.DAY.name())
+                                                               .toUpperCase(Locale.ROOT)
+                                                               .replace('-', '_'));
+        System.out.println("sessions decks failed seconds sessions/s decks/s deck.p50.ms deck.p90.ms deck.p99.ms"
+                                   + " deck.max.ms calls/deck (slides.get batchUpdate drive.copy) retries");
+        for (final int sessions : sizes) {
+            run(sessions, deckLayout);
+        }
+    }
+
+    private static void run(final int sessions, final DeckLayout deckLayout)
+            throws IOException, GeneralSecurityException, InterruptedException {
+        final boolean quota = Boolean.getBoolean(QUOTA_PROPERTY);
+        final List<ApiThrottle> throttles = quota
+                ? List.of(GSuiteFactories.sheetsThrottle(), GSuiteFactories.slidesThrottle(),
+                          GSuiteFactories.driveThrottle())
+                : List.of("sheets", "slides", "drive").map(LoadTest::unthrottled);
+        final FakeGoogleServer.Builder fakeGoogle =
+                new FakeGoogleServer.Builder()
+                        .values(SyntheticSchedule.values(sessions))
+                        .latency(Latency.logNormal(Duration.ofMillis(Long.getLong(LATENCY_MEDIAN_PROPERTY, 80)),
+                                                   Duration.ofMillis(Long.getLong(LATENCY_P99_PROPERTY, 800))))
+                        .errorRate(429, rate(ERRORS_429_PROPERTY))
+                        .errorRate(503, rate(ERRORS_503_PROPERTY));
+        if (quota) {
+            throttles.forEach(throttle -> fakeGoogle.quota(throttle.name(), throttle.permitsPerSecond()));
+        }
+
+        try (FakeGoogleServer server = fakeGoogle.start();
+             GoogleClients googleClients = new GoogleClients.Builder().rootUrl(server.rootUrl()).build()) {
+            final Slides googleSlides = googleClients.slides(throttles.get(1));
+            final BatchUpdater batchUpdater = new BatchUpdater.Builder().googleSlides(googleSlides).build();
+            final DriveDecks driveDecks = new DriveDecks.Builder().googleDrive(googleClients.drive(throttles.get(2)))
+                                                                 .throttle(throttles.get(2))
+                                                                 .build();
+            final SlidesGenerator slidesGenerator = new SlidesGenerator(googleSlides, driveDecks, batchUpdater);
+            final SessionsParser sessionsParser =
+                    new SessionsParser(new SchedParser(SheetValuesSource.of(googleClients.sheets(throttles.get(0)))));
+
+            final long start = System.nanoTime();
+            final SlidesPipeline.Result result;
+            try (ConcurrentSlidesGenerator generator =
+                         new ConcurrentSlidesGenerator.Builder()
+                                 .slidesGenerator(slidesGenerator)
+                                 .concurrency(Integer.getInteger(CONCURRENCY_PROPERTY,
+                                                                 ConcurrentSlidesGenerator.DEFAULT_CONCURRENCY))
+                                 .build()) {
+                result = new SlidesPipeline.Builder()
+                                 .sessionsParser(sessionsParser)
+                                 .deckLayout(deckLayout)
+                                 .generator(generator)
+                                 .driveDecks(driveDecks)
+                                 .slidesGenerator(slidesGenerator)
+                                 .build()
+                                 .run(SPREADSHEET_ID, TEMPLATE_PRESENTATION_ID);
+            }
+            final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            report(sessions, result, elapsed, server, throttles);
+        }
+    }
+
+    private static void report(final int sessions,
+                               final SlidesPipeline.Result result,
+                               final Duration elapsed,
+                               final FakeGoogleServer server,
+                               final List<ApiThrottle> throttles) {
+        final List<GeneratedPresentation> presentations = result.presentations();
+        final Histogram deckLatency = new Histogram();
+        presentations.forEach(presentation -> deckLatency.record(presentation.latency().toMillis()));
+        final int decks = Math.max(1, presentations.size());
+        final double seconds = elapsed.toNanos() / 1e9;
+        final int parsed = result.days().map(days -> days.map(DaySessions::sessions).map(List::size).sum().intValue())
+                                 .getOrElse(0);
+        System.out.printf(Locale.ROOT,
+                          "%d %d %d %.3f %.1f %.2f %d %d %d %d %.1f %.1f %.1f %d\n",
+                          sessions,
+                          presentations.size(),
+                          presentations.count(presentation -> presentation.presentationId().isFailure()),
+                          seconds,
+                          parsed / seconds,
+                          presentations.size() / seconds,
+                          deckLatency.percentile(0.5),
+                          deckLatency.percentile(0.9),
+                          deckLatency.percentile(0.99),
+                          deckLatency.max(),
+                          (double) server.calls(FakeGoogleServer.SLIDES_GET) / decks,
+                          (double) server.calls(FakeGoogleServer.SLIDES_BATCH_UPDATE) / decks,
+                          (double) server.calls(FakeGoogleServer.DRIVE_COPY) / decks,
+                          throttles.map(throttle -> throttle.metrics().retries()).sum().longValue());
+        result.days().onFailure(err -> System.err.printf("failed to parse the sessions: %s\n", err));
+    }
+
+    private static ApiThrottle unthrottled(final String name) {
+        return new ApiThrottle.Builder().name(name).permitsPerSecond(UNTHROTTLED_PERMITS_PER_SECOND).build();
+    }
+
+    private static double rate(final String property) {
+        return Double.parseDouble(System.getProperty(property, "0.01"));
+    }
+}
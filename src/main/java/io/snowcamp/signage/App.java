@@ -15,44 +15,77 @@
  */
 package io.snowcamp.signage;
 
-import static io.snowcamp.signage.gsuite.GSuiteFactories.*;
-import static io.vavr.Function1.identity;
+import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Locale;
 
-import io.snowcamp.signage.sched.SchedParser;
-import io.snowcamp.signage.session.SessionRowParser;
-import io.snowcamp.signage.session.SessionsParser;
+import io.snowcamp.signage.session.DaySessions;
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
 import io.vavr.control.Try;
 
+/**
+ * Runs the mode the system properties ask for: plan, images, kiosk, watch, or a generation followed by the live
+ * presentation.
+ */
 public final class App {
-    private static final String GSLIDES_URL = "https://docs.google.com/presentation/d/";
+    private static final String DECKS_PROPERTY = "signage.decks";
+    private static final String LIVE_TEMPLATE_PROPERTY = "signage.live.template";
+    private static final String SCHED_CSV_PROPERTY = "signage.schedCsv";
+    private static final String IMAGES_PROPERTY = "signage.images";
+    private static final String KIOSK_PORT_PROPERTY = "signage.kiosk.port";
+    private static final String WATCH_PROPERTY = "signage.watch";
+    private static final String PLAN_PROPERTY = "signage.plan";
 
-    public static void main(String[] args) throws IOException, GeneralSecurityException {
+    public static void main(String[] args) throws IOException, GeneralSecurityException, InterruptedException {
+        final Clock clock = Clock.systemUTC();
+        final Instant start = clock.instant();
         // https://docs.google.com/presentation/d/<gslides_id>
         String templatePresentationId = "<your_template_gslide_id>";
         // https://docs.google.com/spreadsheets/d/<gsheet_id>
         String spreadsheetId = "<your_sched_gsheet_id>";
+        // or the path of the csv file exported from Sched
+        final Option<String> schedCsv = Option.of(System.getProperty(SCHED_CSV_PROPERTY));
+        final DeckLayout deckLayout = deckLayout();
 
-        final SessionRowParser scheds = new SchedParser(googleSheets());
-        final SessionsParser sessionsParser = new SessionsParser(scheds);
-        final SlidesGenerator slidesGenerator = new SlidesGenerator(googleSlides(), googleDrive());
-
-        sessionsParser.parse(spreadsheetId)
-                      .onFailure(err -> System.err.printf("failed to parse the spreadsheet [id=%s]: %s\n",
-                                                          spreadsheetId, err))
-                      .toStream()
-                      .flatMap(identity())
-                      .map(daySessions -> slidesGenerator.generateSlides(templatePresentationId, daySessions))
-                      .forEach(App::displayPresentationUrl);
+        if (Boolean.getBoolean(PLAN_PROPERTY)) {
+            PlanMode.plan(requireNonNull(schedCsv.getOrNull(), SCHED_CSV_PROPERTY + " is required to plan offline"),
+                          deckLayout);
+            return;
+        }
+        final Option<String> imagesDirectory = Option.of(System.getProperty(IMAGES_PROPERTY));
+        if (imagesDirectory.isDefined()) {
+            ImagesMode.render(schedCsv, spreadsheetId, deckLayout, Paths.get(imagesDirectory.get()));
+            return;
+        }
+        final Option<Integer> kioskPort = Option.of(Integer.getInteger(KIOSK_PORT_PROPERTY));
+        if (kioskPort.isDefined()) {
+            KioskMode.serve(schedCsv, spreadsheetId, kioskPort.get());
+            return;
+        }
 
-        System.out.println("That's it!");
+        final Generation generation = new Generation(schedCsv, spreadsheetId, start, clock);
+        if (Boolean.getBoolean(WATCH_PROPERTY)) {
+            WatchMode.watch(generation, deckLayout, templatePresentationId, clock);
+            return;
+        }
+        final Try<Seq<DaySessions>> days = GenerateMode.generate(generation, deckLayout, templatePresentationId, clock);
+        final Option<String> liveTemplateId = Option.of(System.getProperty(LIVE_TEMPLATE_PROPERTY));
+        if (liveTemplateId.isDefined() && days.isSuccess()) {
+            LiveMode.start(generation, liveTemplateId.get(), days.get());
+        } else {
+            generation.close();
+        }
     }
 
-    private static Try<String> displayPresentationUrl(final Try<String> slideId) {
-        return slideId.map(id -> GSLIDES_URL + id)
-                      .onSuccess(url -> System.out.printf("presentation successfully generated at %s\n", url))
-                      .onFailure(err -> System.err.printf("failed to generate the presentation: %s\n", err));
+    private static DeckLayout deckLayout() {
+        return DeckLayout.valueOf(System.getProperty(DECKS_PROPERTY, DeckLayout.DAY.name())
+                                        .toUpperCase(Locale.ROOT)
+                                        .replace('-', '_'));
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+
+import io.snowcamp.signage.gsuite.CredentialProvider;
+import io.snowcamp.signage.gsuite.GoogleClients;
+import io.vavr.control.Option;
+
+/**
+ * The system properties shared by the modes of the {@link App}, and what they configure.
+ */
+final class AppSettings {
+    static final String MANIFEST_PROPERTY = "signage.manifest";
+    static final String IMAGES_LAYOUT_PROPERTY = "signage.images.layout";
+    private static final String CONCURRENCY_PROPERTY = "signage.concurrency";
+    private static final String BATCH_MAX_REQUESTS_PROPERTY = "signage.batch.maxRequests";
+    private static final String BATCH_MAX_BYTES_PROPERTY = "signage.batch.maxBytes";
+    private static final String WATCH_POLL_PROPERTY = "signage.watch.poll";
+    private static final String WATCH_QUIET_PROPERTY = "signage.watch.quiet";
+    private static final String WATCH_MAX_DELAY_PROPERTY = "signage.watch.maxDelay";
+    private static final String HTTP2_PROPERTY = "signage.http2";
+    private static final String MAX_CONNECTIONS_PROPERTY = "signage.http.maxConnections";
+    private static final String ROOT_URL_PROPERTY = "signage.rootUrl";
+    private static final String SERVICE_ACCOUNT_PROPERTY = "signage.auth.serviceAccount";
+    private static final String REFRESH_TOKEN_PROPERTY = "signage.auth.refreshToken";
+    private static final String REFRESH_TOKEN_VARIABLE = "SIGNAGE_REFRESH_TOKEN";
+    private static final String CLIENT_SECRETS_PATH = "/credentials.json";
+
+    private AppSettings() {
+    }
+
+    static Duration seconds(final String property, final Duration defaultDuration) {
+        return Duration.ofSeconds(Long.getLong(property, defaultDuration.getSeconds()));
+    }
+
+    static int batchMaxRequests() {
+        return Integer.getInteger(BATCH_MAX_REQUESTS_PROPERTY, BatchUpdater.DEFAULT_MAX_REQUESTS);
+    }
+
+    static int batchMaxBytes() {
+        return Integer.getInteger(BATCH_MAX_BYTES_PROPERTY, BatchUpdater.DEFAULT_MAX_BYTES);
+    }
+
+    static ConcurrentSlidesGenerator concurrentGenerator(final PresentationGenerator slidesGenerator) {
+        return new ConcurrentSlidesGenerator.Builder()
+                       .slidesGenerator(slidesGenerator)
+                       .concurrency(Integer.getInteger(CONCURRENCY_PROPERTY,
+                                                       ConcurrentSlidesGenerator.DEFAULT_CONCURRENCY))
+                       .build();
+    }
+
+    /**
+     * A watcher polling the schedule as the watch properties say, left to complete.
+     */
+    static ScheduleWatcher.Builder scheduleWatcher() {
+        return new ScheduleWatcher.Builder()
+                       .pollInterval(seconds(WATCH_POLL_PROPERTY, ScheduleWatcher.DEFAULT_POLL_INTERVAL))
+                       .quietPeriod(seconds(WATCH_QUIET_PROPERTY, ScheduleWatcher.DEFAULT_QUIET_PERIOD))
+                       .maxDelay(seconds(WATCH_MAX_DELAY_PROPERTY, ScheduleWatcher.DEFAULT_MAX_DELAY));
+    }
+
+    static GoogleClients googleClients() throws IOException, GeneralSecurityException {
+        return new GoogleClients.Builder()
+                       .credentialProvider(credentialProvider())
+                       .http2(Boolean.getBoolean(HTTP2_PROPERTY))
+                       .maxConnections(Integer.getInteger(MAX_CONNECTIONS_PROPERTY,
+                                                          GoogleClients.DEFAULT_MAX_CONNECTIONS))
+                       .rootUrl(System.getProperty(ROOT_URL_PROPERTY))
+                       .build();
+    }
+
+    private static CredentialProvider credentialProvider() {
+        final Option<String> serviceAccountKey = Option.of(System.getProperty(SERVICE_ACCOUNT_PROPERTY));
+        if (serviceAccountKey.isDefined()) {
+            return CredentialProvider.serviceAccount(Paths.get(serviceAccountKey.get()));
+        }
+        return Option.of(System.getProperty(REFRESH_TOKEN_PROPERTY, System.getenv(REFRESH_TOKEN_VARIABLE)))
+                     .map(refreshToken -> CredentialProvider.refreshToken(CLIENT_SECRETS_PATH, refreshToken))
+                     .getOrElse(() -> CredentialProvider.installedApp(CLIENT_SECRETS_PATH));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.snowcamp.signage.metrics.Histogram;
+
+public final class BatchMetrics {
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAccumulator maxRequests = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxBytes = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+    private final Histogram requestsPerBatch = new Histogram();
+    private final Histogram bytesPerBatch = new Histogram();
+    private final Histogram latencyMicros = new Histogram();
+
+    void record(final int batchRequests, final long batchBytes, final long batchLatencyNanos) {
+        batches.increment();
+        requests.add(batchRequests);
+        bytes.add(batchBytes);
+        latencyNanos.add(batchLatencyNanos);
+        maxRequests.accumulate(batchRequests);
+        maxBytes.accumulate(batchBytes);
+        maxLatencyNanos.accumulate(batchLatencyNanos);
+        requestsPerBatch.record(batchRequests);
+        bytesPerBatch.record(batchBytes);
+        latencyMicros.record(TimeUnit.NANOSECONDS.toMicros(batchLatencyNanos));
+    }
+
+    public long batches() {
+        return batches.sum();
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long bytes() {
+        return bytes.sum();
+    }
+
+    public long maxRequests() {
+        return maxRequests.get();
+    }
+
+    public long maxBytes() {
+        return maxBytes.get();
+    }
+
+    public Duration meanLatency() {
+        final long count = batches();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(latencyNanos.sum() / count);
+    }
+
+    public Duration maxLatency() {
+        return Duration.ofNanos(maxLatencyNanos.get());
+    }
+
+    public Histogram requestsPerBatch() {
+        return requestsPerBatch;
+    }
+
+    public Histogram bytesPerBatch() {
+        return bytesPerBatch;
+    }
+
+    public Histogram latencyMicros() {
+        return latencyMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchMetrics{"
+                + "batches="
+                + batches()
+                + ", requests="
+                + requests()
+                + ", bytes="
+                + bytes()
+                + ", maxRequests="
+                + maxRequests()
+                + ", maxBytes="
+                + maxBytes()
+                + ", meanLatency="
+                + meanLatency()
+                + ", maxLatency="
+                + maxLatency()
+                + '}';
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import java.io.IOException;
+
+/**
+ * Thrown when one of the batches a request list was split into fails, the previous ones being already applied.
+ */
+public final class BatchUpdateException extends IOException {
+    private static final long serialVersionUID = 1L;
+    private final int appliedBatches;
+
+    public BatchUpdateException(final int appliedBatches, final IOException cause) {
+        super("batch #" + appliedBatches + " failed: " + cause.getMessage(), cause);
+        this.appliedBatches = appliedBatches;
+    }
+
+    public int appliedBatches() {
+        return appliedBatches;
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+        return (IOException) super.getCause();
+    }
+}
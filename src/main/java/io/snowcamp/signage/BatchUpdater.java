@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.slides.v1.Slides;
+import com.google.api.services.slides.v1.model.BatchUpdatePresentationRequest;
+import com.google.api.services.slides.v1.model.BatchUpdatePresentationResponse;
+import com.google.api.services.slides.v1.model.Request;
+import com.google.api.services.slides.v1.model.Response;
+import com.google.common.base.Preconditions;
+
+import io.vavr.collection.List;
+
+/**
+ * Sends the requests of a presentation in as many batchUpdate calls as needed to stay below a number of requests
+ * and a payload size per call.
+ * <p>
+ * The batches of a presentation depend on each other (a slide is filled in the batch after the one duplicating it),
+ * so they are sent one after the other, in order. Each batch is atomic but the whole list is not: when a batch
+ * fails, a {@link BatchUpdateException} tells how many were applied.
+ */
+public final class BatchUpdater {
+    public static final int DEFAULT_MAX_REQUESTS = 500;
+    public static final int DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    // {"requests":[...]}
+    private static final int ENVELOPE_BYTES = 16;
+
+    /**
+     * Told of each batch applied, by its index from 0.
+     */
+    @FunctionalInterface
+    public interface BatchListener {
+        void applied(int batch) throws IOException;
+    }
+
+    public static final class Builder {
+        private Slides googleSlides;
+        private int maxRequests = DEFAULT_MAX_REQUESTS;
+        private int maxBytes = DEFAULT_MAX_BYTES;
+
+        public BatchUpdater build() {
+            return new BatchUpdater(googleSlides, maxRequests, maxBytes);
+        }
+
+        public Builder googleSlides(final Slides googleSlides) {
+            this.googleSlides = googleSlides;
+            return this;
+        }
+
+        public Builder maxRequests(final int maxRequests) {
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        public Builder maxBytes(final int maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+    }
+
+    private final Slides googleSlides;
+    private final int maxRequests;
+    private final int maxBytes;
+    private final BatchMetrics metrics = new BatchMetrics();
+
+    private BatchUpdater(final Slides googleSlides, final int maxRequests, final int maxBytes) {
+        Preconditions.checkArgument(maxRequests > 0, "maxRequests must be positive: %s", maxRequests);
+        Preconditions.checkArgument(maxBytes > 0, "maxBytes must be positive: %s", maxBytes);
+        this.googleSlides = requireNonNull(googleSlides);
+        this.maxRequests = maxRequests;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Sends the requests and returns their replies, in the same order.
+     */
+    public List<Response> batchUpdate(final String presentationId, final List<Request> requests)
+            throws BatchUpdateException {
+        return batchUpdate(presentationId, requests, 0, batch -> { });
+    }
+
+    /**
+     * Sends the batches of the requests from the given one on, the previous ones being already applied, and tells
+     * the listener of each batch once applied. The requests must be the ones the applied batches were split from.
+     * Only the replies of the batches sent are returned.
+     */
+    public List<Response> batchUpdate(final String presentationId,
+                                      final List<Request> requests,
+                                      final int appliedBatches,
+                                      final BatchListener listener) throws BatchUpdateException {
+        requireNonNull(presentationId);
+        requireNonNull(requests);
+        requireNonNull(listener);
+        Preconditions.checkArgument(appliedBatches >= 0, "appliedBatches must not be negative: %s", appliedBatches);
+
+        List<Response> replies = List.empty();
+        int applied = appliedBatches;
+        for (final Batch batch : split(requests, maxRequests, maxBytes).drop(appliedBatches)) {
+            final long start = System.nanoTime();
+            final BatchUpdatePresentationResponse response;
+            try {
+                response = googleSlides.presentations()
+                                       .batchUpdate(presentationId, batch.toBatchRequest())
+                                       .execute();
+            } catch (IOException e) {
+                throw new BatchUpdateException(applied, e);
+            }
+            metrics.record(batch.requests.size(), batch.bytes, System.nanoTime() - start);
+            applied++;
+            try {
+                listener.applied(applied - 1);
+            } catch (IOException e) {
+                throw new BatchUpdateException(applied, e);
+            }
+            replies = replies.appendAll(replies(response));
+        }
+        return replies;
+    }
+
+    public BatchMetrics metrics() {
+        return metrics;
+    }
+
+    static List<Batch> split(final List<Request> requests, final int maxRequests, final int maxBytes) {
+        List<Batch> batches = List.empty();
+        Batch batch = new Batch();
+        for (final Request request : requests) {
+            final long requestBytes = sizeOf(request);
+            if (!batch.requests.isEmpty()
+                    && (batch.requests.size() == maxRequests || batch.bytes + requestBytes > maxBytes)) {
+                batches = batches.append(batch);
+                batch = new Batch();
+            }
+            batch = batch.add(request, requestBytes);
+        }
+        return batch.requests.isEmpty() ? batches : batches.append(batch);
+    }
+
+    static long sizeOf(final Request request) {
+        try {
+            // the request and its separating comma
+            return JSON_FACTORY.toByteArray(request).length + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Response> replies(final BatchUpdatePresentationResponse response) {
+        return response.getReplies() == null ? List.empty() : List.ofAll(response.getReplies());
+    }
+
+    static final class Batch {
+        private final List<Request> requests;
+        private final long bytes;
+
+        private Batch() {
+            this(List.empty(), ENVELOPE_BYTES);
+        }
+
+        private Batch(final List<Request> requests, final long bytes) {
+            this.requests = requests;
+            this.bytes = bytes;
+        }
+
+        private Batch add(final Request request, final long requestBytes) {
+            return new Batch(requests.append(request), bytes + requestBytes);
+        }
+
+        List<Request> requests() {
+            return requests;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        private BatchUpdatePresentationRequest toBatchRequest() {
+            return new BatchUpdatePresentationRequest().setRequests(requests.asJava());
+        }
+    }
+}
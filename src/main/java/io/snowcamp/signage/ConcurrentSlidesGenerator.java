@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import io.vavr.concurrent.Future;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+
+/**
+ * Generates several presentations at the same time, at most {@code concurrency} at once: as many as the threads of
+ * its pool.
+ * Results are returned in the order of the given decks, whatever the order in which they complete.
+ */
+public final class ConcurrentSlidesGenerator implements AutoCloseable {
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    public static final class Builder {
+        private PresentationGenerator slidesGenerator;
+        private Integer concurrency;
+        private ExecutorService executor;
+
+        public ConcurrentSlidesGenerator build() {
+            return new ConcurrentSlidesGenerator(slidesGenerator, Option.of(concurrency), Option.of(executor));
+        }
+
+        public Builder slidesGenerator(final PresentationGenerator slidesGenerator) {
+            this.slidesGenerator = slidesGenerator;
+            return this;
+        }
+
+        /**
+         * The generations running at once, {@value #DEFAULT_CONCURRENCY} by default.
+         */
+        public Builder concurrency(final int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * Runs the generations on the given executor instead of a dedicated pool: its threads bound the generations
+         * running at once, a {@code concurrency} cannot be given along. The executor is not shut down when this
+         * generator is closed.
+         */
+        public Builder executor(final ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+    }
+
+    private final PresentationGenerator slidesGenerator;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+
+    private ConcurrentSlidesGenerator(final PresentationGenerator slidesGenerator,
+                                      final Option<Integer> concurrency,
+                                      final Option<ExecutorService> executor) {
+        Preconditions.checkArgument(concurrency.isEmpty() || executor.isEmpty(),
+                                    "concurrency and executor are exclusive: the threads of the executor bound the "
+                                    + "generations running at once");
+        concurrency.forEach(threads -> Preconditions.checkArgument(threads > 0,
+                                                                   "concurrency must be positive: %s", threads));
+        this.slidesGenerator = requireNonNull(slidesGenerator);
+        this.ownsExecutor = executor.isEmpty();
+        this.executor = executor.getOrElse(() -> newExecutor(concurrency.getOrElse(DEFAULT_CONCURRENCY)));
+    }
+
+    public List<GeneratedPresentation> generateSlides(final String templatePresentationId,
+                                                     final Seq<Deck> decks) {
+        requireNonNull(templatePresentationId);
+        requireNonNull(decks);
+
+        final List<Future<GeneratedPresentation>> generations =
+                decks.map(deck -> submit(templatePresentationId, deck)).toList();
+
+        return generations.map(Future::get);
+    }
+
+    /**
+     * Starts the generation of one deck, as soon as a thread of the pool is free.
+     */
+    public Future<GeneratedPresentation> submit(final String templatePresentationId, final Deck deck) {
+        requireNonNull(templatePresentationId);
+        requireNonNull(deck);
+        return Future.of(executor, () -> generate(templatePresentationId, deck)).recover(err -> failed(deck, err));
+    }
+
+    private GeneratedPresentation generate(final String templatePresentationId, final Deck deck) {
+        final long start = System.nanoTime();
+        final Try<String> presentationId = slidesGenerator.generateSlides(templatePresentationId, deck);
+        return new GeneratedPresentation(deck, presentationId, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static GeneratedPresentation failed(final Deck deck, final Throwable err) {
+        return new GeneratedPresentation(deck, Try.failure(err), Duration.ZERO);
+    }
+
+    private static ExecutorService newExecutor(final int concurrency) {
+        return Executors.newFixedThreadPool(concurrency, new ThreadFactoryBuilder().setNameFormat("slides-generator-%d")
+                                                                                 .setDaemon(true)
+                                                                                 .build());
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+
+import io.snowcamp.signage.session.Session;
+import io.vavr.collection.List;
+
+/**
+ * The sessions displayed by one presentation, latest first: the slides are displayed in the reverse order.
+ * The key identifies the deck from one run to the next, the name is the one of the presentation.
+ */
+public final class Deck {
+    private final String key;
+    private final String name;
+    private final List<Session> sessions;
+
+    public Deck(final String key, final String name, final List<Session> sessions) {
+        this.key = requireNonNull(key);
+        this.name = requireNonNull(name);
+        this.sessions = requireNonNull(sessions);
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public List<Session> sessions() {
+        return sessions;
+    }
+
+    @Override
+    public String toString() {
+        return "Deck{"
+                + "key='"
+                + key
+                + '\''
+                + ", sessions="
+                + sessions.size()
+                + '}';
+    }
+}
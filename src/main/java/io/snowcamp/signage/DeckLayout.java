@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Locale.FRENCH;
+import static org.apache.commons.text.WordUtils.capitalize;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+import io.snowcamp.signage.session.DaySessions;
+import io.snowcamp.signage.session.Session;
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+
+/**
+ * How the sessions are split into presentations: one per day, shown in the hall, or one per room, shown on the TV of
+ * the room.
+ */
+public enum DeckLayout {
+    DAY(true) {
+        @Override
+        public List<Deck> decks(final Seq<DaySessions> days) {
+            return days.map(day -> new Deck(day.date().toString(), dayName(day.date()), day.sessions())).toList();
+        }
+    },
+    ROOM(false) {
+        @Override
+        public List<Deck> decks(final Seq<DaySessions> days) {
+            // the days are in date order and their sessions latest first: walk them backwards to keep the latest first
+            return byRoom(days.reverse().flatMap(DaySessions::sessions))
+                    .map(room -> new Deck("room/" + room._1, room._1, room._2));
+        }
+    },
+    ROOM_DAY(true) {
+        @Override
+        public List<Deck> decks(final Seq<DaySessions> days) {
+            return days.toList().flatMap(day -> byRoom(day.sessions()).map(room -> new Deck(
+                    day.date() + "/" + room._1, dayName(day.date()) + " - " + room._1, room._2)));
+        }
+    };
+
+    private static final DateTimeFormatter DAY_NAME_FORMATTER = DateTimeFormatter.ofPattern("EEEE d MMMM", FRENCH);
+    private final boolean perDay;
+
+    DeckLayout(final boolean perDay) {
+        this.perDay = perDay;
+    }
+
+    public abstract List<Deck> decks(Seq<DaySessions> days);
+
+    /**
+     * Whether a deck only holds the sessions of one day: the decks of a day can be built as soon as it is parsed.
+     */
+    public boolean isPerDay() {
+        return perDay;
+    }
+
+    /**
+     * The day and date in French, "Mercredi 16 janvier" for instance.
+     */
+    static String dayName(final LocalDate date) {
+        return capitalize(date.format(DAY_NAME_FORMATTER));
+    }
+
+    /**
+     * Partitions the sessions by room in one pass, keeping their order. The rooms are in alphabetical order.
+     */
+    private static List<Tuple2<String, List<Session>>> byRoom(final Iterable<Session> sessions) {
+        final java.util.Map<String, java.util.List<Session>> rooms = new TreeMap<>();
+        for (final Session session : sessions) {
+            rooms.computeIfAbsent(session.room(), room -> new ArrayList<>()).add(session);
+        }
+        return List.ofAll(rooms.entrySet()).map(room -> Tuple.of(room.getKey(), List.ofAll(room.getValue())));
+    }
+}
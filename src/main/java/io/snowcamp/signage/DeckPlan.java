@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+import com.google.api.services.slides.v1.model.Request;
+
+import io.vavr.collection.List;
+
+/**
+ * The requests a presentation would be generated with, and the batchUpdate calls they would be sent in.
+ */
+public final class DeckPlan extends GenericJson {
+    @Key
+    private String key;
+    @Key
+    private String name;
+    @Key
+    private java.util.List<String> slideIds;
+    @Key
+    private java.util.List<Integer> batchRequests;
+    @Key
+    private java.util.List<Long> batchBytes;
+    @Key
+    private java.util.List<Request> requests;
+
+    public DeckPlan() {
+        // required by the JSON parser
+    }
+
+    DeckPlan(final Deck deck,
+             final List<String> slideIds,
+             final List<Request> requests,
+             final List<BatchUpdater.Batch> batches) {
+        this.key = deck.key();
+        this.name = deck.name();
+        this.slideIds = new java.util.ArrayList<>(slideIds.asJava());
+        this.batchRequests = new java.util.ArrayList<>(batches.map(batch -> batch.requests().size()).asJava());
+        this.batchBytes = new java.util.ArrayList<>(batches.map(BatchUpdater.Batch::bytes).asJava());
+        this.requests = new java.util.ArrayList<>(requests.asJava());
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public List<String> slideIds() {
+        return slideIds == null ? List.empty() : List.ofAll(slideIds);
+    }
+
+    /**
+     * The number of requests of each batchUpdate call, in the order they would be sent.
+     */
+    public List<Integer> batchRequests() {
+        return batchRequests == null ? List.empty() : List.ofAll(batchRequests);
+    }
+
+    /**
+     * The estimated payload of each batchUpdate call, in bytes.
+     */
+    public List<Long> batchBytes() {
+        return batchBytes == null ? List.empty() : List.ofAll(batchBytes);
+    }
+
+    public List<Request> requests() {
+        return requests == null ? List.empty() : List.ofAll(requests);
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonErrorContainer;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.util.BackOff;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.DriveRequest;
+import com.google.api.services.drive.model.File;
+import com.google.api.services.drive.model.FileList;
+import com.google.common.base.Preconditions;
+
+import io.snowcamp.signage.gsuite.ApiThrottle;
+import io.vavr.CheckedFunction1;
+import io.vavr.collection.LinkedHashMap;
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+
+/**
+ * The presentations of the decks in Drive: copied from the template into a folder, and trashed once superseded.
+ * <p>
+ * The copies are tagged with the key of their deck in their app properties. The copies of several decks are sent
+ * in Drive HTTP batches, a single multipart request for up to {@code batchSize} copies: {@link #copyAll} prepares
+ * them upfront, {@link #copy} then hands them out, or copies on its own the decks that were not prepared.
+ * Once a run is done, {@link #trashSuperseded} trashes, in batches too, the presentations of the previous runs for
+ * the decks generated again.
+ * <p>
+ * A batch is sent through the initializer of the Drive client: it is authorized, throttled and retried as a single
+ * call. With a throttle, the one of the Drive client, each call of a batch is charged to its rate limit too, and the
+ * calls failed on a rate limit are sent again in a new batch after backing off, as a single call is. The trashings
+ * failed on a server error are sent again too, but not the copies: a copy whose answer is lost may have been made.
+ */
+public final class DriveDecks {
+    // Drive accepts at most 100 calls in a batch
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    static final String APP_PROPERTY = "signage";
+    static final String APP_PROPERTY_VALUE = "deck";
+    static final String DECK_PROPERTY = "signageDeck";
+    private static final String BATCH_PATH = "batch/drive/v3";
+    private static final String COPY_FIELDS = "id";
+    private static final String LIST_FIELDS = "nextPageToken,files(id,appProperties)";
+    private static final String TRASH_FIELDS = "id";
+    private static final int LIST_PAGE_SIZE = 1000;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    public static final class Builder {
+        private Drive googleDrive;
+        private String folderId;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private ApiThrottle throttle;
+
+        public DriveDecks build() {
+            return new DriveDecks(googleDrive, Option.of(folderId), batchSize, Option.of(throttle));
+        }
+
+        public Builder googleDrive(final Drive googleDrive) {
+            this.googleDrive = googleDrive;
+            return this;
+        }
+
+        /**
+         * Puts the copies into the given folder instead of the root folder, and looks for the superseded ones there.
+         */
+        public Builder folderId(final String folderId) {
+            this.folderId = folderId;
+            return this;
+        }
+
+        public Builder batchSize(final int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder throttle(final ApiThrottle throttle) {
+            this.throttle = throttle;
+            return this;
+        }
+    }
+
+    private final Drive googleDrive;
+    private final Option<String> folderId;
+    private final int batchSize;
+    private final Option<ApiThrottle> throttle;
+    private final ConcurrentMap<String, String> preparedCopies = new ConcurrentHashMap<>();
+    private final DriveMetrics metrics = new DriveMetrics();
+
+    private DriveDecks(final Drive googleDrive,
+                       final Option<String> folderId,
+                       final int batchSize,
+                       final Option<ApiThrottle> throttle) {
+        Preconditions.checkArgument(batchSize > 0 && batchSize <= DEFAULT_BATCH_SIZE,
+                                    "batchSize must be between 1 and %s: %s", DEFAULT_BATCH_SIZE, batchSize);
+        this.googleDrive = requireNonNull(googleDrive);
+        this.folderId = requireNonNull(folderId);
+        this.batchSize = batchSize;
+        this.throttle = requireNonNull(throttle);
+    }
+
+    /**
+     * Copies the template for every deck, in batches. The copies are kept until {@link #copy} asks for them.
+     * A failed copy, or a failed batch, is reported for its decks: {@link #copy} will copy them one by one.
+     */
+    public Map<String, Try<String>> copyAll(final String templatePresentationId, final Seq<Deck> decks) {
+        requireNonNull(templatePresentationId);
+        requireNonNull(decks);
+
+        final Map<String, Deck> decksByKey = decks.toLinkedMap(Deck::key, deck -> deck);
+        // the copies failed on a server error are not sent again: a copy made twice is a deck twice
+        final java.util.Map<String, Try<File>> copies =
+                sendAll(decksByKey.keySet().toList(), metrics.copies(), false, key -> {
+                    final Deck deck = decksByKey.get(key).get();
+                    return googleDrive.files()
+                                      .copy(templatePresentationId, copyMetadata(deck.name(), Option.some(deck.key())))
+                                      .setFields(COPY_FIELDS);
+                });
+
+        final Map<String, Try<String>> presentationIds =
+                LinkedHashMap.ofAll(copies).mapValues(copy -> copy.map(File::getId));
+        presentationIds.forEach((deckKey, presentationId) -> presentationId.forEach(
+                id -> preparedCopies.put(copyKey(templatePresentationId, deckKey), id)));
+        return presentationIds;
+    }
+
+    /**
+     * The copy of the template for the given deck, prepared by {@link #copyAll} or copied right now.
+     */
+    public String copy(final String templatePresentationId, final Deck deck) throws IOException {
+        requireNonNull(templatePresentationId);
+        requireNonNull(deck);
+
+        final String prepared = preparedCopies.remove(copyKey(templatePresentationId, deck.key()));
+        if (prepared != null) {
+            return prepared;
+        }
+        return copy(templatePresentationId, deck.name(), Option.some(deck.key()));
+    }
+
+    /**
+     * A copy of a presentation which is not a deck: it is put into the folder, but is never trashed.
+     */
+    public String copy(final String presentationId, final String copyName) throws IOException {
+        requireNonNull(presentationId);
+        requireNonNull(copyName);
+
+        return copy(presentationId, copyName, Option.none());
+    }
+
+    private String copy(final String presentationId, final String copyName, final Option<String> deckKey)
+            throws IOException {
+        final long start = System.nanoTime();
+        try {
+            final String copyId = googleDrive.files()
+                                             .copy(presentationId, copyMetadata(copyName, deckKey))
+                                             .setFields(COPY_FIELDS)
+                                             .execute()
+                                             .getId();
+            metrics.copies().record(1, 0, System.nanoTime() - start);
+            return copyId;
+        } catch (IOException e) {
+            metrics.copies().record(1, 1, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Trashes the presentations of the given decks which are not their current one, see {@link #trash}.
+     *
+     * @param presentationIds the current presentation of each deck generated by this run
+     * @return the ids of the trashed presentations
+     */
+    public List<String> trashSuperseded(final Map<String, String> presentationIds) throws IOException {
+        requireNonNull(presentationIds);
+
+        final List<String> superseded =
+                listDecks().filter(file -> presentationIds.get(file.getAppProperties().get(DECK_PROPERTY))
+                                                          .exists(current -> !current.equals(file.getId())))
+                           .map(File::getId);
+        return trash(superseded);
+    }
+
+    /**
+     * Trashes the given presentations, in batches. The presentations of a failed batch are left as they are.
+     *
+     * @return the ids of the trashed presentations
+     */
+    public List<String> trash(final Seq<String> presentationIds) {
+        requireNonNull(presentationIds);
+
+        final List<String> fileIds = presentationIds.toList();
+        final java.util.Map<String, Try<File>> trashed =
+                sendAll(fileIds, metrics.trashings(), true, fileId -> googleDrive.files()
+                                                                           .update(fileId, trashedMetadata())
+                                                                           .setFields(TRASH_FIELDS));
+        return fileIds.filter(fileId -> trashed.containsKey(fileId) && trashed.get(fileId).isSuccess());
+    }
+
+    public DriveMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Sends the calls in batches, then the ones failed on a rate limit, or on a server error when they are
+     * idempotent, again, as long as the throttle lets them. The calls left unanswered by a failed batch fail along
+     * with it.
+     *
+     * @return the result of the call for each key
+     */
+    private java.util.Map<String, Try<File>> sendAll(final List<String> keys,
+                                                     final DriveMetrics.Operation operation,
+                                                     final boolean idempotent,
+                                                     final CheckedFunction1<String, DriveRequest<File>> call) {
+        final java.util.Map<String, Try<File>> results = new java.util.LinkedHashMap<>();
+        final Option<BackOff> backOff = throttle.map(ApiThrottle::newBackOff);
+        List<String> pending = keys;
+        for (int retries = 0; !pending.isEmpty(); retries++) {
+            final java.util.Set<String> retryable = new java.util.HashSet<>();
+            for (final List<String> batchKeys : pending.grouped(batchSize).toList()) {
+                final long start = System.nanoTime();
+                batchKeys.forEach(results::remove);
+                final Try<Void> sent = Try.run(() -> {
+                    final BatchRequest batch = newBatch();
+                    for (final String key : batchKeys) {
+                        final HttpRequest part = call.apply(key).buildHttpRequest();
+                        throttle.forEach(limits -> limits.batchPart(part));
+                        batch.queue(part,
+                                    File.class,
+                                    GoogleJsonErrorContainer.class,
+                                    callback(key, idempotent, results, retryable));
+                    }
+                    batch.execute();
+                });
+                // the calls answered before a failure of the batch did happen
+                final Throwable unanswered =
+                        sent.isFailure() ? sent.getCause() : new IOException("no answer in the batch");
+                batchKeys.forEach(key -> results.putIfAbsent(key, Try.failure(unanswered)));
+                operation.record(batchKeys.size(),
+                                 batchKeys.count(key -> results.get(key).isFailure()),
+                                 System.nanoTime() - start);
+            }
+            pending = pending.filter(retryable::contains);
+            if (!pending.isEmpty() && !sendAgain(backOff, retries, pending.size())) {
+                break;
+            }
+            operation.recordRetries(pending.size());
+        }
+        return results;
+    }
+
+    private boolean sendAgain(final Option<BackOff> backOff, final int retries, final int calls) {
+        // interrupted, the back-off gives up
+        return throttle.isDefined()
+                && Try.of(() -> throttle.get().backOffParts(backOff.get(), retries, calls)).getOrElse(false);
+    }
+
+    private List<File> listDecks() throws IOException {
+        final String query = String.format("appProperties has { key='%s' and value='%s' } and trashed = false%s",
+                                           APP_PROPERTY, APP_PROPERTY_VALUE,
+                                           folderId.map(id -> " and '" + id + "' in parents").getOrElse(""));
+        List<File> files = List.empty();
+        String pageToken = null;
+        do {
+            final long start = System.nanoTime();
+            final FileList page = googleDrive.files()
+                                             .list()
+                                             .setQ(query)
+                                             .setFields(LIST_FIELDS)
+                                             .setPageSize(LIST_PAGE_SIZE)
+                                             .setPageToken(pageToken)
+                                             .execute();
+            metrics.listings().record(1, 0, System.nanoTime() - start);
+            if (page.getFiles() != null) {
+                files = files.appendAll(List.ofAll(page.getFiles()).filter(file -> file.getAppProperties() != null));
+            }
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null);
+        return files;
+    }
+
+    private File copyMetadata(final String copyName, final Option<String> deckKey) {
+        final File copy = new File().setName(copyName);
+        folderId.forEach(id -> copy.setParents(java.util.List.of(id)));
+        deckKey.forEach(key -> copy.setAppProperties(java.util.Map.of(APP_PROPERTY, APP_PROPERTY_VALUE,
+                                                                      DECK_PROPERTY, key)));
+        return copy;
+    }
+
+    private static File trashedMetadata() {
+        return new File().setTrashed(true);
+    }
+
+    private BatchRequest newBatch() {
+        // the global batch endpoint is gone, the batches are sent to the one of the Drive API
+        return googleDrive.batch(googleDrive.getRequestFactory().getInitializer())
+                          .setBatchUrl(new GenericUrl(googleDrive.getRootUrl() + BATCH_PATH));
+    }
+
+    private static String copyKey(final String templatePresentationId, final String deckKey) {
+        return templatePresentationId + '\n' + deckKey;
+    }
+
+    private static JsonBatchCallback<File> callback(final String key,
+                                                    final boolean idempotent,
+                                                    final java.util.Map<String, Try<File>> results,
+                                                    final java.util.Set<String> retryable) {
+        return new JsonBatchCallback<>() {
+            @Override
+            public void onSuccess(final File file, final HttpHeaders responseHeaders) {
+                results.put(key, Try.success(file));
+            }
+
+            @Override
+            public void onFailure(final GoogleJsonError error, final HttpHeaders responseHeaders) {
+                if (error.getCode() != null
+                        && (error.getCode() == TOO_MANY_REQUESTS || idempotent && error.getCode() >= 500)) {
+                    retryable.add(key);
+                }
+                results.put(key, Try.failure(new IOException(String.format("%s failed: %s %s",
+                                                                           key, error.getCode(),
+                                                                           error.getMessage()))));
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The calls made by {@link DriveDecks}, with their time, per operation.
+ */
+public final class DriveMetrics {
+    public static final class Operation {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+
+        private Operation() {
+        }
+
+        void record(final int callsSent, final int callsFailed, final long requestLatencyNanos) {
+            calls.add(callsSent);
+            failures.add(callsFailed);
+            requests.increment();
+            latencyNanos.add(requestLatencyNanos);
+        }
+
+        void recordRetries(final int callsRetried) {
+            retries.add(callsRetried);
+        }
+
+        public long calls() {
+            return calls.sum();
+        }
+
+        public long failures() {
+            return failures.sum();
+        }
+
+        /**
+         * The calls of batches sent again, in a new batch, after a rate limit or a server error.
+         */
+        public long retries() {
+            return retries.sum();
+        }
+
+        /**
+         * The HTTP requests sent, a batch counting for one whatever its calls.
+         */
+        public long requests() {
+            return requests.sum();
+        }
+
+        public Duration latency() {
+            return Duration.ofNanos(latencyNanos.sum());
+        }
+
+        @Override
+        public String toString() {
+            return "{"
+                    + "calls="
+                    + calls()
+                    + ", failures="
+                    + failures()
+                    + ", retries="
+                    + retries()
+                    + ", requests="
+                    + requests()
+                    + ", latency="
+                    + latency()
+                    + '}';
+        }
+    }
+
+    private final Operation copies = new Operation();
+    private final Operation listings = new Operation();
+    private final Operation trashings = new Operation();
+
+    public Operation copies() {
+        return copies;
+    }
+
+    public Operation listings() {
+        return listings;
+    }
+
+    public Operation trashings() {
+        return trashings;
+    }
+
+    @Override
+    public String toString() {
+        return "DriveMetrics{"
+                + "copies="
+                + copies
+                + ", listings="
+                + listings
+                + ", trashings="
+                + trashings
+                + '}';
+    }
+}
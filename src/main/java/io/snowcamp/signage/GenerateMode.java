@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static io.snowcamp.signage.AppSettings.concurrentGenerator;
+import static io.snowcamp.signage.Generation.displayErrors;
+
+import java.nio.file.Paths;
+import java.time.Clock;
+
+import io.snowcamp.signage.gsuite.ApiThrottle;
+import io.snowcamp.signage.metrics.MetricsReport;
+import io.snowcamp.signage.session.DaySessions;
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+
+/**
+ * Generates the presentations once, then reports the run.
+ */
+final class GenerateMode {
+    private static final String CLEANUP_PROPERTY = "signage.cleanup";
+    private static final String REPORT_PROPERTY = "signage.report";
+    private static final String PIPELINE_CAPACITY_PROPERTY = "signage.pipeline.capacity";
+
+    private GenerateMode() {
+    }
+
+    /**
+     * @return the days parsed
+     */
+    static Try<Seq<DaySessions>> generate(final Generation generation,
+                                          final DeckLayout deckLayout,
+                                          final String templatePresentationId,
+                                          final Clock clock) throws InterruptedException {
+        final Try<Seq<DaySessions>> days;
+        final List<GeneratedPresentation> presentations;
+        try (ConcurrentSlidesGenerator generator = concurrentGenerator(generation.presentationGenerator)) {
+            // the decks are copied and generated while the sessions are parsed
+            final SlidesPipeline pipeline =
+                    new SlidesPipeline.Builder()
+                            .sessionsParser(generation.sessionsParser)
+                            .deckLayout(deckLayout)
+                            .generator(generator)
+                            // every deck is copied from the template unless a manifest tracks them
+                            .driveDecks(generation.manifestStore.isEmpty() ? generation.driveDecks : null)
+                            .slidesGenerator(generation.slidesGenerator)
+                            .queueCapacity(Integer.getInteger(PIPELINE_CAPACITY_PROPERTY,
+                                                              SlidesPipeline.DEFAULT_QUEUE_CAPACITY))
+                            .build();
+            generation.metrics.include("pipeline", pipeline.metrics());
+            final SlidesPipeline.Result result = pipeline.run(generation.sessionsSource, templatePresentationId);
+            displayErrors("pipeline", pipeline.metrics());
+            days = result.days()
+                         .onFailure(err -> System.err.printf("failed to parse the sessions [source=%s]: %s\n",
+                                                             generation.sessionsSource, err));
+            presentations = result.presentations();
+            presentations.forEach(Generation::displayPresentationUrl);
+        }
+        generation.saveManifest();
+
+        if (Boolean.getBoolean(CLEANUP_PROPERTY)) {
+            trashSuperseded(generation.driveDecks, presentations);
+        }
+
+        generation.throttles.forEach(GenerateMode::displayApiMetrics);
+        System.out.printf("Slides batches: %s\n", generation.batchUpdater.metrics());
+        System.out.printf("Drive decks: %s\n", generation.driveDecks.metrics());
+        generation.sheetsCache.forEach(cache -> System.out.printf("Sheets cache: %s\n", cache.metrics()));
+        final MetricsReport report = generation.report;
+        Option.of(System.getProperty(REPORT_PROPERTY))
+              .map(Paths::get)
+              .forEach(path -> report.write(path, clock.instant())
+                                     .onSuccess(written -> System.out.printf("run report written to %s\n", written))
+                                     .onFailure(err -> System.err.printf("failed to write the run report: %s\n",
+                                                                         err)));
+        System.out.println("That's it!");
+        return days;
+    }
+
+    /**
+     * Trashes the presentations of the previous runs for the decks successfully generated by this one.
+     */
+    private static void trashSuperseded(final DriveDecks driveDecks, final List<GeneratedPresentation> presentations) {
+        final Map<String, String> presentationIds =
+                presentations.filter(presentation -> presentation.presentationId().isSuccess())
+                             .toMap(presentation -> presentation.deck().key(),
+                                    presentation -> presentation.presentationId().get());
+        Try.of(() -> driveDecks.trashSuperseded(presentationIds))
+           .onSuccess(trashed -> System.out.printf("%d superseded presentations trashed\n", trashed.size()))
+           .onFailure(err -> System.err.printf("failed to trash the superseded presentations: %s\n", err));
+    }
+
+    private static void displayApiMetrics(final ApiThrottle throttle) {
+        System.out.printf("%s API: %s\n", throttle.name(), throttle.metrics());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+
+import io.vavr.control.Try;
+
+public final class GeneratedPresentation {
+    private final Deck deck;
+    private final Try<String> presentationId;
+    private final Duration latency;
+
+    public GeneratedPresentation(final Deck deck,
+                                 final Try<String> presentationId,
+                                 final Duration latency) {
+        this.deck = requireNonNull(deck);
+        this.presentationId = requireNonNull(presentationId);
+        this.latency = requireNonNull(latency);
+    }
+
+    public Deck deck() {
+        return deck;
+    }
+
+    public Try<String> presentationId() {
+        return presentationId;
+    }
+
+    public Duration latency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return "GeneratedPresentation{"
+                + "deck="
+                + deck.key()
+                + ", presentationId="
+                + presentationId
+                + ", latency="
+                + latency
+                + '}';
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+
+import io.vavr.collection.List;
+
+final class GeneratedSlides {
+    private final String presentationId;
+    private final List<String> slideIds;
+
+    GeneratedSlides(final String presentationId, final List<String> slideIds) {
+        this.presentationId = requireNonNull(presentationId);
+        this.slideIds = requireNonNull(slideIds);
+    }
+
+    String presentationId() {
+        return presentationId;
+    }
+
+    /**
+     * The ids of the generated slides, in the same order as the sessions they were generated from.
+     */
+    List<String> slideIds() {
+        return slideIds;
+    }
+}
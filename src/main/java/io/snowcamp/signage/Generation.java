@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static io.snowcamp.signage.AppSettings.MANIFEST_PROPERTY;
+import static io.snowcamp.signage.AppSettings.batchMaxBytes;
+import static io.snowcamp.signage.AppSettings.batchMaxRequests;
+import static io.snowcamp.signage.AppSettings.googleClients;
+import static io.snowcamp.signage.AppSettings.seconds;
+import static io.snowcamp.signage.gsuite.GSuiteFactories.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import com.google.api.services.drive.Drive;
+import com.google.api.services.slides.v1.Slides;
+
+import io.snowcamp.signage.gsuite.ApiMetrics;
+import io.snowcamp.signage.gsuite.ApiThrottle;
+import io.snowcamp.signage.gsuite.CacheMetrics;
+import io.snowcamp.signage.gsuite.CachedSheetValuesSource;
+import io.snowcamp.signage.gsuite.ChangeSource;
+import io.snowcamp.signage.gsuite.GoogleClients;
+import io.snowcamp.signage.gsuite.SheetValuesSource;
+import io.snowcamp.signage.manifest.Manifest;
+import io.snowcamp.signage.manifest.ManifestStore;
+import io.snowcamp.signage.manifest.RunJournal;
+import io.snowcamp.signage.metrics.MetricsRegistry;
+import io.snowcamp.signage.metrics.MetricsReport;
+import io.snowcamp.signage.metrics.MetricsServer;
+import io.snowcamp.signage.sched.SchedCsvParser;
+import io.snowcamp.signage.sched.SchedParser;
+import io.snowcamp.signage.session.SessionRowParser;
+import io.snowcamp.signage.session.SessionsParser;
+import io.vavr.Tuple;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+
+/**
+ * The clients, the generators and the metrics of the modes calling Google: watch, generate and live. One transport and
+ * one credential serve the three APIs.
+ */
+final class Generation implements AutoCloseable {
+    static final String GSLIDES_URL = "https://docs.google.com/presentation/d/";
+    private static final String JOURNAL_PROPERTY = "signage.journal";
+    private static final String SHEETS_CACHE_PROPERTY = "signage.sheetsCache";
+    private static final String SHEETS_CACHE_TTL_PROPERTY = "signage.sheetsCache.ttl";
+    private static final String SHEETS_CACHE_REFRESH_PROPERTY = "signage.sheetsCache.refresh";
+    private static final String FOLDER_PROPERTY = "signage.folder";
+    private static final String METRICS_PORT_PROPERTY = "signage.metrics.port";
+
+    final List<ApiThrottle> throttles;
+    final Option<CachedSheetValuesSource> sheetsCache;
+    final SessionsParser sessionsParser;
+    final String sessionsSource;
+    final BatchUpdater batchUpdater;
+    final DriveDecks driveDecks;
+    final SlidesGenerator slidesGenerator;
+    final Option<ManifestStore> manifestStore;
+    final Manifest manifest;
+    final PresentationGenerator presentationGenerator;
+    final MetricsRegistry metrics = new MetricsRegistry();
+    final MetricsReport report;
+    private final GoogleClients googleClients;
+    private final Drive googleDrive;
+    private final boolean fromCsv;
+    private final Option<RunJournal> journal;
+    private final Option<MetricsServer> metricsServer;
+
+    Generation(final Option<String> schedCsv,
+               final String spreadsheetId,
+               final Instant start,
+               final Clock clock) throws IOException, GeneralSecurityException {
+        final ApiThrottle sheetsThrottle = sheetsThrottle();
+        final ApiThrottle slidesThrottle = slidesThrottle();
+        final ApiThrottle driveThrottle = driveThrottle();
+        this.throttles = List.of(sheetsThrottle, slidesThrottle, driveThrottle);
+        this.googleClients = googleClients();
+        this.googleDrive = googleClients.drive(driveThrottle);
+        this.fromCsv = schedCsv.isDefined();
+        final SheetValuesSource sheetValues = SheetValuesSource.of(googleClients.sheets(sheetsThrottle));
+        this.sheetsCache =
+                Option.of(System.getProperty(SHEETS_CACHE_PROPERTY))
+                      .map(directory -> new CachedSheetValuesSource.Builder()
+                                                .source(sheetValues)
+                                                .googleDrive(googleDrive)
+                                                .directory(Paths.get(directory))
+                                                .ttl(seconds(SHEETS_CACHE_TTL_PROPERTY, Duration.ZERO))
+                                                .forceRefresh(Boolean.getBoolean(SHEETS_CACHE_REFRESH_PROPERTY))
+                                                .build());
+        final SessionRowParser scheds = fromCsv
+                ? new SchedCsvParser()
+                : new SchedParser(Option.<SheetValuesSource>narrow(sheetsCache).getOrElse(sheetValues));
+        this.sessionsParser = new SessionsParser(scheds);
+        this.sessionsSource = schedCsv.getOrElse(spreadsheetId);
+        final Slides googleSlides = googleClients.slides(slidesThrottle);
+        this.batchUpdater = new BatchUpdater.Builder()
+                                    .googleSlides(googleSlides)
+                                    .maxRequests(batchMaxRequests())
+                                    .maxBytes(batchMaxBytes())
+                                    .build();
+        this.driveDecks = new DriveDecks.Builder()
+                                  .googleDrive(googleDrive)
+                                  .folderId(System.getProperty(FOLDER_PROPERTY))
+                                  .throttle(driveThrottle)
+                                  .build();
+        final String journalPath = System.getProperty(JOURNAL_PROPERTY);
+        this.journal = journalPath == null ? Option.none() : Option.some(RunJournal.open(Paths.get(journalPath)));
+        this.slidesGenerator =
+                journal.map(steps -> new SlidesGenerator(googleSlides, driveDecks, batchUpdater, steps))
+                       .getOrElse(() -> new SlidesGenerator(googleSlides, driveDecks, batchUpdater));
+        this.manifestStore = Option.of(System.getProperty(MANIFEST_PROPERTY))
+                                   .map(Paths::get)
+                                   .map(ManifestStore::new);
+        this.manifest = manifestStore.map(Generation::loadManifest).getOrElse(Manifest::new);
+        this.presentationGenerator =
+                manifestStore.isDefined() ? new IncrementalSlidesGenerator(slidesGenerator, batchUpdater, manifest)
+                                          : slidesGenerator;
+
+        metrics.include("clients", googleClients.metrics());
+        metrics.include("sched", scheds.metrics());
+        metrics.include("sessions", sessionsParser.metrics());
+        metrics.include("slides", slidesGenerator.metrics());
+        journal.forEach(steps -> metrics.include("journal", steps.metrics()));
+        throttles.forEach(throttle -> registerApiMetrics(metrics, throttle));
+        registerBatchMetrics(metrics, batchUpdater.metrics());
+        registerDriveMetrics(metrics, driveDecks.metrics());
+        sheetsCache.forEach(cache -> registerCacheMetrics(metrics, cache.metrics()));
+        this.report = new MetricsReport(start, metrics);
+        this.metricsServer = startMetricsServer(report, clock);
+    }
+
+    ChangeSource changeSource() {
+        return fromCsv ? ChangeSource.ofFiles() : ChangeSource.of(googleDrive);
+    }
+
+    void saveManifest() {
+        manifestStore.forEach(store -> store.save(manifest)
+                                            .onFailure(err -> System.err.printf("failed to save the manifest: %s\n",
+                                                                                err)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the metrics are served as long as the application runs
+        metricsServer.forEach(MetricsServer::close);
+        googleClients.close();
+        for (final RunJournal steps : journal) {
+            steps.close();
+        }
+    }
+
+    static void displayPresentationUrl(final GeneratedPresentation presentation) {
+        final long latency = presentation.latency().toMillis();
+        presentation.presentationId()
+                    .map(id -> GSLIDES_URL + id)
+                    .onSuccess(url -> System.out.printf("presentation successfully generated at %s [deck=%s, %d ms]\n",
+                                                        url, presentation.deck().key(), latency))
+                    .onFailure(err -> System.err.printf("failed to generate the presentation [deck=%s, %d ms]: %s\n",
+                                                        presentation.deck().key(), latency, err));
+    }
+
+    static void displayErrors(final String component, final MetricsRegistry metrics) {
+        final java.util.Map<String, Long> errors = metrics.errors();
+        if (!errors.isEmpty()) {
+            System.err.printf("%s errors: %s\n", component, errors);
+        }
+    }
+
+    /**
+     * The manifest of the previous runs; an unreadable one is left aside, and every deck is generated again.
+     */
+    private static Manifest loadManifest(final ManifestStore store) {
+        return store.load()
+                    .onFailure(err -> System.err.printf("failed to load the manifest, every deck is generated: %s\n",
+                                                        err))
+                    .getOrElse(Manifest::new);
+    }
+
+    private static Option<MetricsServer> startMetricsServer(final MetricsReport report, final Clock clock)
+            throws IOException {
+        final Option<Integer> port = Option.of(Integer.getInteger(METRICS_PORT_PROPERTY));
+        if (port.isEmpty()) {
+            return Option.none();
+        }
+        final MetricsServer server = MetricsServer.start(port.get(), report, clock);
+        System.out.printf("metrics served at http://localhost:%d/metrics\n", server.port());
+        return Option.some(server);
+    }
+
+    private static void registerApiMetrics(final MetricsRegistry metrics, final ApiThrottle throttle) {
+        final String prefix = "api." + throttle.name() + '.';
+        final ApiMetrics api = throttle.metrics();
+        metrics.gauge(prefix + "attempts", api::attempts);
+        metrics.gauge(prefix + "retries", api::retries);
+        metrics.gauge(prefix + "failures", api::failures);
+        metrics.gauge(prefix + "rejections", api::rejections);
+        metrics.gauge(prefix + "throttleWaitMillis", () -> api.throttleWait().toMillis());
+    }
+
+    private static void registerBatchMetrics(final MetricsRegistry metrics, final BatchMetrics batches) {
+        metrics.gauge("batches.count", batches::batches);
+        metrics.gauge("batches.requests", batches::requests);
+        metrics.gauge("batches.bytes", batches::bytes);
+        metrics.histogram("batches.requestsPerBatch", batches.requestsPerBatch());
+        metrics.histogram("batches.bytesPerBatch", batches.bytesPerBatch());
+        metrics.histogram("batches.batchUpdate.micros", batches.latencyMicros());
+    }
+
+    private static void registerDriveMetrics(final MetricsRegistry metrics, final DriveMetrics drive) {
+        List.of(Tuple.of("copies", drive.copies()),
+                Tuple.of("listings", drive.listings()),
+                Tuple.of("trashings", drive.trashings()))
+            .forEach(operation -> {
+                final String prefix = "drive." + operation._1 + '.';
+                metrics.gauge(prefix + "calls", operation._2::calls);
+                metrics.gauge(prefix + "failures", operation._2::failures);
+                metrics.gauge(prefix + "retries", operation._2::retries);
+                metrics.gauge(prefix + "requests", operation._2::requests);
+                metrics.gauge(prefix + "millis", () -> operation._2.latency().toMillis());
+            });
+    }
+
+    private static void registerCacheMetrics(final MetricsRegistry metrics, final CacheMetrics cache) {
+        metrics.gauge("sheetsCache.hits", cache::hits);
+        metrics.gauge("sheetsCache.misses", cache::misses);
+        metrics.gauge("sheetsCache.validations", cache::validations);
+    }
+}
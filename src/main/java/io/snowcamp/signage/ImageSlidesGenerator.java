@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import com.google.common.hash.Hashing;
+
+import io.snowcamp.signage.render.SlideRenderer;
+import io.snowcamp.signage.session.Session;
+import io.vavr.collection.List;
+import io.vavr.control.Try;
+
+/**
+ * Renders the slides of a deck as PNG images in a local directory, without Google Slides.
+ * <p>
+ * The template is the path of a {@link io.snowcamp.signage.render.SlideLayout} JSON file, prepared once and reused
+ * for every deck. The slides of a deck are rendered in parallel on a fork-join pool, into
+ * {@code <directory>/<deck key>/<position>.png}, numbered in the order they are displayed. The generated id is the
+ * path of the deck directory. A key that is not a plain file name, or a long one, is followed by its hash in the
+ * name of the directory, its other characters replaced by {@code _}.
+ */
+public final class ImageSlidesGenerator implements PresentationGenerator {
+    private static final String IMAGE_FORMAT = "png";
+    private static final Pattern UNSAFE_CHARACTERS = Pattern.compile("[^A-Za-z0-9_-]");
+    private static final int MAX_NAME_LENGTH = 64;
+
+    public static final class Builder {
+        private Path directory;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        public ImageSlidesGenerator build() {
+            return new ImageSlidesGenerator(directory, pool);
+        }
+
+        public Builder directory(final Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public Builder pool(final ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+    }
+
+    private final Path directory;
+    private final ForkJoinPool pool;
+    private final ConcurrentMap<String, SlideRenderer> renderers = new ConcurrentHashMap<>();
+
+    private ImageSlidesGenerator(final Path directory, final ForkJoinPool pool) {
+        this.directory = requireNonNull(directory);
+        this.pool = requireNonNull(pool);
+    }
+
+    @Override
+    public Try<String> generateSlides(final String templateLayoutPath, final Deck deck) {
+        requireNonNull(templateLayoutPath);
+        requireNonNull(deck);
+
+        return Try.of(() -> generate(renderer(templateLayoutPath), deck).toString());
+    }
+
+    private Path generate(final SlideRenderer renderer, final Deck deck) throws IOException {
+        final Path deckDirectory = Files.createDirectories(directory.resolve(directoryName(deck.key())));
+        // the deck may have had more slides in a previous run
+        try (DirectoryStream<Path> previous = Files.newDirectoryStream(deckDirectory, "*." + IMAGE_FORMAT)) {
+            for (final Path image : previous) {
+                Files.delete(image);
+            }
+        }
+        // the deck holds the latest session first
+        final List<Session> displayed = deck.sessions().reverse();
+        final List<ForkJoinTask<?>> renderings =
+                displayed.zipWithIndex()
+                         .map(slide -> pool.submit(() -> write(renderer.render(SlideVariables.of(slide._1)),
+                                                               deckDirectory.resolve(fileName(slide._2)))));
+        try {
+            renderings.forEach(ForkJoinTask::join);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return deckDirectory;
+    }
+
+    static String directoryName(final String deckKey) {
+        final String name = UNSAFE_CHARACTERS.matcher(deckKey).replaceAll("_");
+        if (name.equals(deckKey) && !name.isEmpty() && name.length() <= MAX_NAME_LENGTH) {
+            return name;
+        }
+        // the hash keeps apart the keys replaced by the same name
+        final String hash = Hashing.murmur3_128().hashString(deckKey, UTF_8).toString();
+        return name.substring(0, Math.min(name.length(), MAX_NAME_LENGTH - hash.length() - 1)) + "-" + hash;
+    }
+
+    static String fileName(final int position) {
+        return String.format("%04d.%s", position, IMAGE_FORMAT);
+    }
+
+    private static void write(final BufferedImage image, final Path path) {
+        try {
+            if (!ImageIO.write(image, IMAGE_FORMAT, path.toFile())) {
+                throw new IOException("no image writer for " + IMAGE_FORMAT);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private SlideRenderer renderer(final String templateLayoutPath) throws IOException {
+        final SlideRenderer renderer = renderers.get(templateLayoutPath);
+        if (renderer != null) {
+            return renderer;
+        }
+        final SlideRenderer loaded = SlideRenderer.load(Paths.get(templateLayoutPath));
+        final SlideRenderer previous = renderers.putIfAbsent(templateLayoutPath, loaded);
+        return previous == null ? loaded : previous;
+    }
+}
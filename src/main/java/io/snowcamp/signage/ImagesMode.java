@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static io.snowcamp.signage.AppSettings.IMAGES_LAYOUT_PROPERTY;
+import static io.snowcamp.signage.AppSettings.concurrentGenerator;
+import static io.snowcamp.signage.AppSettings.googleClients;
+import static io.snowcamp.signage.gsuite.GSuiteFactories.*;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+
+import javax.imageio.ImageIO;
+
+import io.snowcamp.signage.gsuite.GoogleClients;
+import io.snowcamp.signage.gsuite.SheetValuesSource;
+import io.snowcamp.signage.sched.SchedCsvParser;
+import io.snowcamp.signage.sched.SchedParser;
+import io.snowcamp.signage.session.SessionRowParser;
+import io.snowcamp.signage.session.SessionsParser;
+import io.vavr.control.Option;
+
+/**
+ * Renders the decks as images, without calling Google Slides nor Google Drive: with a csv file, offline.
+ */
+final class ImagesMode {
+    private ImagesMode() {
+    }
+
+    static void render(final Option<String> schedCsv,
+                       final String spreadsheetId,
+                       final DeckLayout deckLayout,
+                       final Path directory) throws IOException, GeneralSecurityException {
+        if (schedCsv.isDefined()) {
+            render(new SchedCsvParser(), schedCsv.get(), deckLayout, directory);
+            return;
+        }
+        try (GoogleClients googleClients = googleClients()) {
+            render(new SchedParser(SheetValuesSource.of(googleClients.sheets(sheetsThrottle()))),
+                   spreadsheetId,
+                   deckLayout,
+                   directory);
+        }
+    }
+
+    private static void render(final SessionRowParser scheds,
+                               final String sessionsSource,
+                               final DeckLayout deckLayout,
+                               final Path directory) {
+        final String layout = requireNonNull(System.getProperty(IMAGES_LAYOUT_PROPERTY),
+                                             IMAGES_LAYOUT_PROPERTY + " is required to render images");
+        // the images are written straight to their file rather than through a temporary cache file
+        ImageIO.setUseCache(false);
+        final ImageSlidesGenerator imagesGenerator = new ImageSlidesGenerator.Builder().directory(directory).build();
+        try (ConcurrentSlidesGenerator generator = concurrentGenerator(imagesGenerator)) {
+            new SessionsParser(scheds)
+                    .parse(sessionsSource)
+                    .onFailure(err -> System.err.printf("failed to parse the sessions [source=%s]: %s\n",
+                                                        sessionsSource, err))
+                    .map(deckLayout::decks)
+                    .map(decks -> generator.generateSlides(layout, decks))
+                    .forEach(decks -> decks.forEach(ImagesMode::displayImagesDirectory));
+        }
+    }
+
+    private static void displayImagesDirectory(final GeneratedPresentation images) {
+        final long latency = images.latency().toMillis();
+        images.presentationId()
+              .onSuccess(path -> System.out.printf("images successfully rendered in %s [deck=%s, %d ms]\n",
+                                                   path, images.deck().key(), latency))
+              .onFailure(err -> System.err.printf("failed to render the images [deck=%s, %d ms]: %s\n",
+                                                  images.deck().key(), latency, err));
+    }
+}
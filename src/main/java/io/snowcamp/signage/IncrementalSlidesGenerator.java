@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static io.snowcamp.signage.SlidesRequests.SLIDE_ID_PREFIX;
+import static io.snowcamp.signage.SlidesRequests.deleteSlideRequest;
+import static io.snowcamp.signage.SlidesRequests.duplicateSlideRequest;
+import static io.snowcamp.signage.SlidesRequests.moveSlidesRequest;
+import static io.snowcamp.signage.SlidesRequests.replaceTextRequest;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
+import com.google.api.services.slides.v1.model.Request;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import io.snowcamp.signage.manifest.DeckManifest;
+import io.snowcamp.signage.manifest.Manifest;
+import io.snowcamp.signage.manifest.SlideManifest;
+import io.snowcamp.signage.session.Session;
+import io.vavr.Function1;
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.collection.HashMap;
+import io.vavr.collection.HashSet;
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.collection.Set;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+
+/**
+ * Updates the presentations recorded in a {@link Manifest} instead of generating them again.
+ * <p>
+ * Only the slides of the added, removed or modified sessions are touched, in a single batch. A modified slide
+ * gets its previous texts replaced back by the template variables, then by the new texts. An added slide is a
+ * duplicate of the previous slide, filled the same way. A presentation is generated from scratch when it is not
+ * in the manifest, when it no longer exists or when its texts cannot be told apart to be replaced, from each other or
+ * from the texts of the template. The previous presentation is then trashed.
+ * <p>
+ * When the update fails once some of its batches are applied, none of the slides of the presentation is known any
+ * more: it is generated from scratch by the next run.
+ */
+public final class IncrementalSlidesGenerator implements PresentationGenerator {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private final SlidesGenerator slidesGenerator;
+    private final BatchUpdater batchUpdater;
+    private final Manifest manifest;
+
+    public IncrementalSlidesGenerator(final SlidesGenerator slidesGenerator,
+                                      final BatchUpdater batchUpdater,
+                                      final Manifest manifest) {
+        this.slidesGenerator = requireNonNull(slidesGenerator);
+        this.batchUpdater = requireNonNull(batchUpdater);
+        this.manifest = requireNonNull(manifest);
+    }
+
+    @Override
+    public Try<String> generateSlides(final String templatePresentationId, final Deck deck) {
+        requireNonNull(templatePresentationId);
+        requireNonNull(deck);
+
+        return Try.of(() -> slidesGenerator.template(templatePresentationId))
+                  .flatMap(template -> generateSlides(templatePresentationId, template, deck));
+    }
+
+    private Try<String> generateSlides(final String templatePresentationId,
+                                       final SlideTemplate template,
+                                       final Deck deck) {
+        final String deckKey = deck.key();
+        final List<SlideContent> contents = slideContents(template, deck);
+        final Option<DeckManifest> previous = manifest.deck(deckKey);
+        return previous.flatMap(deckManifest -> plan(deckKey, deckManifest, template, contents))
+                       .map(plan -> update(deckKey, plan).recoverWith(
+                               err -> isNotFound(err)
+                                      ? rebuild(templatePresentationId, deckKey, deck, contents, Option.none())
+                                      : Try.failure(err)))
+                       .getOrElse(() -> rebuild(templatePresentationId, deckKey, deck, contents,
+                                                previous.map(DeckManifest::presentationId)));
+    }
+
+    private Try<String> rebuild(final String templatePresentationId,
+                                final String deckKey,
+                                final Deck deck,
+                                final List<SlideContent> contents,
+                                final Option<String> previousPresentationId) {
+        return slidesGenerator.generateDeck(templatePresentationId, deck)
+                              .peek(generated -> manifest.putDeck(deckKey, deckManifest(generated, contents)))
+                              .peek(generated -> slidesGenerator.trash(previousPresentationId.toList().filter(
+                                      id -> !id.equals(generated.presentationId()))))
+                              .map(GeneratedSlides::presentationId);
+    }
+
+    private static DeckManifest deckManifest(final GeneratedSlides generated, final List<SlideContent> contents) {
+        // the slides are displayed in the reverse order of the sessions
+        final List<SlideManifest> slides = generated.slideIds()
+                                                    .reverse()
+                                                    .zipWith(contents, (slideId, content) -> content.toSlide(slideId));
+        return new DeckManifest(generated.presentationId(), slides);
+    }
+
+    private Try<String> update(final String deckKey, final Plan plan) {
+        if (plan.requests.isEmpty()) {
+            return Try.success(plan.deck.presentationId());
+        }
+        return Try.of(() -> batchUpdater.batchUpdate(plan.deck.presentationId(), plan.requests))
+                  .onFailure(err -> {
+                      if (isPartiallyApplied(err)) {
+                          // the presentation matches neither the manifest nor the plan: rebuilt next time, then trashed
+                          manifest.putDeck(deckKey, new DeckManifest(plan.deck.presentationId(), List.empty()));
+                      }
+                  })
+                  .peek(replies -> manifest.putDeck(deckKey, plan.deck))
+                  .map(replies -> plan.deck.presentationId());
+    }
+
+    private static Option<Plan> plan(final String deckKey,
+                                     final DeckManifest deck,
+                                     final SlideTemplate template,
+                                     final List<SlideContent> contents) {
+        final Map<String, SlideManifest> previousSlides = deck.slides().toMap(SlideManifest::sessionKey,
+                                                                              Function1.identity());
+        final Set<String> sessionKeys = HashSet.ofAll(contents.map(content -> content.sessionKey));
+        final List<SlideManifest> retainedSlides = deck.slides()
+                                                       .filter(slide -> sessionKeys.contains(slide.sessionKey()));
+        if (retainedSlides.isEmpty()) {
+            return Option.none();
+        }
+
+        List<Request> duplicates = List.empty();
+        List<Request> replacements = List.empty();
+        List<SlideManifest> slides = List.empty();
+        List<SlideContent> leadingContents = List.empty();
+        List<SlideContent> addedContents = List.empty();
+        SlideManifest previousSlide = null;
+        for (final SlideContent content : contents) {
+            final Option<SlideManifest> slide = previousSlides.get(content.sessionKey);
+            if (slide.isEmpty()) {
+                if (previousSlide == null) {
+                    leadingContents = leadingContents.append(content);
+                } else {
+                    addedContents = addedContents.append(content);
+                }
+                slides = slides.append(content.toSlide(slideId(deckKey, content)));
+                continue;
+            }
+            if (!addedContents.isEmpty()) {
+                if (!isReplaceable(template, previousSlide.variables())) {
+                    return Option.none();
+                }
+                duplicates = duplicates.appendAll(duplicateRequests(deckKey, previousSlide, addedContents));
+                replacements = replacements.appendAll(fillRequests(deckKey, previousSlide, addedContents));
+                addedContents = List.empty();
+            }
+            previousSlide = slide.get();
+            if (!previousSlide.hash().equals(content.hash)) {
+                if (!isReplaceable(template, previousSlide.variables())) {
+                    return Option.none();
+                }
+                replacements = replacements.appendAll(replaceRequests(previousSlide.slideId(),
+                                                                      previousSlide.variables(),
+                                                                      content.variables));
+            }
+            slides = slides.append(content.toSlide(previousSlide.slideId()));
+        }
+        if (!addedContents.isEmpty()) {
+            if (!isReplaceable(template, previousSlide.variables())) {
+                return Option.none();
+            }
+            duplicates = duplicates.appendAll(duplicateRequests(deckKey, previousSlide, addedContents));
+            replacements = replacements.appendAll(fillRequests(deckKey, previousSlide, addedContents));
+        }
+
+        final List<String> previousOrder = retainedSlides.map(SlideManifest::sessionKey);
+        final List<String> order = contents.map(content -> content.sessionKey).filter(previousSlides::containsKey);
+        final List<Request> moves;
+        if (!previousOrder.equals(order)) {
+            // sessions were rescheduled, every slide is moved to its new position
+            moves = slides.zipWithIndex().map(slide -> moveSlidesRequest(List.of(slide._1.slideId()), slide._2));
+        } else if (!leadingContents.isEmpty()) {
+            // slides can only be duplicated after their source, the ones of the first sessions are moved upfront
+            moves = List.of(moveSlidesRequest(leadingContents.map(content -> slideId(deckKey, content)), 0));
+        } else {
+            moves = List.empty();
+        }
+        if (!leadingContents.isEmpty()) {
+            final SlideManifest firstSlide = retainedSlides.head();
+            if (!isReplaceable(template, firstSlide.variables())) {
+                return Option.none();
+            }
+            duplicates = duplicates.appendAll(duplicateRequests(deckKey, firstSlide, leadingContents));
+            replacements = replacements.appendAll(fillRequests(deckKey, firstSlide, leadingContents));
+        }
+
+        final List<Request> deletions = deck.slides()
+                                            .filter(slide -> !sessionKeys.contains(slide.sessionKey()))
+                                            .map(slide -> deleteSlideRequest(slide.slideId()));
+
+        // the duplicates must be done while their source still holds its previous texts
+        final List<Request> requests = duplicates.appendAll(moves).appendAll(replacements).appendAll(deletions);
+        return Option.some(new Plan(new DeckManifest(deck.presentationId(), slides), requests));
+    }
+
+    private static List<Request> duplicateRequests(final String deckKey,
+                                                   final SlideManifest source,
+                                                   final List<SlideContent> contents) {
+        // each duplicate is inserted right after its source, hence the reverse order
+        return contents.reverse().map(content -> duplicateSlideRequest(source.slideId(), slideId(deckKey, content)));
+    }
+
+    private static List<Request> fillRequests(final String deckKey,
+                                              final SlideManifest source,
+                                              final List<SlideContent> contents) {
+        return contents.flatMap(content -> replaceRequests(slideId(deckKey, content),
+                                                           source.variables(),
+                                                           content.variables));
+    }
+
+    private static List<Request> replaceRequests(final String slideId,
+                                                 final Map<String, String> previousVariables,
+                                                 final Map<String, String> variables) {
+        final List<String> changedVariables =
+                variables.keySet()
+                         .toList()
+                         .filter(variable -> !variables.get(variable).equals(previousVariables.get(variable)));
+        return changedVariables.map(variable -> replaceTextRequest(slideId,
+                                                                   previousVariables.get(variable).get(),
+                                                                   variable))
+                               .appendAll(changedVariables.map(variable -> replaceTextRequest(
+                                       slideId, variable, variables.get(variable).get())));
+    }
+
+    /**
+     * A text can be replaced back by its template variable only if it cannot be mistaken for another one, nor for a
+     * text of the template, and only if the slide holds every variable of the template.
+     */
+    private static boolean isReplaceable(final SlideTemplate template, final Map<String, String> variables) {
+        final List<String> texts = variables.values().toList();
+        return template.variables().forAll(variables::containsKey)
+                && texts.forAll(text -> !text.isEmpty()
+                        && texts.count(other -> other.contains(text)) == 1
+                        && !template.isStaticText(text));
+    }
+
+    private static boolean isNotFound(final Throwable err) {
+        final Throwable cause = err instanceof BatchUpdateException ? err.getCause() : err;
+        return cause instanceof HttpResponseException
+                && ((HttpResponseException) cause).getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND;
+    }
+
+    private static boolean isPartiallyApplied(final Throwable err) {
+        return err instanceof BatchUpdateException && ((BatchUpdateException) err).appliedBatches() > 0;
+    }
+
+    private static String slideId(final String deckKey, final SlideContent content) {
+        return SLIDE_ID_PREFIX + HASH_FUNCTION.hashString(deckKey + '/' + content.sessionKey, UTF_8);
+    }
+
+    private static List<SlideContent> slideContents(final SlideTemplate template, final Deck deck) {
+        // the sessions held twice are told apart by their occurrence
+        final Tuple2<Map<String, Integer>, List<SlideContent>> contents = deck.sessions().reverse().foldLeft(
+                Tuple.of(HashMap.empty(), List.empty()),
+                (previous, session) -> {
+                    final String sessionKey = sessionKey(session);
+                    final int occurrence = previous._1.get(sessionKey).getOrElse(0) + 1;
+                    return Tuple.of(previous._1.put(sessionKey, occurrence),
+                                    previous._2.append(new SlideContent(
+                                            occurrence == 1 ? sessionKey : sessionKey + '#' + occurrence,
+                                            template.texts(session))));
+                });
+        return contents._2;
+    }
+
+    private static String sessionKey(final Session session) {
+        return session.title() + " / " + session.speakers().mkString(", ");
+    }
+
+    private static final class SlideContent {
+        private final String sessionKey;
+        private final Map<String, String> variables;
+        private final String hash;
+
+        private SlideContent(final String sessionKey, final Map<String, String> variables) {
+            this.sessionKey = sessionKey;
+            this.variables = variables;
+            this.hash = HASH_FUNCTION.hashString(variables.mkString("\u0000"), UTF_8).toString();
+        }
+
+        private SlideManifest toSlide(final String slideId) {
+            return new SlideManifest(sessionKey, slideId, hash, variables);
+        }
+    }
+
+    private static final class Plan {
+        private final DeckManifest deck;
+        private final List<Request> requests;
+
+        private Plan(final DeckManifest deck, final List<Request> requests) {
+            this.deck = deck;
+            this.requests = requests;
+        }
+    }
+}
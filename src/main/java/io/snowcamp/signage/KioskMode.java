@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static io.snowcamp.signage.AppSettings.IMAGES_LAYOUT_PROPERTY;
+import static io.snowcamp.signage.AppSettings.googleClients;
+import static io.snowcamp.signage.AppSettings.scheduleWatcher;
+import static io.snowcamp.signage.AppSettings.seconds;
+import static io.snowcamp.signage.gsuite.GSuiteFactories.*;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+
+import javax.imageio.ImageIO;
+
+import io.snowcamp.signage.gsuite.ChangeSource;
+import io.snowcamp.signage.gsuite.GoogleClients;
+import io.snowcamp.signage.gsuite.SheetValuesSource;
+import io.snowcamp.signage.render.SlideRenderer;
+import io.snowcamp.signage.sched.SchedCsvParser;
+import io.snowcamp.signage.sched.SchedParser;
+import io.snowcamp.signage.session.SessionRowParser;
+import io.snowcamp.signage.session.SessionsParser;
+import io.vavr.control.Option;
+
+/**
+ * Serves the signage of each room on the local network as long as the application runs, and parses the sessions
+ * again whenever the schedule changes. Google is only called to read the schedule.
+ */
+final class KioskMode {
+    private static final String KIOSK_CACHE_PROPERTY = "signage.kiosk.cache";
+    private static final String KIOSK_TICK_PROPERTY = "signage.kiosk.tick";
+
+    private KioskMode() {
+    }
+
+    static void serve(final Option<String> schedCsv, final String spreadsheetId, final int port)
+            throws IOException, GeneralSecurityException {
+        final Option<GoogleClients> kioskClients = schedCsv.isDefined() ? Option.none() : Option.some(googleClients());
+        final SessionRowParser scheds =
+                kioskClients.<SessionRowParser>map(
+                        google -> new SchedParser(SheetValuesSource.of(google.sheets(sheetsThrottle()))))
+                            .getOrElse(SchedCsvParser::new);
+        final ChangeSource changeSource = kioskClients.map(google -> ChangeSource.of(google.drive(driveThrottle())))
+                                                      .getOrElse(ChangeSource::ofFiles);
+        serve(new SessionsParser(scheds), schedCsv.getOrElse(spreadsheetId), changeSource, port);
+    }
+
+    private static void serve(final SessionsParser sessionsParser,
+                              final String sessionsSource,
+                              final ChangeSource changeSource,
+                              final int port) throws IOException {
+        final String layout = requireNonNull(System.getProperty(IMAGES_LAYOUT_PROPERTY),
+                                             IMAGES_LAYOUT_PROPERTY + " is required to serve the kiosk");
+        ImageIO.setUseCache(false);
+        final KioskServer kiosk = new KioskServer.Builder()
+                                          .renderer(SlideRenderer.load(Paths.get(layout)))
+                                          .cacheDirectory(Paths.get(System.getProperty(KIOSK_CACHE_PROPERTY, "kiosk")))
+                                          .port(port)
+                                          .tick(seconds(KIOSK_TICK_PROPERTY, KioskServer.DEFAULT_TICK))
+                                          .build();
+        final ScheduleWatcher watcher =
+                scheduleWatcher().changeSource(changeSource)
+                                 .fileId(sessionsSource)
+                                 .regeneration((change, superseded) -> update(kiosk, sessionsParser, sessionsSource))
+                                 .build();
+        kiosk.start();
+        watcher.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            watcher.close();
+            kiosk.close();
+        }));
+        System.out.printf("kiosk served at http://%s:%d/rooms/\n", InetAddress.getLocalHost().getHostName(),
+                          kiosk.port());
+    }
+
+    private static void update(final KioskServer kiosk,
+                               final SessionsParser sessionsParser,
+                               final String sessionsSource) {
+        sessionsParser.parse(sessionsSource)
+                      .onSuccess(kiosk::update)
+                      .onFailure(err -> System.err.printf("failed to parse the sessions [source=%s]: %s\n",
+                                                          sessionsSource, err));
+    }
+}
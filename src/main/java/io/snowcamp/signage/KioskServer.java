@@ -0,0 +1,504 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import com.google.common.base.Preconditions;
+import com.google.common.escape.Escaper;
+import com.google.common.hash.Hashing;
+import com.google.common.html.HtmlEscapers;
+import com.google.common.net.UrlEscapers;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.snowcamp.signage.metrics.MetricsRegistry;
+import io.snowcamp.signage.render.SlideRenderer;
+import io.snowcamp.signage.session.DaySessions;
+import io.snowcamp.signage.session.ScheduleIndex;
+import io.snowcamp.signage.session.Session;
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+
+/**
+ * Serves the signage of each room to the screens of the venue from the local network, rather than from Google:
+ * {@code /rooms/<room>} is a page showing the slide of the current session of the room, or of its next one, and
+ * {@code /rooms/} lists the rooms.
+ * <p>
+ * The slides are rendered by a {@link SlideRenderer} once per content, as soon as the sessions are known, into a cache
+ * directory where each image is named after the hash of its texts. An image never changes: it is sent from its file
+ * with a strong ETag, and kept by the screens for a year. A page has a strong ETag too, and is answered 304 as long as
+ * its slide is the same. Each page listens to {@code /rooms/<room>/events}: a server-sent event tells it to reload
+ * once its slide changes, because the sessions were updated or because time went by. Every tick computes the slide of
+ * each room; nothing is sent while nothing changes.
+ * <p>
+ * The ticks never write to the screens: each screen has its own event waiting, written by a thread of its own, so a
+ * screen slow to read only holds back its own events. A newer event replaces the one still waiting, since a page
+ * only needs to reload once.
+ */
+public final class KioskServer implements AutoCloseable {
+    public static final Duration DEFAULT_TICK = Duration.ofSeconds(5);
+    // the proxies and the screens drop a connection silent for too long
+    private static final Duration HEARTBEAT = Duration.ofSeconds(30);
+    private static final String ROOMS_PATH = "/rooms/";
+    private static final String EVENTS_SUFFIX = "/events";
+    private static final String SLIDES_PATH = "/slides/";
+    private static final String VERSION_PARAMETER = "version=";
+    private static final String IMAGE_FORMAT = "png";
+    private static final Pattern IMAGE_NAME = Pattern.compile("[0-9a-f]+\\." + IMAGE_FORMAT);
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final Escaper HTML = HtmlEscapers.htmlEscaper();
+    private static final Escaper PATH_SEGMENT = UrlEscapers.urlPathSegmentEscaper();
+    private static final String PAGE_STYLE = "<style>html,body{margin:0;height:100%;background:#000;color:#fff;"
+            + "font-family:sans-serif}img{display:block;width:100%;height:100%;object-fit:contain}</style>";
+    private static final String RENDER_STAGE = "render";
+    private static final String PAGES = "pages";
+    private static final String IMAGES = "images";
+    private static final String NOT_MODIFIED = ".notModified";
+    private static final String EVENTS = "events";
+    private static final String HEARTBEAT_EVENT = ":\n\n";
+
+    public static final class Builder {
+        private SlideRenderer renderer;
+        private Path cacheDirectory;
+        private InetAddress address;
+        private int port;
+        private int threads = 8;
+        private Duration tick = DEFAULT_TICK;
+        private Clock clock = Clock.systemDefaultZone();
+
+        public KioskServer build() throws IOException {
+            return new KioskServer(this);
+        }
+
+        public Builder renderer(final SlideRenderer renderer) {
+            this.renderer = renderer;
+            return this;
+        }
+
+        /**
+         * The directory of the rendered images, kept from one run to the next.
+         */
+        public Builder cacheDirectory(final Path cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+            return this;
+        }
+
+        /**
+         * The address to listen on, every address of the host by default: the screens are on the local network.
+         */
+        public Builder address(final InetAddress address) {
+            this.address = address;
+            return this;
+        }
+
+        public Builder port(final int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * The requests answered at the same time. The event streams do not hold a thread between two events.
+         */
+        public Builder threads(final int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder tick(final Duration tick) {
+            this.tick = tick;
+            return this;
+        }
+
+        public Builder clock(final Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+    }
+
+    /**
+     * The page of a room, and the version its ETag and its events carry.
+     */
+    private static final class Page {
+        private final String version;
+        private final byte[] html;
+
+        private Page(final String version, final byte[] html) {
+            this.version = version;
+            this.html = html;
+        }
+    }
+
+    private final SlideRenderer renderer;
+    private final Path cacheDirectory;
+    private final Duration tick;
+    private final Clock clock;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService ticker =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("kiosk-tick")
+                                                                                 .setDaemon(true)
+                                                                                 .build());
+    // a thread per screen being written to, the ones slow to read hold theirs
+    private final ExecutorService writers =
+            Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("kiosk-events-%d")
+                                                                    .setDaemon(true)
+                                                                    .build());
+    private final ConcurrentMap<String, Page> pages = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, java.util.List<Listener>> listeners = new ConcurrentHashMap<>();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private volatile ScheduleIndex index = ScheduleIndex.of(List.empty());
+
+    private KioskServer(final Builder builder) throws IOException {
+        Preconditions.checkArgument(builder.threads > 0, "threads must be positive: %s", builder.threads);
+        Preconditions.checkArgument(!builder.tick.isNegative() && !builder.tick.isZero(), "tick must be positive");
+        this.renderer = requireNonNull(builder.renderer);
+        this.cacheDirectory = Files.createDirectories(builder.cacheDirectory);
+        this.tick = builder.tick;
+        this.clock = requireNonNull(builder.clock);
+        this.executor = Executors.newFixedThreadPool(builder.threads,
+                                                     new ThreadFactoryBuilder().setNameFormat("kiosk-%d")
+                                                                               .setDaemon(true)
+                                                                               .build());
+        this.server = HttpServer.create(new InetSocketAddress(builder.address, builder.port), 0);
+        server.createContext(ROOMS_PATH, this::handleRoom);
+        server.createContext(SLIDES_PATH, this::handleSlide);
+        server.setExecutor(executor);
+        metrics.gauge("listeners", () -> listeners.values().stream().mapToLong(java.util.List::size).sum());
+    }
+
+    public void start() {
+        server.start();
+        ticker.scheduleWithFixedDelay(this::refresh, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+        ticker.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT.toMillis(), HEARTBEAT.toMillis(),
+                                      TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Displays the given sessions from now on: their slides are rendered, then the pages whose slide changed are
+     * reloaded.
+     */
+    public void update(final Seq<DaySessions> days) {
+        final List<Session> sessions = days.flatMap(DaySessions::sessions).toList();
+        // rendered before they are displayed, the ticks never wait for an image
+        sessions.asJava().parallelStream().forEach(this::image);
+        index = ScheduleIndex.of(sessions);
+        ticker.execute(this::refresh);
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * The pages served, and those answered 304, the images sent and rendered, the events pushed, the screens listening
+     * to them, the time spent rendering an image, and the errors.
+     */
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    private void refresh() {
+        try {
+            final ScheduleIndex current = index;
+            final LocalDateTime now = LocalDateTime.now(clock);
+            final List<String> rooms = current.rooms();
+            for (final String room : rooms) {
+                final Option<Session> displayed = current.current(room, now).orElse(() -> current.next(room, now));
+                final Page page = page(room, displayed);
+                final Page previous = pages.put(room, page);
+                if (previous == null || !previous.version.equals(page.version)) {
+                    push(room, page.version);
+                }
+            }
+            pages.keySet().retainAll(rooms.asJava());
+        } catch (RuntimeException e) {
+            // the next tick tries again
+            metrics.recordError(e);
+        }
+    }
+
+    private Page page(final String room, final Option<Session> displayed) {
+        final Option<String> image = displayed.flatMap(this::image);
+        final String body;
+        if (image.isDefined()) {
+            body = "<img src=\"" + SLIDES_PATH + image.get() + "\" alt=\"" + HTML.escape(displayed.get().title())
+                    + "\">";
+        } else {
+            body = "<h1>" + HTML.escape(room) + "</h1>"
+                    + displayed.map(session -> "<p>" + HTML.escape(session.title()) + "</p>").getOrElse("");
+        }
+        final String version = Hashing.murmur3_128().hashString(room + '\n' + body, UTF_8).toString();
+        final String events =
+                ROOMS_PATH + PATH_SEGMENT.escape(room) + EVENTS_SUFFIX + '?' + VERSION_PARAMETER + version;
+        final String html = "<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>" + HTML.escape(room)
+                + "</title>" + PAGE_STYLE + "</head><body>" + body + "<script>new EventSource(\"" + events
+                + "\").onmessage = function () { location.reload(); };</script></body></html>";
+        return new Page(version, html.getBytes(UTF_8));
+    }
+
+    /**
+     * The name of the image of the session in the cache, rendered unless it already is.
+     */
+    private Option<String> image(final Session session) {
+        final Map<String, String> texts = SlideVariables.of(session);
+        final String name = Hashing.murmur3_128().hashString(texts.toString(), UTF_8) + "." + IMAGE_FORMAT;
+        final Path path = cacheDirectory.resolve(name);
+        if (Files.exists(path)) {
+            return Option.some(name);
+        }
+        final long start = System.nanoTime();
+        return Try.of(() -> {
+            final BufferedImage image = renderer.render(texts);
+            // written aside then moved: an image is served whole or not at all
+            final Path rendered = Files.createTempFile(cacheDirectory, name, ".tmp");
+            if (!ImageIO.write(image, IMAGE_FORMAT, rendered.toFile())) {
+                Files.delete(rendered);
+                throw new IOException("no image writer for " + IMAGE_FORMAT);
+            }
+            Files.move(rendered, path, ATOMIC_MOVE, REPLACE_EXISTING);
+            metrics.recordLatency(RENDER_STAGE, start);
+            return name;
+        }).onFailure(metrics::recordError).toOption();
+    }
+
+    private void handleRoom(final HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                exchange.close();
+                return;
+            }
+            final String path = exchange.getRequestURI().getPath();
+            if (path.equals(ROOMS_PATH)) {
+                sendPage(exchange, roomsPage(), PAGES);
+            } else if (path.endsWith(EVENTS_SUFFIX)) {
+                listen(exchange, path.substring(ROOMS_PATH.length(), path.length() - EVENTS_SUFFIX.length()));
+            } else {
+                final Page page = pages.get(path.substring(ROOMS_PATH.length()));
+                if (page == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                } else {
+                    sendPage(exchange, page, PAGES);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError(e);
+            exchange.close();
+        }
+    }
+
+    private Page roomsPage() {
+        final String links = List.ofAll(pages.keySet())
+                                 .sorted()
+                                 .map(room -> "<li><a href=\"" + HTML.escape(ROOMS_PATH + PATH_SEGMENT.escape(room))
+                                         + "\">" + HTML.escape(room) + "</a></li>")
+                                 .mkString();
+        final String html = "<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>Rooms</title></head><body><ul>"
+                + links + "</ul></body></html>";
+        return new Page(Hashing.murmur3_128().hashString(html, UTF_8).toString(), html.getBytes(UTF_8));
+    }
+
+    private void sendPage(final HttpExchange exchange, final Page page, final String counter) throws IOException {
+        final String etag = '"' + page.version + '"';
+        exchange.getResponseHeaders().set("ETag", etag);
+        // the screens ask again every time, and mostly get a 304
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        if (isNotModified(exchange, etag)) {
+            metrics.counter(counter + NOT_MODIFIED).increment();
+            exchange.sendResponseHeaders(304, -1);
+        } else {
+            metrics.counter(counter).increment();
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, page.html.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(page.html);
+            }
+        }
+        exchange.close();
+    }
+
+    /**
+     * Keeps the exchange open: the events of the room are written to it until the screen goes away.
+     */
+    private void listen(final HttpExchange exchange, final String room) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        // a chunked response, as long as the connection lasts
+        exchange.sendResponseHeaders(200, 0);
+        final Listener listener = new Listener(room, exchange);
+        listeners.computeIfAbsent(room, key -> new CopyOnWriteArrayList<>()).add(listener);
+        // the slide changed between the load of the page and its listening
+        final String query = Option.of(exchange.getRequestURI().getQuery()).getOrElse("");
+        final Option<Page> page = Option.of(pages.get(room));
+        if (page.exists(current -> !query.equals(VERSION_PARAMETER + current.version))) {
+            listener.send("data: " + page.get().version + "\n\n");
+        }
+    }
+
+    private void push(final String room, final String version) {
+        final String event = "data: " + version + "\n\n";
+        listeners.getOrDefault(room, java.util.List.of()).forEach(listener -> listener.send(event));
+    }
+
+    private void heartbeat() {
+        // a comment, ignored by the pages: the connections of the screens gone away fail
+        listeners.values().forEach(roomListeners -> roomListeners.forEach(Listener::heartbeat));
+    }
+
+    private void handleSlide(final HttpExchange exchange) throws IOException {
+        try {
+            final String name = exchange.getRequestURI().getPath().substring(SLIDES_PATH.length());
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+            } else if (!IMAGE_NAME.matcher(name).matches() || !Files.exists(cacheDirectory.resolve(name))) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                sendImage(exchange, cacheDirectory.resolve(name));
+            }
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError(e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendImage(final HttpExchange exchange, final Path image) throws IOException {
+        // the name is the hash of the content
+        final String etag = '"' + image.getFileName().toString() + '"';
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", IMMUTABLE);
+        if (isNotModified(exchange, etag)) {
+            metrics.counter(IMAGES + NOT_MODIFIED).increment();
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        metrics.counter(IMAGES).increment();
+        exchange.getResponseHeaders().set("Content-Type", "image/" + IMAGE_FORMAT);
+        exchange.sendResponseHeaders(200, Files.size(image));
+        // streamed from the file, never loaded whole
+        try (OutputStream out = exchange.getResponseBody()) {
+            Files.copy(image, out);
+        }
+    }
+
+    private static boolean isNotModified(final HttpExchange exchange, final String etag) {
+        final String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        return ifNoneMatch != null
+                && List.of(ifNoneMatch.split(",")).map(String::trim).exists(tag -> tag.equals(etag) || tag.equals("*"));
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        writers.shutdownNow();
+        listeners.values().forEach(roomListeners -> roomListeners.forEach(listener -> listener.exchange.close()));
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * A screen listening to the events of its room, and the event waiting to be written to it.
+     */
+    private final class Listener {
+        private final String room;
+        private final HttpExchange exchange;
+        private final AtomicReference<String> pending = new AtomicReference<>();
+        // set while a writer writes the pending events
+        private final AtomicBoolean writing = new AtomicBoolean();
+
+        private Listener(final String room, final HttpExchange exchange) {
+            this.room = room;
+            this.exchange = exchange;
+        }
+
+        private void send(final String event) {
+            pending.set(event);
+            write();
+        }
+
+        private void heartbeat() {
+            // any event keeps the connection alive
+            pending.compareAndSet(null, HEARTBEAT_EVENT);
+            write();
+        }
+
+        private void write() {
+            if (!writing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                writers.execute(this::writePending);
+            } catch (RejectedExecutionException e) {
+                // closed
+                writing.set(false);
+            }
+        }
+
+        private void writePending() {
+            try {
+                final OutputStream out = exchange.getResponseBody();
+                for (String event = pending.getAndSet(null); event != null; event = pending.getAndSet(null)) {
+                    out.write(event.getBytes(UTF_8));
+                    out.flush();
+                    metrics.counter(EVENTS).increment();
+                }
+            } catch (IOException e) {
+                listeners.getOrDefault(room, java.util.List.of()).remove(this);
+                exchange.close();
+                return;
+            } finally {
+                writing.set(false);
+            }
+            // an event sent after the last one was taken, but before the writing ended
+            if (pending.get() != null) {
+                write();
+            }
+        }
+    }
+}
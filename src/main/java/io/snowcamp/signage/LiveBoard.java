@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static io.snowcamp.signage.SlidesRequests.deleteSlideRequest;
+import static io.snowcamp.signage.SlidesRequests.duplicateSlideRequest;
+import static io.snowcamp.signage.SlidesRequests.replaceTextRequest;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.api.services.slides.v1.model.Request;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.snowcamp.signage.metrics.MetricsRegistry;
+import io.snowcamp.signage.session.ScheduleIndex;
+import io.snowcamp.signage.session.Session;
+import io.vavr.Tuple;
+import io.vavr.collection.LinkedHashMap;
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.control.Option;
+
+/**
+ * A presentation with one slide per room showing the current session, the next one and the time left before it,
+ * kept up to date while the event runs.
+ * <p>
+ * The presentation is copied once from a template whose single slide holds the {@code {{ room }}},
+ * {@code {{ now }}}, {@code {{ next }}} and {@code {{ countdown }}} variables. Then every tick computes the texts of
+ * each room from a {@link ScheduleIndex}, and the texts that changed are replaced in a single batch for all rooms.
+ * Nothing is sent while nothing changes. The ticks run with a fixed delay: when the API is slow, the next tick starts
+ * later and sends the latest texts at once.
+ */
+public final class LiveBoard implements AutoCloseable {
+    static final String NOW_VARIABLE = "{{ now }}";
+    static final String NEXT_VARIABLE = "{{ next }}";
+    static final String COUNTDOWN_VARIABLE = "{{ countdown }}";
+    public static final Duration DEFAULT_TICK = Duration.ofSeconds(5);
+    // zero width characters closing each text: the text of a field can never be found in another field
+    private static final char NOW_MARK = '\u200B';
+    private static final char NEXT_MARK = '\u200C';
+    private static final char COUNTDOWN_MARK = '\u200D';
+
+    public static final class Builder {
+        private SlidesGenerator slidesGenerator;
+        private BatchUpdater batchUpdater;
+        private String templatePresentationId;
+        private String name = "Signage live";
+        private Iterable<Session> sessions;
+        private Duration tick = DEFAULT_TICK;
+        private Clock clock = Clock.systemDefaultZone();
+
+        public LiveBoard build() {
+            return new LiveBoard(this);
+        }
+
+        public Builder slidesGenerator(final SlidesGenerator slidesGenerator) {
+            this.slidesGenerator = slidesGenerator;
+            return this;
+        }
+
+        public Builder batchUpdater(final BatchUpdater batchUpdater) {
+            this.batchUpdater = batchUpdater;
+            return this;
+        }
+
+        public Builder templatePresentationId(final String templatePresentationId) {
+            this.templatePresentationId = templatePresentationId;
+            return this;
+        }
+
+        public Builder name(final String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder sessions(final Iterable<Session> sessions) {
+            this.sessions = sessions;
+            return this;
+        }
+
+        public Builder tick(final Duration tick) {
+            this.tick = tick;
+            return this;
+        }
+
+        public Builder clock(final Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+    }
+
+    private final SlidesGenerator slidesGenerator;
+    private final BatchUpdater batchUpdater;
+    private final String templatePresentationId;
+    private final String name;
+    private final ScheduleIndex schedule;
+    private final Duration tick;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    // written by start, then only by the scheduler thread
+    private volatile String presentationId;
+    private volatile List<RoomSlide> slides = List.empty();
+
+    private LiveBoard(final Builder builder) {
+        Preconditions.checkArgument(!builder.tick.isNegative() && !builder.tick.isZero(), "tick must be positive");
+        this.slidesGenerator = requireNonNull(builder.slidesGenerator);
+        this.batchUpdater = requireNonNull(builder.batchUpdater);
+        this.templatePresentationId = requireNonNull(builder.templatePresentationId);
+        this.name = requireNonNull(builder.name);
+        this.schedule = ScheduleIndex.of(requireNonNull(builder.sessions));
+        this.tick = builder.tick;
+        this.clock = requireNonNull(builder.clock);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("live-board").build());
+    }
+
+    /**
+     * Copies the template, fills a slide per room, then starts the ticks.
+     *
+     * @return the id of the presentation
+     */
+    public String start() throws IOException {
+        Preconditions.checkState(presentationId == null, "already started");
+        final String copyId = slidesGenerator.copyPresentation(templatePresentationId, name);
+        final String templateSlideId = slidesGenerator.firstSlideId(copyId);
+        final LocalDateTime now = LocalDateTime.now(clock);
+        final List<String> rooms = schedule.rooms();
+        final List<RoomSlide> roomSlides = SlidesGenerator.slideIds(rooms.size())
+                                                          .zipWith(rooms, (slideId, room) -> new RoomSlide(
+                                                                  slideId, room, texts(room, now)));
+
+        // each duplicate is inserted right after the template: duplicate the last room first
+        final List<Request> requests =
+                roomSlides.reverse()
+                          .map(slide -> duplicateSlideRequest(templateSlideId, slide.slideId))
+                          .append(deleteSlideRequest(templateSlideId))
+                          .appendAll(roomSlides.flatMap(slide -> slide.texts
+                                  .put(SlideVariables.ROOM_VARIABLE, slide.room)
+                                  .map(text -> replaceTextRequest(slide.slideId, text._1, text._2))));
+        batchUpdater.batchUpdate(copyId, requests);
+
+        presentationId = copyId;
+        slides = roomSlides;
+        scheduler.scheduleWithFixedDelay(this::tick, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+        return copyId;
+    }
+
+    /**
+     * The id of the slide of each room, in alphabetical order of the rooms.
+     */
+    public Map<String, String> roomSlideIds() {
+        return LinkedHashMap.ofEntries(slides.map(slide -> Tuple.of(slide.room, slide.slideId)));
+    }
+
+    public long ticks() {
+        return ticks.sum();
+    }
+
+    public long updates() {
+        return updates.sum();
+    }
+
+    /**
+     * The errors of the ticks, by type.
+     */
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    void tick() {
+        try {
+            final LocalDateTime now = LocalDateTime.now(clock);
+            final List<RoomSlide> updatedSlides = slides.map(slide -> slide.at(texts(slide.room, now)));
+            final List<Request> requests = slides.zip(updatedSlides).flatMap(slide -> slide._1.changes(slide._2));
+            if (!requests.isEmpty()) {
+                batchUpdater.batchUpdate(presentationId, requests);
+                updates.increment();
+            }
+            slides = updatedSlides;
+        } catch (IOException | RuntimeException e) {
+            // keep ticking, the texts that failed are sent again by the next tick
+            metrics.recordError(e);
+        } finally {
+            ticks.increment();
+        }
+    }
+
+    private Map<String, String> texts(final String room, final LocalDateTime now) {
+        final Option<Session> current = schedule.current(room, now);
+        final Option<Session> next = schedule.next(room, now)
+                                             .filter(session -> session.start().toLocalDate()
+                                                                       .equals(now.toLocalDate()));
+        return LinkedHashMap.<String, String>empty()
+                            .put(NOW_VARIABLE, current.map(LiveBoard::describe).getOrElse("") + NOW_MARK)
+                            .put(NEXT_VARIABLE, next.map(session -> text(session, SlideVariables.START_VARIABLE)
+                                                                    + " " + describe(session))
+                                                    .getOrElse("") + NEXT_MARK)
+                            .put(COUNTDOWN_VARIABLE, next.map(session -> countdown(now, session))
+                                                         .getOrElse("") + COUNTDOWN_MARK);
+    }
+
+    private static String describe(final Session session) {
+        return session.speakers().isEmpty()
+               ? session.title()
+               : session.title() + " - " + text(session, SlideVariables.SPEAKERS_VARIABLE);
+    }
+
+    // formatted as on the slides of the decks
+    private static String text(final Session session, final String variable) {
+        return SlideVariables.of(session).get(variable).get();
+    }
+
+    private static String countdown(final LocalDateTime now, final Session next) {
+        final long seconds = Duration.between(now, next.start()).getSeconds();
+        return "Dans " + (seconds + 59) / 60 + " min";
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+
+    private static final class RoomSlide {
+        private final String slideId;
+        private final String room;
+        private final Map<String, String> texts;
+
+        private RoomSlide(final String slideId, final String room, final Map<String, String> texts) {
+            this.slideId = slideId;
+            this.room = room;
+            this.texts = texts;
+        }
+
+        private RoomSlide at(final Map<String, String> newTexts) {
+            return new RoomSlide(slideId, room, newTexts);
+        }
+
+        private List<Request> changes(final RoomSlide updated) {
+            return texts.filter(text -> !text._2.equals(updated.texts.get(text._1).get()))
+                        .map(text -> replaceTextRequest(slideId, text._2, updated.texts.get(text._1).get()))
+                        .toList();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static io.snowcamp.signage.AppSettings.seconds;
+import static io.snowcamp.signage.Generation.GSLIDES_URL;
+import static io.snowcamp.signage.Generation.displayErrors;
+
+import java.io.IOException;
+
+import io.snowcamp.signage.session.DaySessions;
+import io.vavr.collection.Seq;
+
+/**
+ * Keeps a presentation of the current and next session of each room up to date, as long as the application runs.
+ */
+final class LiveMode {
+    private static final String LIVE_TICK_PROPERTY = "signage.live.tick";
+
+    private LiveMode() {
+    }
+
+    static void start(final Generation generation, final String liveTemplateId, final Seq<DaySessions> days)
+            throws IOException {
+        final LiveBoard liveBoard = new LiveBoard.Builder()
+                                            .slidesGenerator(generation.slidesGenerator)
+                                            .batchUpdater(generation.batchUpdater)
+                                            .templatePresentationId(liveTemplateId)
+                                            .sessions(days.flatMap(DaySessions::sessions))
+                                            .tick(seconds(LIVE_TICK_PROPERTY, LiveBoard.DEFAULT_TICK))
+                                            .build();
+        generation.metrics.gauge("live.ticks", liveBoard::ticks);
+        generation.metrics.gauge("live.updates", liveBoard::updates);
+        generation.metrics.include("live", liveBoard.metrics());
+        final String presentationId = liveBoard.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            liveBoard.close();
+            displayErrors("live", liveBoard.metrics());
+        }));
+        liveBoard.roomSlideIds()
+                 .forEach((room, slideId) -> System.out.printf("live presentation of %s at %s%s/present?slide=id.%s\n",
+                                                               room, GSLIDES_URL, presentationId, slideId));
+    }
+}
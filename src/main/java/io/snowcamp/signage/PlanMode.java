@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static io.snowcamp.signage.AppSettings.batchMaxBytes;
+import static io.snowcamp.signage.AppSettings.batchMaxRequests;
+import static io.snowcamp.signage.gsuite.GSuiteFactories.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import io.snowcamp.signage.sched.SchedCsvParser;
+import io.snowcamp.signage.session.SessionsParser;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+
+/**
+ * Plans the requests of a generation from the csv file, offline, without sending any of them.
+ */
+final class PlanMode {
+    private static final String PLAN_OUTPUT_PROPERTY = "signage.plan.output";
+
+    private PlanMode() {
+    }
+
+    static void plan(final String schedCsv, final DeckLayout deckLayout) {
+        final RequestPlanner planner = new RequestPlanner.Builder()
+                                               .maxRequests(batchMaxRequests())
+                                               .maxBytes(batchMaxBytes())
+                                               .slidesPermitsPerSecond(slidesThrottle().permitsPerSecond())
+                                               .drivePermitsPerSecond(driveThrottle().permitsPerSecond())
+                                               .build();
+        final Try<RequestPlan> plan =
+                new SessionsParser(new SchedCsvParser())
+                        .parse(schedCsv)
+                        .onFailure(err -> System.err.printf("failed to parse the sessions [source=%s]: %s\n",
+                                                            schedCsv, err))
+                        .map(deckLayout::decks)
+                        .map(planner::plan);
+        plan.forEach(requests -> {
+            requests.decks()
+                    .forEach(deck -> System.out.printf("%s: %d slides, %d requests in %d calls %s [%s bytes]\n",
+                                                       deck.name(), deck.slideIds().size(), deck.requests().size(),
+                                                       deck.batchRequests().size(), deck.batchRequests().asJava(),
+                                                       deck.batchBytes().sum()));
+            System.out.printf("Plan: %s\n", requests);
+        });
+        Option.of(System.getProperty(PLAN_OUTPUT_PROPERTY))
+              .map(Paths::get)
+              .forEach(path -> plan.mapTry(requests -> Files.write(path, requests.toPrettyString().getBytes(UTF_8)))
+                                   .onSuccess(written -> System.out.printf("plan written to %s\n", written))
+                                   .onFailure(err -> System.err.printf("failed to write the plan: %s\n", err)));
+    }
+}
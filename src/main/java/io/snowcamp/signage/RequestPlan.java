@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+
+import io.vavr.collection.List;
+
+/**
+ * What a run would send to Google for a set of decks: the requests of every presentation, the calls they would take,
+ * and the shortest time these calls would take at the rate of the API throttles.
+ */
+public final class RequestPlan extends GenericJson {
+    @Key
+    private int presentations;
+    @Key
+    private int slides;
+    @Key
+    private long duplicateRequests;
+    @Key
+    private long replaceRequests;
+    @Key
+    private long deleteRequests;
+    @Key
+    private long requestBytes;
+    @Key
+    private long slidesCalls;
+    @Key
+    private long longestDeckCalls;
+    @Key
+    private long driveCalls;
+    @Key
+    private long driveRequests;
+    @Key
+    private double slidesMinimumSeconds;
+    @Key
+    private double driveMinimumSeconds;
+    @Key
+    private java.util.List<DeckPlan> decks;
+
+    public RequestPlan() {
+        // required by the JSON parser
+    }
+
+    RequestPlan(final List<DeckPlan> decks,
+                final long slidesCalls,
+                final long driveCalls,
+                final double slidesPermitsPerSecond,
+                final double drivePermitsPerSecond) {
+        final List<com.google.api.services.slides.v1.model.Request> requests = decks.flatMap(DeckPlan::requests);
+        this.presentations = decks.size();
+        this.slides = decks.map(deck -> deck.slideIds().size()).sum().intValue();
+        this.duplicateRequests = requests.count(request -> request.getDuplicateObject() != null);
+        this.replaceRequests = requests.count(request -> request.getReplaceAllText() != null);
+        this.deleteRequests = requests.count(request -> request.getDeleteObject() != null);
+        this.requestBytes = decks.flatMap(DeckPlan::batchBytes).sum().longValue();
+        this.slidesCalls = slidesCalls;
+        this.longestDeckCalls = decks.map(deck -> deck.batchRequests().size()).max().getOrElse(0);
+        this.driveCalls = driveCalls;
+        this.driveRequests = decks.size();
+        this.slidesMinimumSeconds = slidesCalls / slidesPermitsPerSecond;
+        // the throttle charges every copy, and every batch carrying them
+        this.driveMinimumSeconds = (driveRequests + driveCalls) / drivePermitsPerSecond;
+        this.decks = new java.util.ArrayList<>(decks.asJava());
+    }
+
+    public int presentations() {
+        return presentations;
+    }
+
+    public int slides() {
+        return slides;
+    }
+
+    public long duplicateRequests() {
+        return duplicateRequests;
+    }
+
+    public long replaceRequests() {
+        return replaceRequests;
+    }
+
+    public long deleteRequests() {
+        return deleteRequests;
+    }
+
+    /**
+     * The estimated payload of all the batchUpdate calls, in bytes.
+     */
+    public long requestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * The Slides calls: the read of the template, then the batchUpdate calls.
+     */
+    public long slidesCalls() {
+        return slidesCalls;
+    }
+
+    /**
+     * The most batchUpdate calls of a presentation. They are sent one after the other whatever the concurrency.
+     */
+    public long longestDeckCalls() {
+        return longestDeckCalls;
+    }
+
+    /**
+     * The Drive HTTP calls, each one a batch of copies.
+     */
+    public long driveCalls() {
+        return driveCalls;
+    }
+
+    /**
+     * The Drive requests counted by the quota: a copy per presentation, whatever the batches.
+     */
+    public long driveRequests() {
+        return driveRequests;
+    }
+
+    /**
+     * The time the Slides throttle takes to let every Slides call through, whatever the concurrency.
+     */
+    public double slidesMinimumSeconds() {
+        return slidesMinimumSeconds;
+    }
+
+    /**
+     * The time the Drive throttle takes to let every copy through, along with the batches carrying them.
+     */
+    public double driveMinimumSeconds() {
+        return driveMinimumSeconds;
+    }
+
+    public List<DeckPlan> decks() {
+        return decks == null ? List.empty() : List.ofAll(decks);
+    }
+
+    @Override
+    public String toString() {
+        return "RequestPlan{"
+                + "presentations="
+                + presentations
+                + ", slides="
+                + slides
+                + ", duplicateRequests="
+                + duplicateRequests
+                + ", replaceRequests="
+                + replaceRequests
+                + ", deleteRequests="
+                + deleteRequests
+                + ", requestBytes="
+                + requestBytes
+                + ", slidesCalls="
+                + slidesCalls
+                + ", longestDeckCalls="
+                + longestDeckCalls
+                + ", driveCalls="
+                + driveCalls
+                + ", driveRequests="
+                + driveRequests
+                + ", slidesMinimumSeconds="
+                + String.format("%.1f", slidesMinimumSeconds)
+                + ", driveMinimumSeconds="
+                + String.format("%.1f", driveMinimumSeconds)
+                + '}';
+    }
+}
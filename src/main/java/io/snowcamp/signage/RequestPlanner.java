@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.api.services.slides.v1.model.Request;
+import com.google.common.base.Preconditions;
+import com.google.common.math.IntMath;
+
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+
+/**
+ * Builds the requests a run of the {@link SlidesGenerator} would send, without calling Google: the decks are copied
+ * from the template in Drive batches, then each copy gets its batch of requests, split as the {@link BatchUpdater}
+ * would split it.
+ * <p>
+ * The template is not read: it is assumed to hold every variable on its first slide, so the plan gives the most
+ * requests a run may send.
+ */
+public final class RequestPlanner {
+    static final String TEMPLATE_SLIDE_ID = "template_slide";
+
+    public static final class Builder {
+        private int maxRequests = BatchUpdater.DEFAULT_MAX_REQUESTS;
+        private int maxBytes = BatchUpdater.DEFAULT_MAX_BYTES;
+        private int driveBatchSize = DriveDecks.DEFAULT_BATCH_SIZE;
+        private double slidesPermitsPerSecond = 1;
+        private double drivePermitsPerSecond = 1;
+
+        public RequestPlanner build() {
+            return new RequestPlanner(this);
+        }
+
+        public Builder maxRequests(final int maxRequests) {
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        public Builder maxBytes(final int maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        public Builder driveBatchSize(final int driveBatchSize) {
+            this.driveBatchSize = driveBatchSize;
+            return this;
+        }
+
+        public Builder slidesPermitsPerSecond(final double slidesPermitsPerSecond) {
+            this.slidesPermitsPerSecond = slidesPermitsPerSecond;
+            return this;
+        }
+
+        public Builder drivePermitsPerSecond(final double drivePermitsPerSecond) {
+            this.drivePermitsPerSecond = drivePermitsPerSecond;
+            return this;
+        }
+    }
+
+    private final int maxRequests;
+    private final int maxBytes;
+    private final int driveBatchSize;
+    private final double slidesPermitsPerSecond;
+    private final double drivePermitsPerSecond;
+
+    private RequestPlanner(final Builder builder) {
+        Preconditions.checkArgument(builder.maxRequests > 0, "maxRequests must be positive");
+        Preconditions.checkArgument(builder.maxBytes > 0, "maxBytes must be positive");
+        Preconditions.checkArgument(builder.driveBatchSize > 0, "driveBatchSize must be positive");
+        Preconditions.checkArgument(builder.slidesPermitsPerSecond > 0, "slidesPermitsPerSecond must be positive");
+        Preconditions.checkArgument(builder.drivePermitsPerSecond > 0, "drivePermitsPerSecond must be positive");
+        this.maxRequests = builder.maxRequests;
+        this.maxBytes = builder.maxBytes;
+        this.driveBatchSize = builder.driveBatchSize;
+        this.slidesPermitsPerSecond = builder.slidesPermitsPerSecond;
+        this.drivePermitsPerSecond = builder.drivePermitsPerSecond;
+    }
+
+    public RequestPlan plan(final Seq<Deck> decks) {
+        requireNonNull(decks);
+        final SlideTemplate template = SlideTemplate.withAllVariables(TEMPLATE_SLIDE_ID);
+        final List<DeckPlan> deckPlans = decks.toList().map(deck -> plan(template, deck));
+        // the template is read once, whatever the number of decks
+        final long slidesCalls = 1 + deckPlans.map(deck -> deck.batchRequests().size()).sum().longValue();
+        final long driveCalls = IntMath.divide(decks.size(), driveBatchSize, java.math.RoundingMode.CEILING);
+        return new RequestPlan(deckPlans, slidesCalls, driveCalls, slidesPermitsPerSecond, drivePermitsPerSecond);
+    }
+
+    private DeckPlan plan(final SlideTemplate template, final Deck deck) {
+        final List<String> slideIds = SlidesGenerator.slideIds(deck.sessions().size());
+        final List<Request> requests = SlidesGenerator.slidesRequests(template, slideIds, deck.sessions());
+        return new DeckPlan(deck, slideIds, requests, BatchUpdater.split(requests, maxRequests, maxBytes));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import io.snowcamp.signage.gsuite.FileChange;
+import io.snowcamp.signage.metrics.MetricsRegistry;
+import io.snowcamp.signage.session.SessionsParser;
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.concurrent.Future;
+
+/**
+ * Parses the schedule again and generates the decks whose slides changed since the previous refresh, the other ones
+ * being left as they are. A deck is compared on the texts of its slides.
+ * <p>
+ * A superseded refresh submits no more decks: those left are generated by the next refresh.
+ */
+public final class ScheduleRefresh implements ScheduleWatcher.Regeneration {
+    private static final String DECKS = "decks";
+    private static final String CHANGED_DECKS = "decks.changed";
+
+    public static final class Builder {
+        private SessionsParser sessionsParser;
+        private String sessionsSource;
+        private DeckLayout deckLayout = DeckLayout.DAY;
+        private ConcurrentSlidesGenerator generator;
+        private String templatePresentationId;
+        private Consumer<? super List<GeneratedPresentation>> listener = presentations -> { };
+
+        public ScheduleRefresh build() {
+            return new ScheduleRefresh(this);
+        }
+
+        public Builder sessionsParser(final SessionsParser sessionsParser) {
+            this.sessionsParser = sessionsParser;
+            return this;
+        }
+
+        public Builder sessionsSource(final String sessionsSource) {
+            this.sessionsSource = sessionsSource;
+            return this;
+        }
+
+        public Builder deckLayout(final DeckLayout deckLayout) {
+            this.deckLayout = deckLayout;
+            return this;
+        }
+
+        public Builder generator(final ConcurrentSlidesGenerator generator) {
+            this.generator = generator;
+            return this;
+        }
+
+        public Builder templatePresentationId(final String templatePresentationId) {
+            this.templatePresentationId = templatePresentationId;
+            return this;
+        }
+
+        /**
+         * Told of the presentations generated by each refresh.
+         */
+        public Builder listener(final Consumer<? super List<GeneratedPresentation>> listener) {
+            this.listener = listener;
+            return this;
+        }
+    }
+
+    private final SessionsParser sessionsParser;
+    private final String sessionsSource;
+    private final DeckLayout deckLayout;
+    private final ConcurrentSlidesGenerator generator;
+    private final String templatePresentationId;
+    private final Consumer<? super List<GeneratedPresentation>> listener;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    // the texts of the slides of each deck generated, by deck key; the refreshes run one at a time
+    private final java.util.Map<String, List<Map<String, String>>> generated = new HashMap<>();
+
+    private ScheduleRefresh(final Builder builder) {
+        this.sessionsParser = requireNonNull(builder.sessionsParser);
+        this.sessionsSource = requireNonNull(builder.sessionsSource);
+        this.deckLayout = requireNonNull(builder.deckLayout);
+        this.generator = requireNonNull(builder.generator);
+        this.templatePresentationId = requireNonNull(builder.templatePresentationId);
+        this.listener = requireNonNull(builder.listener);
+    }
+
+    @Override
+    public void regenerate(final FileChange change, final BooleanSupplier superseded) {
+        final List<Deck> decks = deckLayout.decks(sessionsParser.parse(sessionsSource).get());
+        final List<Deck> changed = decks.filter(deck -> !texts(deck).equals(generated.get(deck.key())));
+        metrics.counter(DECKS).add(decks.size());
+        metrics.counter(CHANGED_DECKS).add(changed.size());
+
+        List<Future<GeneratedPresentation>> generations = List.empty();
+        for (final Deck deck : changed) {
+            if (superseded.getAsBoolean()) {
+                break;
+            }
+            generations = generations.append(generator.submit(templatePresentationId, deck));
+        }
+        final List<GeneratedPresentation> presentations = generations.map(Future::get);
+        presentations.filter(presentation -> presentation.presentationId().isSuccess())
+                     .forEach(presentation -> generated.put(presentation.deck().key(),
+                                                            texts(presentation.deck())));
+        listener.accept(presentations);
+    }
+
+    /**
+     * The decks compared and the decks generated by the refreshes.
+     */
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    private static List<Map<String, String>> texts(final Deck deck) {
+        return deck.sessions().map(SlideVariables::of);
+    }
+}
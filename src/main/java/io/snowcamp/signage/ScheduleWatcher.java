@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.snowcamp.signage.gsuite.ChangeSource;
+import io.snowcamp.signage.gsuite.FileChange;
+import io.snowcamp.signage.metrics.MetricsRegistry;
+import io.vavr.control.Option;
+
+/**
+ * Polls the version of the schedule and runs a regeneration once its edits are over.
+ * <p>
+ * The first poll runs a regeneration right away. Afterwards, a new version starts a burst of edits: the regeneration
+ * runs once no new version was seen for {@code quietPeriod}, or {@code maxDelay} after the burst started when the
+ * edits go on. One regeneration runs at a time: the changes seen meanwhile are coalesced into a single regeneration
+ * of the latest version, run once the current one is over, and the current one is told it is superseded.
+ * <p>
+ * The latency from the modification of the schedule to the end of its regeneration is recorded.
+ */
+public final class ScheduleWatcher implements AutoCloseable {
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_QUIET_PERIOD = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofMinutes(1);
+    private static final String POLLS = "polls";
+    private static final String CHANGES = "changes";
+    private static final String RUNS = "runs";
+    private static final String COALESCED_RUNS = "runs.coalesced";
+    private static final String SUPERSEDED_RUNS = "runs.superseded";
+    private static final String RUN_STAGE = "run";
+    private static final String LATENCY = "latency.micros";
+
+    /**
+     * Regenerates the signage for a version of the schedule. A superseded regeneration may stop early: the next one
+     * finishes its work.
+     */
+    @FunctionalInterface
+    public interface Regeneration {
+        void regenerate(FileChange change, BooleanSupplier superseded) throws Exception;
+    }
+
+    public static final class Builder {
+        private ChangeSource changeSource;
+        private String fileId;
+        private Regeneration regeneration;
+        private Duration pollInterval = DEFAULT_POLL_INTERVAL;
+        private Duration quietPeriod = DEFAULT_QUIET_PERIOD;
+        private Duration maxDelay = DEFAULT_MAX_DELAY;
+        private Clock clock = Clock.systemUTC();
+        private Executor runner;
+
+        public ScheduleWatcher build() {
+            return new ScheduleWatcher(this);
+        }
+
+        public Builder changeSource(final ChangeSource changeSource) {
+            this.changeSource = changeSource;
+            return this;
+        }
+
+        public Builder fileId(final String fileId) {
+            this.fileId = fileId;
+            return this;
+        }
+
+        public Builder regeneration(final Regeneration regeneration) {
+            this.regeneration = regeneration;
+            return this;
+        }
+
+        public Builder pollInterval(final Duration pollInterval) {
+            this.pollInterval = pollInterval;
+            return this;
+        }
+
+        public Builder quietPeriod(final Duration quietPeriod) {
+            this.quietPeriod = quietPeriod;
+            return this;
+        }
+
+        public Builder maxDelay(final Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        public Builder clock(final Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Runs the regenerations on the given executor instead of a dedicated thread.
+         * The executor is not shut down when this watcher is closed.
+         */
+        public Builder runner(final Executor runner) {
+            this.runner = runner;
+            return this;
+        }
+    }
+
+    private final ChangeSource changeSource;
+    private final String fileId;
+    private final Regeneration regeneration;
+    private final Duration pollInterval;
+    private final Duration quietPeriod;
+    private final Duration maxDelay;
+    private final Clock clock;
+    private final Executor runner;
+    private final Option<ExecutorService> ownRunner;
+    private final ScheduledExecutorService poller;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    // guarded by this
+    private Long seenVersion;
+    private FileChange unhandled;
+    private Instant burstStart;
+    private Instant lastEdit;
+    private boolean running;
+    private FileChange coalesced;
+    private long triggered;
+
+    private ScheduleWatcher(final Builder builder) {
+        Preconditions.checkArgument(!builder.pollInterval.isNegative() && !builder.pollInterval.isZero(),
+                                    "pollInterval must be positive: %s", builder.pollInterval);
+        this.changeSource = requireNonNull(builder.changeSource);
+        this.fileId = requireNonNull(builder.fileId);
+        this.regeneration = requireNonNull(builder.regeneration);
+        this.pollInterval = builder.pollInterval;
+        this.quietPeriod = requireNonNull(builder.quietPeriod);
+        this.maxDelay = requireNonNull(builder.maxDelay);
+        this.clock = requireNonNull(builder.clock);
+        // the application runs as long as the schedule is watched
+        this.poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("watcher")
+                                                                                           .build());
+        this.ownRunner = builder.runner != null ? Option.none() : Option.some(Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("watcher-run").setDaemon(true).build()));
+        this.runner = Option.<Executor>narrow(ownRunner).getOrElse(builder.runner);
+    }
+
+    public void start() {
+        poller.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The polls, the versions seen, the regenerations run, coalesced and superseded, the time they took, the latency
+     * from a modification to the end of its regeneration, and the errors.
+     */
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    /**
+     * Reads the latest version, and runs a regeneration when the edits are over.
+     */
+    void poll() {
+        final FileChange latest;
+        try {
+            latest = changeSource.latest(fileId);
+        } catch (Exception e) {
+            metrics.recordError(e);
+            return;
+        }
+        metrics.counter(POLLS).increment();
+        final Instant now = clock.instant();
+        synchronized (this) {
+            if (seenVersion == null) {
+                seenVersion = latest.version();
+                trigger(latest);
+                return;
+            }
+            if (latest.version() > seenVersion) {
+                metrics.counter(CHANGES).increment();
+                seenVersion = latest.version();
+                unhandled = latest;
+                lastEdit = now;
+                if (burstStart == null) {
+                    burstStart = now;
+                }
+            }
+            if (unhandled != null
+                    && (!now.isBefore(lastEdit.plus(quietPeriod)) || !now.isBefore(burstStart.plus(maxDelay)))) {
+                trigger(unhandled);
+            }
+        }
+    }
+
+    private synchronized void trigger(final FileChange change) {
+        unhandled = null;
+        burstStart = null;
+        lastEdit = null;
+        triggered++;
+        if (running) {
+            if (coalesced != null) {
+                metrics.counter(COALESCED_RUNS).increment();
+            }
+            coalesced = change;
+            return;
+        }
+        running = true;
+        submit(change, triggered);
+    }
+
+    private void submit(final FileChange change, final long ticket) {
+        runner.execute(() -> run(change, ticket));
+    }
+
+    private void run(final FileChange change, final long ticket) {
+        final BooleanSupplier superseded = () -> isSuperseded(ticket);
+        final long start = System.nanoTime();
+        try {
+            metrics.counter(RUNS).increment();
+            regeneration.regenerate(change, superseded);
+            metrics.recordLatency(RUN_STAGE, start);
+            if (superseded.getAsBoolean()) {
+                metrics.counter(SUPERSEDED_RUNS).increment();
+            } else {
+                final Duration latency = Duration.between(change.modifiedTime(), clock.instant());
+                metrics.histogram(LATENCY).record(TimeUnit.NANOSECONDS.toMicros(Math.max(0, latency.toNanos())));
+            }
+        } catch (Exception e) {
+            metrics.recordError(e);
+        } finally {
+            runNext();
+        }
+    }
+
+    private synchronized boolean isSuperseded(final long ticket) {
+        return triggered > ticket;
+    }
+
+    private synchronized void runNext() {
+        if (coalesced == null) {
+            running = false;
+            return;
+        }
+        final FileChange next = coalesced;
+        coalesced = null;
+        submit(next, triggered);
+    }
+
+    @Override
+    public void close() {
+        poller.shutdownNow();
+        ownRunner.forEach(ExecutorService::shutdownNow);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
+
+import java.util.regex.Matcher;
+
+import com.google.api.services.slides.v1.model.Page;
+import com.google.api.services.slides.v1.model.PageElement;
+import com.google.api.services.slides.v1.model.TableCell;
+import com.google.api.services.slides.v1.model.TableRow;
+import com.google.api.services.slides.v1.model.TextContent;
+import com.google.api.services.slides.v1.model.TextElement;
+
+import io.snowcamp.signage.render.SlideRenderer;
+import io.snowcamp.signage.session.Session;
+import io.vavr.collection.LinkedHashMap;
+import io.vavr.collection.Map;
+import io.vavr.collection.Set;
+
+/**
+ * The template slide of a presentation, along with the variables found in its texts: the shapes, the cells of the
+ * tables and the shapes of the groups. Only these variables are replaced on the slides, as written in the template
+ * whatever their spacing: {@code {{title}}} as well as {@code {{ title }}}. The unknown variables are left as is.
+ * The texts around the variables are kept too, so that a text of a session can be told apart from them.
+ */
+final class SlideTemplate {
+    private final String slideId;
+    // the canonical form of each variable, by the way it is written in the template
+    private final Map<String, String> variables;
+    // the texts of the slide, each variable being a line break
+    private final String staticText;
+
+    private SlideTemplate(final String slideId, final Map<String, String> variables, final String staticText) {
+        this.slideId = requireNonNull(slideId);
+        this.variables = requireNonNull(variables);
+        this.staticText = requireNonNull(staticText);
+    }
+
+    static SlideTemplate of(final Page slide) {
+        final StringBuilder texts = new StringBuilder();
+        appendTexts(texts, slide.getPageElements());
+        return new SlideTemplate(slide.getObjectId(), variables(texts), staticText(texts));
+    }
+
+    /**
+     * A template holding every variable, and no other text, as when the template slide cannot be read.
+     */
+    static SlideTemplate withAllVariables(final String slideId) {
+        return new SlideTemplate(slideId, SlideVariables.variables().toLinkedMap(identity(), identity()), "");
+    }
+
+    String slideId() {
+        return slideId;
+    }
+
+    SlideTemplate withSlideId(final String slideId) {
+        return new SlideTemplate(slideId, variables, staticText);
+    }
+
+    /**
+     * The variables found in the template, as written in it.
+     */
+    Set<String> variables() {
+        return variables.keySet();
+    }
+
+    /**
+     * Whether the given text is found in the template out of its variables: replacing it on a slide would replace
+     * the text of the template too.
+     */
+    boolean isStaticText(final String text) {
+        return staticText.contains(text);
+    }
+
+    /**
+     * The text of each variable of the template for the given session.
+     */
+    Map<String, String> texts(final Session session) {
+        final Map<String, String> texts = SlideVariables.of(session);
+        return variables.mapValues(variable -> texts.get(variable).get());
+    }
+
+    static Map<String, String> variables(final CharSequence texts) {
+        Map<String, String> variables = LinkedHashMap.empty();
+        final Matcher matcher = SlideRenderer.VARIABLE_PATTERN.matcher(texts);
+        while (matcher.find()) {
+            final String variable = SlideRenderer.variable(matcher.group(1));
+            if (SlideVariables.isVariable(variable)) {
+                variables = variables.put(matcher.group(), variable);
+            }
+        }
+        return variables;
+    }
+
+    private static String staticText(final CharSequence texts) {
+        final StringBuilder staticText = new StringBuilder();
+        final Matcher matcher = SlideRenderer.VARIABLE_PATTERN.matcher(texts);
+        while (matcher.find()) {
+            final boolean isVariable = SlideVariables.isVariable(SlideRenderer.variable(matcher.group(1)));
+            matcher.appendReplacement(staticText, isVariable ? "\n" : Matcher.quoteReplacement(matcher.group()));
+        }
+        return matcher.appendTail(staticText).toString();
+    }
+
+    private static void appendTexts(final StringBuilder texts, final java.util.List<PageElement> elements) {
+        if (elements == null) {
+            return;
+        }
+        for (final PageElement element : elements) {
+            if (element.getShape() != null) {
+                appendText(texts, element.getShape().getText());
+            }
+            if (element.getTable() != null && element.getTable().getTableRows() != null) {
+                for (final TableRow row : element.getTable().getTableRows()) {
+                    if (row.getTableCells() != null) {
+                        for (final TableCell cell : row.getTableCells()) {
+                            appendText(texts, cell.getText());
+                        }
+                    }
+                }
+            }
+            if (element.getElementGroup() != null) {
+                appendTexts(texts, element.getElementGroup().getChildren());
+            }
+        }
+    }
+
+    private static void appendText(final StringBuilder texts, final TextContent text) {
+        if (text == null || text.getTextElements() == null) {
+            return;
+        }
+        // a variable may be split in several runs of different styles
+        for (final TextElement element : text.getTextElements()) {
+            if (element.getTextRun() != null && element.getTextRun().getContent() != null) {
+                texts.append(element.getTextRun().getContent());
+            }
+        }
+        texts.append('\n');
+    }
+}
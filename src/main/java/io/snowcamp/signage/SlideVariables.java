@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import com.google.common.base.Joiner;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import io.snowcamp.signage.session.Session;
+import io.vavr.Function1;
+import io.vavr.collection.LinkedHashMap;
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.collection.Set;
+
+/**
+ * The variables a template may hold, each bound to the field of the session it displays. A new field is one more
+ * entry in {@link #FIELDS}.
+ * <p>
+ * The texts of a session are formatted once, then kept as long as the session is.
+ */
+final class SlideVariables {
+    static final String TITLE_VARIABLE = "{{ title }}";
+    static final String ROOM_VARIABLE = "{{ room }}";
+    static final String SPEAKERS_VARIABLE = "{{ speakers }}";
+    static final String HOURS_VARIABLE = "{{ hours }}";
+    static final String START_VARIABLE = "{{ start }}";
+    static final String END_VARIABLE = "{{ end }}";
+    static final String DAY_VARIABLE = "{{ day }}";
+    private static final DateTimeFormatter HOURS_FORMATTER = DateTimeFormatter.ofPattern("HH'h'mm", Locale.FRENCH);
+    private static final String SPEAKERS_SEPARATOR = " & ";
+    private static final Map<String, Function1<Session, String>> FIELDS =
+            LinkedHashMap.<String, Function1<Session, String>>empty()
+                         .put(TITLE_VARIABLE, Session::title)
+                         .put(ROOM_VARIABLE, Session::room)
+                         .put(SPEAKERS_VARIABLE, session -> formatSpeakers(session.speakers()))
+                         .put(HOURS_VARIABLE, SlideVariables::formatTime)
+                         .put(START_VARIABLE, session -> session.start().format(HOURS_FORMATTER))
+                         .put(END_VARIABLE, session -> session.end().format(HOURS_FORMATTER))
+                         .put(DAY_VARIABLE, session -> DeckLayout.dayName(session.date()));
+    // the sessions are compared by identity, and their texts released along with them
+    private static final LoadingCache<Session, Map<String, String>> TEXTS =
+            CacheBuilder.newBuilder().weakKeys().build(CacheLoader.from(SlideVariables::format));
+
+    private SlideVariables() {
+    }
+
+    /**
+     * The text of every variable for the given session.
+     */
+    static Map<String, String> of(final Session session) {
+        requireNonNull(session);
+        return TEXTS.getUnchecked(session);
+    }
+
+    /**
+     * Every variable a template may hold, in their canonical form.
+     */
+    static Set<String> variables() {
+        return FIELDS.keySet();
+    }
+
+    static boolean isVariable(final String variable) {
+        return FIELDS.containsKey(variable);
+    }
+
+    private static Map<String, String> format(final Session session) {
+        return FIELDS.mapValues(field -> field.apply(session));
+    }
+
+    private static String formatSpeakers(final List<String> speakers) {
+        return Joiner.on(SPEAKERS_SEPARATOR).join(speakers);
+    }
+
+    private static String formatTime(final Session session) {
+        return session.start().format(HOURS_FORMATTER) + " - " + session.end().format(HOURS_FORMATTER);
+    }
+}
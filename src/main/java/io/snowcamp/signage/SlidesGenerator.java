@@ -15,157 +15,305 @@
  */
 package io.snowcamp.signage;
 
-import static java.time.format.TextStyle.FULL;
-import static java.util.Locale.FRENCH;
+import static io.snowcamp.signage.SlidesRequests.SLIDE_ID_PREFIX;
+import static io.snowcamp.signage.SlidesRequests.deleteSlideRequest;
+import static io.snowcamp.signage.SlidesRequests.duplicateSlideRequest;
+import static io.snowcamp.signage.SlidesRequests.hash;
+import static io.snowcamp.signage.SlidesRequests.replaceTextRequest;
 import static java.util.Objects.requireNonNull;
-import static org.apache.commons.text.WordUtils.capitalize;
 
 import java.io.IOException;
-import java.time.format.DateTimeFormatter;
-import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
 import com.google.api.services.drive.Drive;
-import com.google.api.services.drive.model.File;
 import com.google.api.services.slides.v1.Slides;
-import com.google.api.services.slides.v1.model.BatchUpdatePresentationRequest;
-import com.google.api.services.slides.v1.model.BatchUpdatePresentationResponse;
-import com.google.api.services.slides.v1.model.DeleteObjectRequest;
-import com.google.api.services.slides.v1.model.DuplicateObjectRequest;
-import com.google.api.services.slides.v1.model.DuplicateObjectResponse;
 import com.google.api.services.slides.v1.model.Page;
 import com.google.api.services.slides.v1.model.Presentation;
-import com.google.api.services.slides.v1.model.ReplaceAllTextRequest;
 import com.google.api.services.slides.v1.model.Request;
-import com.google.api.services.slides.v1.model.Response;
-import com.google.api.services.slides.v1.model.SubstringMatchCriteria;
-import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 
-import io.snowcamp.signage.session.DaySessions;
+import io.snowcamp.signage.manifest.DeckProgress;
+import io.snowcamp.signage.manifest.RunJournal;
+import io.snowcamp.signage.metrics.MetricsRegistry;
 import io.snowcamp.signage.session.Session;
 import io.vavr.Value;
 import io.vavr.collection.List;
-import io.vavr.collection.Stream;
+import io.vavr.collection.Seq;
+import io.vavr.control.Option;
 import io.vavr.control.Try;
 
-public final class SlidesGenerator {
-    private static final DateTimeFormatter HOURS_FORMATTER = DateTimeFormatter.ofPattern("HH'h'mm");
-    private static final String TITLE_VARIABLE = "{{ title }}";
-    private static final String ROOM_VARIABLE = "{{ room }}";
-    private static final String SPEAKERS_VARIABLE = "{{ speakers }}";
-    private static final String HOURS_VARIABLE = "{{ hours }}";
-    private static final String SPEAKERS_SEPARATOR = " & ";
+/**
+ * Generates a presentation in two calls: a Drive copy of the template, made by {@link DriveDecks}, then a batch
+ * duplicating the template slide into slides with known ids, filling them and deleting the template slide.
+ * <p>
+ * A Drive copy keeps the object ids of the presentation, so the template slide is read once per template and reused
+ * for every copy. Should its id differ, the id is read from the copy and the batch is sent again. The template slide
+ * is scanned for the variables it holds, see {@link SlideTemplate}: a slide gets one replacement per variable of the
+ * template, no more.
+ * <p>
+ * The batch of a large deck is split in several calls by the {@link BatchUpdater}.
+ * <p>
+ * Given a {@link RunJournal}, every step is journaled: the copy, the requests it is filled with and each batch
+ * applied. A deck the previous run left unfinished resumes from its copy and its last batch applied, as long as its
+ * requests are the same. Otherwise, or when its copy cannot be filled, the deck starts over.
+ */
+public final class SlidesGenerator implements PresentationGenerator {
+    private static final String SLIDES_ID_FIELDS = "slides.objectId";
+    private static final String SLIDES_FIELDS = "slides(objectId,pageElements)";
+    private static final String TEMPLATE_STAGE = "template";
+    private static final String COPY_STAGE = "copy";
+    private static final String REQUESTS_STAGE = "requests";
+    private static final String BATCH_UPDATE_STAGE = "batchUpdate";
+    private static final String DUPLICATE_REQUESTS = "requests.duplicate";
+    private static final String DELETE_REQUESTS = "requests.delete";
+    private static final String REPLACE_REQUESTS = "requests.replace";
+    private static final String RESUMED_DECKS = "decks.resumed";
+    private static final String RESTARTED_DECKS = "decks.restarted";
     private final Slides googleSlides;
-    private final Drive googleDrive;
+    private final DriveDecks driveDecks;
+    private final BatchUpdater batchUpdater;
+    private final Option<RunJournal> journal;
+    private final ConcurrentMap<String, SlideTemplate> templates = new ConcurrentHashMap<>();
+    private final MetricsRegistry metrics = new MetricsRegistry();
 
     public SlidesGenerator(final Slides googleSlides, final Drive googleDrive) {
-        this.googleSlides = requireNonNull(googleSlides);
-        this.googleDrive = requireNonNull(googleDrive);
+        this(googleSlides, googleDrive, new BatchUpdater.Builder().googleSlides(googleSlides).build());
     }
 
-    public Try<String> generateSlides(final String templatePresentationId, final DaySessions daySessions) {
-        requireNonNull(templatePresentationId);
-        requireNonNull(daySessions);
+    public SlidesGenerator(final Slides googleSlides, final Drive googleDrive, final BatchUpdater batchUpdater) {
+        this(googleSlides, new DriveDecks.Builder().googleDrive(googleDrive).build(), batchUpdater);
+    }
 
-        return Try.ofCallable(() -> generate(templatePresentationId, daySessions));
+    public SlidesGenerator(final Slides googleSlides, final DriveDecks driveDecks, final BatchUpdater batchUpdater) {
+        this(googleSlides, driveDecks, batchUpdater, Option.none());
     }
 
-    private String generate(final String templatePresentationId, final DaySessions daySessions) throws IOException {
-        final String presentationId = copyPresentation(templatePresentationId, presentationName(daySessions));
+    public SlidesGenerator(final Slides googleSlides,
+                           final DriveDecks driveDecks,
+                           final BatchUpdater batchUpdater,
+                           final RunJournal journal) {
+        this(googleSlides, driveDecks, batchUpdater, Option.some(requireNonNull(journal)));
+    }
 
-        final String templateSlideId = templateSlideId(presentationId);
-        final List<Session> sessions = daySessions.sessions();
-        final Stream<String> slideIds = duplicateSlides(presentationId, templateSlideId, sessions.size());
+    private SlidesGenerator(final Slides googleSlides,
+                            final DriveDecks driveDecks,
+                            final BatchUpdater batchUpdater,
+                            final Option<RunJournal> journal) {
+        this.googleSlides = requireNonNull(googleSlides);
+        this.driveDecks = requireNonNull(driveDecks);
+        this.batchUpdater = requireNonNull(batchUpdater);
+        this.journal = journal;
+    }
 
-        return replaceTemplateVariables(presentationId, slideIds, sessions);
+    @Override
+    public Try<String> generateSlides(final String templatePresentationId, final Deck deck) {
+        return generateDeck(templatePresentationId, deck).map(GeneratedSlides::presentationId);
     }
 
-    private String replaceTemplateVariables(final String presentationId,
-                                            final Stream<String> slideIds,
-                                            final List<Session> sessions) throws IOException {
-        final List<Request> replaceRequests =
-                slideIds.zipWith(sessions, SlidesGenerator::replaceTextRequests)
-                        .flatMap(Value::toStream)
-                        .toList();
+    Try<GeneratedSlides> generateDeck(final String templatePresentationId, final Deck deck) {
+        requireNonNull(templatePresentationId);
+        requireNonNull(deck);
 
-        final BatchUpdatePresentationRequest batchReplaceRequests =
-                new BatchUpdatePresentationRequest().setRequests(replaceRequests.asJava());
-        googleSlides.presentations().batchUpdate(presentationId, batchReplaceRequests).execute();
+        return Try.ofCallable(() -> generate(templatePresentationId, deck)).onFailure(metrics::recordError);
+    }
 
-        return presentationId;
+    private GeneratedSlides generate(final String templatePresentationId, final Deck deck)
+            throws IOException {
+        final SlideTemplate template = template(templatePresentationId);
+        final List<Session> sessions = deck.sessions();
+        final List<String> slideIds = slideIds(sessions.size());
+        final Option<GeneratedSlides> resumed = resume(template, deck, slideIds);
+        if (resumed.isDefined()) {
+            return resumed.get();
+        }
+
+        final long copyStart = System.nanoTime();
+        final String presentationId = driveDecks.copy(templatePresentationId, deck);
+        metrics.recordLatency(COPY_STAGE, copyStart);
+        if (journal.isDefined()) {
+            journal.get().copied(deck.key(), presentationId);
+        }
+
+        final long requestsStart = System.nanoTime();
+        final List<Request> requests = slidesRequests(template, slideIds, sessions);
+        metrics.recordLatency(REQUESTS_STAGE, requestsStart);
+        return fill(deck, presentationId, template, slideIds, requests, 0);
     }
 
-    private static List<Request> replaceTextRequests(final String slideId, final Session session) {
-        return List.of(replaceTextRequest(slideId, TITLE_VARIABLE, session.title()),
-                       replaceTextRequest(slideId, ROOM_VARIABLE, session.room()),
-                       replaceTextRequest(slideId, SPEAKERS_VARIABLE, formatSpeakers(session.speakers())),
-                       replaceTextRequest(slideId, HOURS_VARIABLE, formatTime(session)));
+    /**
+     * Fills the copy left unfinished by the previous run, when its requests are the same.
+     */
+    private Option<GeneratedSlides> resume(final SlideTemplate template,
+                                           final Deck deck,
+                                           final List<String> slideIds) throws IOException {
+        final Option<DeckProgress> progress = journal.flatMap(steps -> steps.progress(deck.key()));
+        if (progress.isEmpty()) {
+            return Option.none();
+        }
+        final SlideTemplate sentTemplate = progress.get().templateSlideId().map(template::withSlideId)
+                                                   .getOrElse(template);
+        final List<Request> requests = slidesRequests(sentTemplate, slideIds, deck.sessions());
+        if (progress.get().requestsHash().exists(sent -> !sent.equals(hash(requests)))) {
+            // the copy was filled with other sessions
+            metrics.counter(RESTARTED_DECKS).increment();
+            return Option.none();
+        }
+        metrics.counter(RESUMED_DECKS).increment();
+        final int appliedBatches = progress.get().appliedBatches();
+        try {
+            return Option.some(fill(deck, progress.get().presentationId(), sentTemplate, slideIds, requests,
+                                    appliedBatches));
+        } catch (BatchUpdateException e) {
+            if (e.appliedBatches() > appliedBatches || !isStartOver(e.getCause())) {
+                throw e;
+            }
+            // the copy is gone, or the batch was applied but not journaled
+            metrics.counter(RESTARTED_DECKS).increment();
+            return Option.none();
+        }
     }
 
-    private Stream<String> duplicateSlides(final String presentationId,
-                                           final String slideId,
-                                           final int slidesNumber) throws IOException {
-        List<Request> requests = Stream.range(0, slidesNumber)
-                                             .map(i -> duplicateSlideRequest(slideId))
-                                             .toList();
-        requests = requests.append(deleteSlideRequest(slideId));
+    private GeneratedSlides fill(final Deck deck,
+                                 final String presentationId,
+                                 final SlideTemplate template,
+                                 final List<String> slideIds,
+                                 final List<Request> requests,
+                                 final int appliedBatches) throws IOException {
+        // the duplicates, the deletion of the template slide, then the replacements
+        metrics.counter(DUPLICATE_REQUESTS).add(slideIds.size());
+        metrics.counter(DELETE_REQUESTS).increment();
+        metrics.counter(REPLACE_REQUESTS).add(requests.size() - slideIds.size() - 1);
 
-        final BatchUpdatePresentationRequest batchRequests =
-                new BatchUpdatePresentationRequest().setRequests(requests.asJava());
-        final BatchUpdatePresentationResponse responses =
-                googleSlides.presentations().batchUpdate(presentationId, batchRequests).execute();
+        final long batchStart = System.nanoTime();
+        try {
+            send(deck, presentationId, template, slideIds, requests, appliedBatches);
+        } catch (BatchUpdateException e) {
+            if (e.appliedBatches() > 0 || !isBadRequest(e.getCause())) {
+                throw e;
+            }
+            final SlideTemplate copyTemplate = template.withSlideId(firstSlideId(presentationId));
+            send(deck, presentationId, copyTemplate, slideIds, slidesRequests(copyTemplate, slideIds, deck.sessions()),
+                 0);
+        }
+        metrics.recordLatency(BATCH_UPDATE_STAGE, batchStart);
+        if (journal.isDefined()) {
+            journal.get().done(deck.key());
+        }
+        return new GeneratedSlides(presentationId, slideIds);
+    }
 
-        return Stream.ofAll(responses.getReplies())
-                        .map(Response::getDuplicateObject)
-                        .filter(Objects::nonNull)
-                        .map(DuplicateObjectResponse::getObjectId);
+    private void send(final Deck deck,
+                      final String presentationId,
+                      final SlideTemplate template,
+                      final List<String> slideIds,
+                      final List<Request> requests,
+                      final int appliedBatches) throws IOException {
+        if (journal.isEmpty()) {
+            batchUpdater.batchUpdate(presentationId, requests);
+            return;
+        }
+        if (appliedBatches == 0) {
+            journal.get().requests(deck.key(), template.slideId(), slideIds, hash(requests));
+        }
+        batchUpdater.batchUpdate(presentationId, requests, appliedBatches,
+                                 batch -> journal.get().batchApplied(deck.key(), batch));
     }
 
-    private String presentationName(final DaySessions daySessions) {
-        return capitalize(daySessions.day().getDisplayName(FULL, FRENCH));
+    /**
+     * Whether the deck has a copy left unfinished by the previous run: it is not copied again, unless it starts over.
+     */
+    boolean isResumable(final Deck deck) {
+        return journal.exists(steps -> steps.progress(deck.key()).isDefined());
     }
 
-    private String copyPresentation(String sourcePresentationId, String copyName) {
-        try {
-            File copyMetadata = new File().setName(copyName);
-            File presentationCopyFile = googleDrive.files().copy(sourcePresentationId, copyMetadata).execute();
-            return presentationCopyFile.getId();
-        } catch (Exception e) {
-            e.printStackTrace(); // FIXME
-        }
+    /**
+     * The time spent reading the templates, copying them, building the requests and sending them, the number of
+     * requests by kind, the decks resumed and started over, and the errors.
+     */
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
 
-        return null;
+    static List<String> slideIds(final int slidesNumber) {
+        return List.range(0, slidesNumber).map(index -> String.format("%s%04d", SLIDE_ID_PREFIX, index));
     }
 
-    private String templateSlideId(final String presentationId) throws IOException {
-        final Presentation presentation = googleSlides.presentations().get(presentationId).execute();
-        final java.util.List<Page> slides = presentation.getSlides();
+    /**
+     * Duplicates the template slide for every session, deletes it, then fills the duplicates.
+     * Each duplicate is inserted right after the template slide: the slides are displayed in the reverse order of
+     * the sessions.
+     */
+    static List<Request> slidesRequests(final SlideTemplate template,
+                                        final List<String> slideIds,
+                                        final List<Session> sessions) {
+        return slideIds.map(slideId -> duplicateSlideRequest(template.slideId(), slideId))
+                       .append(deleteSlideRequest(template.slideId()))
+                       .appendAll(slideIds.zipWith(sessions, (slideId, session) -> replaceTextRequests(template,
+                                                                                                      slideId,
+                                                                                                      session))
+                                          .flatMap(Value::toStream));
+    }
+
+    private static boolean isBadRequest(final IOException e) {
+        return e instanceof HttpResponseException
+                && ((HttpResponseException) e).getStatusCode() == HttpStatusCodes.STATUS_CODE_BAD_REQUEST;
+    }
 
-        Preconditions.checkState(!slides.isEmpty(), "no slide for presentationId [" + presentationId + "]");
-        return slides.get(0).getObjectId();
+    private static boolean isStartOver(final IOException e) {
+        return isBadRequest(e)
+                || e instanceof HttpResponseException
+                && ((HttpResponseException) e).getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND;
     }
 
-    private static Request duplicateSlideRequest(final String templateSlideId) {
-        return new Request().setDuplicateObject(new DuplicateObjectRequest().setObjectId(templateSlideId));
+    private static List<Request> replaceTextRequests(final SlideTemplate template,
+                                                     final String slideId,
+                                                     final Session session) {
+        return template.texts(session)
+                       .map(variable -> replaceTextRequest(slideId, variable._1, variable._2))
+                       .toList();
     }
 
-    private static Request deleteSlideRequest(final String templateSlideId) {
-        return new Request().setDeleteObject(new DeleteObjectRequest().setObjectId(templateSlideId));
+    /**
+     * Trashes the presentations of decks generated again.
+     *
+     * @return the ids of the trashed presentations
+     */
+    List<String> trash(final Seq<String> presentationIds) {
+        return driveDecks.trash(presentationIds);
     }
 
-    private static Request replaceTextRequest(final String slideId, final String textToReplace, final String text) {
-        return new Request().setReplaceAllText(
-                new ReplaceAllTextRequest()
-                        .setPageObjectIds(java.util.List.of(slideId)).setReplaceText(text)
-                        .setContainsText(new SubstringMatchCriteria().setMatchCase(true).setText(textToReplace)));
+    String copyPresentation(final String sourcePresentationId, final String copyName) throws IOException {
+        return driveDecks.copy(sourcePresentationId, copyName);
     }
 
-    private static String formatSpeakers(final List<String> speakers) {
-        return Joiner.on(SPEAKERS_SEPARATOR).join(speakers);
+    SlideTemplate template(final String templatePresentationId) throws IOException {
+        final SlideTemplate template = templates.get(templatePresentationId);
+        if (template != null) {
+            return template;
+        }
+        final long start = System.nanoTime();
+        final SlideTemplate slide = SlideTemplate.of(firstSlide(templatePresentationId, SLIDES_FIELDS));
+        metrics.recordLatency(TEMPLATE_STAGE, start);
+        templates.putIfAbsent(templatePresentationId, slide);
+        return slide;
     }
 
-    private static String formatTime(final Session session) {
-        return session.start().format(HOURS_FORMATTER) + " - " + session.end().format(HOURS_FORMATTER);
+    String firstSlideId(final String presentationId) throws IOException {
+        return firstSlide(presentationId, SLIDES_ID_FIELDS).getObjectId();
     }
 
+    private Page firstSlide(final String presentationId, final String fields) throws IOException {
+        final Presentation presentation = googleSlides.presentations()
+                                                      .get(presentationId)
+                                                      .setFields(fields)
+                                                      .execute();
+        final java.util.List<Page> slides = presentation.getSlides();
+
+        Preconditions.checkState(slides != null && !slides.isEmpty(),
+                                 "no slide for presentationId [" + presentationId + "]");
+        return slides.get(0);
+    }
 }
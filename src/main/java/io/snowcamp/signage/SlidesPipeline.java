@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.snowcamp.signage.metrics.MetricsRegistry;
+import io.snowcamp.signage.session.DaySessions;
+import io.snowcamp.signage.session.SessionsParser;
+import io.vavr.collection.List;
+import io.vavr.collection.Seq;
+import io.vavr.concurrent.Future;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+
+/**
+ * Generates the presentations while the sessions are still parsed, the stages handing their work to the next one
+ * through bounded queues:
+ * <ol>
+ * <li>the parsing hands each day as soon as it is complete, and its decks when the layout is per day; the decks of
+ * the other layouts wait for the last day,</li>
+ * <li>the decks are copied from the template in Drive batches, as many at once as are waiting,</li>
+ * <li>each copy is generated as soon as a generator is free.</li>
+ * </ol>
+ * The template slide is read while the sessions are parsed. A stage waits when the queue of the next one is full, so
+ * that no more than {@code queueCapacity} decks are waiting between two stages.
+ * <p>
+ * A day reopened by a late session is handed again, along with its decks. Such a deck is copied by its generation,
+ * which starts once the previous one is done; the presentation of the previous one is then trashed, and only the
+ * last one is reported.
+ */
+public final class SlidesPipeline {
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+    private static final String FAILED_COPIES = "copies.failed";
+    private static final String REGENERATED_DECKS = "decks.regenerated";
+
+    public static final class Builder {
+        private SessionsParser sessionsParser;
+        private DeckLayout deckLayout = DeckLayout.DAY;
+        private ConcurrentSlidesGenerator generator;
+        private DriveDecks driveDecks;
+        private SlidesGenerator slidesGenerator;
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+        public SlidesPipeline build() {
+            return new SlidesPipeline(this);
+        }
+
+        public Builder sessionsParser(final SessionsParser sessionsParser) {
+            this.sessionsParser = sessionsParser;
+            return this;
+        }
+
+        public Builder deckLayout(final DeckLayout deckLayout) {
+            this.deckLayout = deckLayout;
+            return this;
+        }
+
+        public Builder generator(final ConcurrentSlidesGenerator generator) {
+            this.generator = generator;
+            return this;
+        }
+
+        /**
+         * Copies the decks in batches before they are generated. Without it, each generation copies its deck.
+         */
+        public Builder driveDecks(final DriveDecks driveDecks) {
+            this.driveDecks = driveDecks;
+            return this;
+        }
+
+        /**
+         * Reads the template slide while the sessions are parsed.
+         */
+        public Builder slidesGenerator(final SlidesGenerator slidesGenerator) {
+            this.slidesGenerator = slidesGenerator;
+            return this;
+        }
+
+        public Builder queueCapacity(final int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+    }
+
+    /**
+     * The days parsed, and the presentations generated in the order their decks were built: those of the days parsed
+     * before a failure are generated anyway.
+     */
+    public static final class Result {
+        private final Try<Seq<DaySessions>> days;
+        private final List<GeneratedPresentation> presentations;
+
+        private Result(final Try<Seq<DaySessions>> days, final List<GeneratedPresentation> presentations) {
+            this.days = days;
+            this.presentations = presentations;
+        }
+
+        public Try<Seq<DaySessions>> days() {
+            return days;
+        }
+
+        public List<GeneratedPresentation> presentations() {
+            return presentations;
+        }
+    }
+
+    private final SessionsParser sessionsParser;
+    private final DeckLayout deckLayout;
+    private final ConcurrentSlidesGenerator generator;
+    private final Option<DriveDecks> driveDecks;
+    private final Option<SlidesGenerator> slidesGenerator;
+    private final int queueCapacity;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    private SlidesPipeline(final Builder builder) {
+        Preconditions.checkArgument(builder.queueCapacity > 0, "queueCapacity must be positive: %s",
+                                    builder.queueCapacity);
+        this.sessionsParser = requireNonNull(builder.sessionsParser);
+        this.deckLayout = requireNonNull(builder.deckLayout);
+        this.generator = requireNonNull(builder.generator);
+        this.driveDecks = Option.of(builder.driveDecks);
+        this.slidesGenerator = Option.of(builder.slidesGenerator);
+        this.queueCapacity = builder.queueCapacity;
+    }
+
+    public Result run(final String sessionsSource, final String templatePresentationId) throws InterruptedException {
+        requireNonNull(sessionsSource);
+        requireNonNull(templatePresentationId);
+
+        final ExecutorService stages =
+                Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("slides-pipeline-%d")
+                                                                        .setDaemon(true)
+                                                                        .build());
+        try {
+            // a failed read is read again by the generations
+            slidesGenerator.forEach(slides -> Future.run(stages, () -> slides.template(templatePresentationId)));
+            final BlockingQueue<Option<Deck>> parsed = new ArrayBlockingQueue<>(queueCapacity);
+            final Future<Try<Seq<DaySessions>>> days = Future.of(stages, () -> parse(sessionsSource, parsed));
+            final BlockingQueue<Option<Deck>> copied;
+            if (driveDecks.isDefined()) {
+                copied = new ArrayBlockingQueue<>(queueCapacity);
+                Future.run(stages, () -> copy(templatePresentationId, parsed, copied)).onFailure(metrics::recordError);
+            } else {
+                copied = parsed;
+            }
+            final List<GeneratedPresentation> presentations = generate(templatePresentationId, copied);
+            return new Result(days.get(), presentations);
+        } finally {
+            stages.shutdownNow();
+        }
+    }
+
+    private Try<Seq<DaySessions>> parse(final String sessionsSource, final BlockingQueue<Option<Deck>> parsed)
+            throws InterruptedException {
+        try {
+            final Try<Seq<DaySessions>> days = sessionsParser.parse(sessionsSource, day -> {
+                if (deckLayout.isPerDay()) {
+                    deckLayout.decks(List.of(day)).forEach(deck -> put(parsed, deck));
+                }
+            });
+            if (!deckLayout.isPerDay()) {
+                days.forEach(all -> deckLayout.decks(all).forEach(deck -> put(parsed, deck)));
+            }
+            return days;
+        } finally {
+            parsed.put(Option.none());
+        }
+    }
+
+    /**
+     * The decks whose batch copy failed, the decks generated again, and the errors of the copies and the trashings.
+     */
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    private void copy(final String templatePresentationId,
+                      final BlockingQueue<Option<Deck>> parsed,
+                      final BlockingQueue<Option<Deck>> copied) throws InterruptedException {
+        final java.util.List<Option<Deck>> waiting = new ArrayList<>(queueCapacity);
+        // a deck handed again is copied by its generation, after the previous one took its copy
+        final java.util.Set<String> handed = new java.util.HashSet<>();
+        try {
+            boolean done = false;
+            while (!done) {
+                waiting.add(parsed.take());
+                parsed.drainTo(waiting);
+                done = waiting.contains(Option.<Deck>none());
+                final List<Deck> decks = List.ofAll(waiting).flatMap(deck -> deck);
+                // the decks which are not copied here are copied by their generation, the unfinished ones are resumed
+                final List<Deck> firstHanded = decks.distinctBy(Deck::key).filter(deck -> !handed.contains(deck.key()));
+                firstHanded.forEach(deck -> handed.add(deck.key()));
+                final List<Deck> toCopy =
+                        firstHanded.filter(deck -> slidesGenerator.forAll(slides -> !slides.isResumable(deck)));
+                if (!toCopy.isEmpty()) {
+                    Try.of(() -> driveDecks.get().copyAll(templatePresentationId, toCopy))
+                       .onSuccess(copies -> copiesFailed(copies.values().flatMap(Try::failed)))
+                       .onFailure(err -> copiesFailed(List.fill(toCopy.size(), () -> err)));
+                }
+                for (final Deck deck : decks) {
+                    copied.put(Option.some(deck));
+                }
+                waiting.clear();
+            }
+        } finally {
+            copied.put(Option.none());
+        }
+    }
+
+    private void copiesFailed(final Seq<Throwable> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        metrics.counter(FAILED_COPIES).add(failures.size());
+        failures.forEach(metrics::recordError);
+    }
+
+    private List<GeneratedPresentation> generate(final String templatePresentationId,
+                                                 final BlockingQueue<Option<Deck>> copied)
+            throws InterruptedException {
+        // the decks submitted to the generator count as queued until they are generated
+        final Semaphore queued = new Semaphore(queueCapacity);
+        // the generations by deck key, in the order the decks were first handed
+        final java.util.Map<String, Future<GeneratedPresentation>> generations = new java.util.LinkedHashMap<>();
+        for (Option<Deck> deck = copied.take(); deck.isDefined(); deck = copied.take()) {
+            queued.acquire();
+            final Future<GeneratedPresentation> previous = generations.get(deck.get().key());
+            final Future<GeneratedPresentation> generation = previous == null
+                    ? generator.submit(templatePresentationId, deck.get())
+                    : regenerate(templatePresentationId, deck.get(), previous);
+            generations.put(deck.get().key(), generation.onComplete(generated -> queued.release()));
+        }
+        return List.ofAll(generations.values()).map(Future::get);
+    }
+
+    /**
+     * Generates a deck handed again once its previous generation is done, so that they never write to the same deck
+     * at the same time, then trashes the presentation of the previous one.
+     */
+    private Future<GeneratedPresentation> regenerate(final String templatePresentationId,
+                                                     final Deck deck,
+                                                     final Future<GeneratedPresentation> previous) {
+        metrics.counter(REGENERATED_DECKS).increment();
+        return previous.flatMap(earlier -> generator.submit(templatePresentationId, deck).map(later -> {
+            trashPrevious(earlier.presentationId(), later.presentationId());
+            return later;
+        }));
+    }
+
+    private void trashPrevious(final Try<String> previousId, final Try<String> currentId) {
+        final List<String> superseded = previousId.filter(id -> currentId.forAll(current -> !current.equals(id)))
+                                                  .toList();
+        if (superseded.isEmpty() || driveDecks.isEmpty()) {
+            return;
+        }
+        Try.of(() -> driveDecks.get().trash(superseded)).onFailure(metrics::recordError);
+    }
+
+    private static void put(final BlockingQueue<Option<Deck>> queue, final Deck deck) {
+        try {
+            queue.put(Option.some(deck));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while handing " + deck, e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.slides.v1.model.DeleteObjectRequest;
+import com.google.api.services.slides.v1.model.DuplicateObjectRequest;
+import com.google.api.services.slides.v1.model.ReplaceAllTextRequest;
+import com.google.api.services.slides.v1.model.Request;
+import com.google.api.services.slides.v1.model.SubstringMatchCriteria;
+import com.google.api.services.slides.v1.model.UpdateSlidesPositionRequest;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import io.vavr.collection.List;
+
+final class SlidesRequests {
+    static final String SLIDE_ID_PREFIX = "signage_";
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+
+    private SlidesRequests() {
+    }
+
+    static Request duplicateSlideRequest(final String slideId, final String duplicateId) {
+        return new Request().setDuplicateObject(
+                new DuplicateObjectRequest().setObjectId(slideId)
+                                            .setObjectIds(java.util.Map.of(slideId, duplicateId)));
+    }
+
+    static Request deleteSlideRequest(final String slideId) {
+        return new Request().setDeleteObject(new DeleteObjectRequest().setObjectId(slideId));
+    }
+
+    static Request moveSlidesRequest(final List<String> slideIds, final int insertionIndex) {
+        return new Request().setUpdateSlidesPosition(
+                new UpdateSlidesPositionRequest().setSlideObjectIds(slideIds.asJava())
+                                                 .setInsertionIndex(insertionIndex));
+    }
+
+    static Request replaceTextRequest(final String slideId, final String textToReplace, final String text) {
+        return new Request().setReplaceAllText(
+                new ReplaceAllTextRequest()
+                        .setPageObjectIds(java.util.List.of(slideId)).setReplaceText(text)
+                        .setContainsText(new SubstringMatchCriteria().setMatchCase(true).setText(textToReplace)));
+    }
+
+    /**
+     * A hash of the JSON of the requests, telling whether they are the ones sent by a previous run.
+     */
+    static String hash(final List<Request> requests) {
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        try {
+            for (final Request request : requests) {
+                hasher.putBytes(JSON_FACTORY.toByteArray(request));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return hasher.hash().toString();
+    }
+}
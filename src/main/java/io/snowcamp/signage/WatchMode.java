@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static io.snowcamp.signage.AppSettings.MANIFEST_PROPERTY;
+import static io.snowcamp.signage.AppSettings.concurrentGenerator;
+import static io.snowcamp.signage.AppSettings.scheduleWatcher;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Clock;
+
+/**
+ * Keeps the presentations up to date with the schedule: they are updated in place, their URLs do not change.
+ */
+final class WatchMode {
+    private WatchMode() {
+    }
+
+    static void watch(final Generation generation,
+                      final DeckLayout deckLayout,
+                      final String templatePresentationId,
+                      final Clock clock) {
+        requireNonNull(generation.manifestStore.getOrNull(), MANIFEST_PROPERTY + " is required to watch the schedule");
+        // the generator and the watcher run as long as the application does
+        final ConcurrentSlidesGenerator generator = concurrentGenerator(generation.presentationGenerator);
+        final ScheduleRefresh refresh =
+                new ScheduleRefresh.Builder()
+                        .sessionsParser(generation.sessionsParser)
+                        .sessionsSource(generation.sessionsSource)
+                        .deckLayout(deckLayout)
+                        .generator(generator)
+                        .templatePresentationId(templatePresentationId)
+                        .listener(generated -> {
+                            generated.forEach(Generation::displayPresentationUrl);
+                            generation.saveManifest();
+                        })
+                        .build();
+        final ScheduleWatcher watcher = scheduleWatcher().changeSource(generation.changeSource())
+                                                         .fileId(generation.sessionsSource)
+                                                         .regeneration(refresh)
+                                                         .clock(clock)
+                                                         .build();
+        generation.metrics.include("watch", watcher.metrics());
+        generation.metrics.include("refresh", refresh.metrics());
+        watcher.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(watcher::close));
+        System.out.printf("watching %s for changes\n", generation.sessionsSource);
+    }
+}
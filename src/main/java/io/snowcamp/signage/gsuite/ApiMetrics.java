@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class ApiMetrics {
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder throttleWaitNanos = new LongAdder();
+
+    void recordAttempt() {
+        attempts.increment();
+    }
+
+    void recordRetry() {
+        retries.increment();
+    }
+
+    void recordRetries(final int calls) {
+        retries.add(calls);
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    void recordRejection() {
+        rejections.increment();
+    }
+
+    void recordThrottleWait(final double seconds) {
+        throttleWaitNanos.add((long) (seconds * 1_000_000_000L));
+    }
+
+    public long attempts() {
+        return attempts.sum();
+    }
+
+    public long retries() {
+        return retries.sum();
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    public long rejections() {
+        return rejections.sum();
+    }
+
+    public Duration throttleWait() {
+        return Duration.ofNanos(throttleWaitNanos.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "ApiMetrics{"
+                + "attempts="
+                + attempts()
+                + ", retries="
+                + retries()
+                + ", failures="
+                + failures()
+                + ", rejections="
+                + rejections()
+                + ", throttleWait="
+                + throttleWait()
+                + '}';
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.util.BackOff;
+import com.google.api.client.util.ExponentialBackOff;
+import com.google.api.client.util.NanoClock;
+import com.google.api.client.util.Sleeper;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Client-side protection shared by every request sent to one Google API: a token bucket rate limiter,
+ * a jittered exponential backoff on 429 responses, and on 5xx responses and I/O errors of the idempotent calls, and a
+ * circuit breaker.
+ */
+public final class ApiThrottle {
+    public static final class Builder {
+        private String name;
+        private double permitsPerSecond = 1.0;
+        private int maxRetries = 5;
+        private Duration initialBackOff = Duration.ofMillis(500);
+        private Duration maxBackOff = Duration.ofSeconds(32);
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private Sleeper sleeper = Sleeper.DEFAULT;
+        private NanoClock clock = NanoClock.SYSTEM;
+
+        public ApiThrottle build() {
+            return new ApiThrottle(this);
+        }
+
+        public Builder name(final String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder permitsPerSecond(final double permitsPerSecond) {
+            this.permitsPerSecond = permitsPerSecond;
+            return this;
+        }
+
+        public Builder maxRetries(final int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public Builder initialBackOff(final Duration initialBackOff) {
+            this.initialBackOff = initialBackOff;
+            return this;
+        }
+
+        public Builder maxBackOff(final Duration maxBackOff) {
+            this.maxBackOff = maxBackOff;
+            return this;
+        }
+
+        public Builder failureThreshold(final int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        public Builder openDuration(final Duration openDuration) {
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        public Builder sleeper(final Sleeper sleeper) {
+            this.sleeper = sleeper;
+            return this;
+        }
+
+        public Builder clock(final NanoClock clock) {
+            this.clock = clock;
+            return this;
+        }
+    }
+
+    private final String name;
+    private final RateLimiter rateLimiter;
+    private final int maxRetries;
+    private final Duration initialBackOff;
+    private final Duration maxBackOff;
+    private final Sleeper sleeper;
+    private final NanoClock clock;
+    private final CircuitBreaker circuitBreaker;
+    private final ApiMetrics metrics = new ApiMetrics();
+
+    private ApiThrottle(final Builder builder) {
+        Preconditions.checkArgument(builder.permitsPerSecond > 0, "permitsPerSecond must be positive");
+        Preconditions.checkArgument(builder.maxRetries >= 0, "maxRetries must not be negative");
+        this.name = requireNonNull(builder.name);
+        this.rateLimiter = RateLimiter.create(builder.permitsPerSecond);
+        this.maxRetries = builder.maxRetries;
+        this.initialBackOff = requireNonNull(builder.initialBackOff);
+        this.maxBackOff = requireNonNull(builder.maxBackOff);
+        this.sleeper = requireNonNull(builder.sleeper);
+        this.clock = requireNonNull(builder.clock);
+        this.circuitBreaker = new CircuitBreaker(builder.failureThreshold, builder.openDuration, clock);
+    }
+
+    public HttpRequestInitializer wrap(final HttpRequestInitializer initializer) {
+        requireNonNull(initializer);
+        return request -> {
+            initializer.initialize(request);
+            final ThrottledRequest throttled = new ThrottledRequest(this,
+                                                                    request.getInterceptor(),
+                                                                    request.getUnsuccessfulResponseHandler());
+            request.setInterceptor(throttled)
+                   .setUnsuccessfulResponseHandler(throttled)
+                   .setIOExceptionHandler(throttled)
+                   .setResponseInterceptor(throttled)
+                   .setNumberOfRetries(maxRetries);
+        };
+    }
+
+    /**
+     * Prepares a call sent as a part of an HTTP batch. The batch is throttled and retried as a single call, while
+     * each of its parts counts for the rate limit: the part is charged right away, and is sent again by the caller.
+     */
+    public HttpRequest batchPart(final HttpRequest request) {
+        if (request.getInterceptor() instanceof ThrottledRequest) {
+            ((ThrottledRequest) request.getInterceptor()).unwrap(request);
+        }
+        metrics.recordThrottleWait(rateLimiter.acquire());
+        metrics.recordAttempt();
+        return request;
+    }
+
+    /**
+     * Waits before sending again the parts of HTTP batches which failed on a rate limit or a server error, as long
+     * as a single call would be sent again.
+     *
+     * @param backOff the back-off of these parts, from {@link #newBackOff()}
+     * @param retries the number of times they were sent again already
+     * @param parts the number of parts sent again
+     * @return false when they are not to be sent again
+     */
+    public boolean backOffParts(final BackOff backOff, final int retries, final int parts) throws IOException {
+        if (retries >= maxRetries || !backOff(backOff, 0)) {
+            return false;
+        }
+        metrics.recordRetries(parts);
+        return true;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public double permitsPerSecond() {
+        return rateLimiter.getRate();
+    }
+
+    public ApiMetrics metrics() {
+        return metrics;
+    }
+
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    RateLimiter rateLimiter() {
+        return rateLimiter;
+    }
+
+    Sleeper sleeper() {
+        return sleeper;
+    }
+
+    /**
+     * Sleeps for the next back-off interval, at least the given one.
+     *
+     * @return false when the back-off gives up
+     */
+    boolean backOff(final BackOff backOff, final long minimumMillis) throws IOException {
+        final long millis = backOff.nextBackOffMillis();
+        if (millis == BackOff.STOP) {
+            return false;
+        }
+        try {
+            sleeper.sleep(Math.max(millis, minimumMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while backing off");
+        }
+        return true;
+    }
+
+    public BackOff newBackOff() {
+        return new ExponentialBackOff.Builder()
+                                     .setInitialIntervalMillis((int) initialBackOff.toMillis())
+                                     .setMaxIntervalMillis((int) maxBackOff.toMillis())
+                                     .setNanoClock(clock)
+                                     .build();
+    }
+}
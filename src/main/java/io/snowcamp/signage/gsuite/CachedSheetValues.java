@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+
+/**
+ * A spreadsheet range as stored in the cache, along with the version of the file it was read from.
+ */
+public final class CachedSheetValues extends GenericJson {
+    @Key
+    private String spreadsheetId;
+    @Key
+    private String range;
+    @Key
+    private Long version;
+    @Key
+    private Long validatedAt;
+    @Key
+    private java.util.List<java.util.List<Object>> rows;
+
+    public CachedSheetValues() {
+        // required by the JSON parser
+    }
+
+    CachedSheetValues(final String spreadsheetId,
+                      final String range,
+                      final Long version,
+                      final long validatedAt,
+                      final java.util.List<java.util.List<Object>> rows) {
+        this.spreadsheetId = requireNonNull(spreadsheetId);
+        this.range = requireNonNull(range);
+        this.version = version;
+        this.validatedAt = validatedAt;
+        this.rows = rows == null ? java.util.List.of() : rows;
+    }
+
+    Long version() {
+        return version;
+    }
+
+    long validatedAt() {
+        return validatedAt == null ? 0 : validatedAt;
+    }
+
+    java.util.List<java.util.List<Object>> rows() {
+        return rows;
+    }
+
+    CachedSheetValues validatedAt(final long validatedAt) {
+        return new CachedSheetValues(spreadsheetId, range, version, validatedAt, rows);
+    }
+}
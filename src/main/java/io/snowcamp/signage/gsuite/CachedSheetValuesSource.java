@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.Clock;
+import com.google.api.services.drive.Drive;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+
+/**
+ * Keeps the values of the spreadsheet ranges on disk and reads them again only when the spreadsheet changed.
+ * <p>
+ * A cached range younger than the TTL is used as is. Past the TTL, the Drive version of the spreadsheet is compared to
+ * the version the range was read from: a single metadata call instead of downloading the whole range.
+ */
+public final class CachedSheetValuesSource implements SheetValuesSource {
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private static final String VERSION_FIELDS = "version";
+
+    public static final class Builder {
+        private SheetValuesSource source;
+        private Drive googleDrive;
+        private Path directory;
+        private Duration ttl = Duration.ZERO;
+        private boolean forceRefresh;
+        private Clock clock = Clock.SYSTEM;
+
+        public CachedSheetValuesSource build() {
+            return new CachedSheetValuesSource(this);
+        }
+
+        public Builder source(final SheetValuesSource source) {
+            this.source = source;
+            return this;
+        }
+
+        public Builder googleDrive(final Drive googleDrive) {
+            this.googleDrive = googleDrive;
+            return this;
+        }
+
+        public Builder directory(final Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Uses the cached ranges validated less than {@code ttl} ago without checking the spreadsheet version. With the
+         * default, zero, every read of a cached range makes a Drive metadata call.
+         */
+        public Builder ttl(final Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Reads every range again, whatever the cache holds.
+         */
+        public Builder forceRefresh(final boolean forceRefresh) {
+            this.forceRefresh = forceRefresh;
+            return this;
+        }
+
+        public Builder clock(final Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+    }
+
+    private final SheetValuesSource source;
+    private final Drive googleDrive;
+    private final Path directory;
+    private final long ttlMillis;
+    private final boolean forceRefresh;
+    private final Clock clock;
+    private final CacheMetrics metrics = new CacheMetrics();
+
+    private CachedSheetValuesSource(final Builder builder) {
+        Preconditions.checkArgument(!builder.ttl.isNegative(), "ttl must not be negative");
+        this.source = requireNonNull(builder.source);
+        this.googleDrive = requireNonNull(builder.googleDrive);
+        this.directory = requireNonNull(builder.directory);
+        this.ttlMillis = builder.ttl.toMillis();
+        this.forceRefresh = builder.forceRefresh;
+        this.clock = requireNonNull(builder.clock);
+    }
+
+    @Override
+    public java.util.List<java.util.List<Object>> values(final String spreadsheetId, final String range)
+            throws IOException {
+        requireNonNull(spreadsheetId);
+        requireNonNull(range);
+
+        final Path path = entryPath(spreadsheetId, range);
+        final Option<CachedSheetValues> cached = forceRefresh ? Option.none() : read(path);
+        final long now = clock.currentTimeMillis();
+        if (cached.isDefined() && now - cached.get().validatedAt() < ttlMillis) {
+            metrics.recordHit();
+            return cached.get().rows();
+        }
+
+        // read before the values: a change in between is seen by the next run
+        final Long version = version(spreadsheetId);
+        if (cached.isDefined() && version != null && version.equals(cached.get().version())) {
+            metrics.recordHit();
+            write(path, cached.get().validatedAt(now));
+            return cached.get().rows();
+        }
+
+        metrics.recordMiss();
+        final CachedSheetValues values =
+                new CachedSheetValues(spreadsheetId, range, version, now, source.values(spreadsheetId, range));
+        write(path, values);
+        return values.rows();
+    }
+
+    public CacheMetrics metrics() {
+        return metrics;
+    }
+
+    private Long version(final String spreadsheetId) throws IOException {
+        metrics.recordValidation();
+        return googleDrive.files().get(spreadsheetId).setFields(VERSION_FIELDS).execute().getVersion();
+    }
+
+    private Path entryPath(final String spreadsheetId, final String range) {
+        final String key = Hashing.sha256().hashString(spreadsheetId + '\n' + range, UTF_8).toString();
+        return directory.resolve(key + ".json");
+    }
+
+    private static Option<CachedSheetValues> read(final Path path) {
+        if (!Files.exists(path)) {
+            return Option.none();
+        }
+        // an unreadable entry is a miss, it is overwritten by the next read
+        return Try.of(() -> {
+            try (Reader reader = Files.newBufferedReader(path, UTF_8)) {
+                return JSON_FACTORY.fromReader(reader, CachedSheetValues.class);
+            }
+        }).toOption();
+    }
+
+    private static void write(final Path path, final CachedSheetValues values) throws IOException {
+        Files.createDirectories(path.getParent());
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temporary, JSON_FACTORY.toByteArray(values));
+        Files.move(temporary, path, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+
+/**
+ * The latest version of a file, read from its metadata only.
+ */
+@FunctionalInterface
+public interface ChangeSource {
+    FileChange latest(String fileId) throws IOException;
+
+    /**
+     * The Drive version of the file, a single metadata call.
+     */
+    static ChangeSource of(final Drive googleDrive) {
+        requireNonNull(googleDrive);
+        return fileId -> {
+            final File file = googleDrive.files().get(fileId).setFields("version,modifiedTime").execute();
+            return new FileChange(file.getVersion(), Instant.ofEpochMilli(file.getModifiedTime().getValue()));
+        };
+    }
+
+    /**
+     * The last modification of a local file, the file id being its path.
+     */
+    static ChangeSource ofFiles() {
+        return path -> {
+            final Instant modifiedTime = Files.getLastModifiedTime(Paths.get(path)).toInstant();
+            return new FileChange(modifiedTime.toEpochMilli(), modifiedTime);
+        };
+    }
+}
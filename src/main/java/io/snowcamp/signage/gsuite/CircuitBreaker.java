@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+
+import com.google.api.client.util.NanoClock;
+import com.google.common.base.Preconditions;
+
+/**
+ * Opens after {@code failureThreshold} consecutive failures and rejects every call for {@code openDuration}.
+ * Then a single trial call is let through: it closes the circuit on success or re-opens it on failure.
+ */
+public final class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final NanoClock clock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(final int failureThreshold, final Duration openDuration, final NanoClock clock) {
+        Preconditions.checkArgument(failureThreshold > 0, "failureThreshold must be positive: %s", failureThreshold);
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = requireNonNull(openDuration).toNanos();
+        this.clock = requireNonNull(clock);
+    }
+
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.nanoTime() - openedAt < openDurationNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.nanoTime();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.extensions.java6.auth.oauth2.AuthorizationCodeInstalledApp;
+import com.google.api.client.extensions.jetty.auth.oauth2.LocalServerReceiver;
+import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
+import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.util.store.DataStoreFactory;
+import com.google.common.hash.Hashing;
+
+/**
+ * Where the credential of the Google clients comes from.
+ * <p>
+ * Only {@link #installedApp(String)} asks for a browser. The service account and the refresh token are meant for
+ * unattended runs: their access tokens are kept in the token store, and used again by the next run as long as they
+ * are valid.
+ */
+@FunctionalInterface
+public interface CredentialProvider {
+    Credential credential(HttpTransport transport,
+                          JsonFactory jsonFactory,
+                          Collection<String> scopes,
+                          DataStoreFactory tokens) throws IOException;
+
+    /**
+     * Authorizes the user in a browser the first time, through a local server on port 8888.
+     *
+     * @param clientSecretsPath class path resource of the OAuth client secrets
+     */
+    static CredentialProvider installedApp(final String clientSecretsPath) {
+        requireNonNull(clientSecretsPath);
+        return (transport, jsonFactory, scopes, tokens) -> {
+            final GoogleAuthorizationCodeFlow flow =
+                    new GoogleAuthorizationCodeFlow.Builder(transport, jsonFactory,
+                                                            clientSecrets(clientSecretsPath, jsonFactory), scopes)
+                            .setDataStoreFactory(tokens)
+                            .setAccessType("offline").build();
+            final LocalServerReceiver receiver = new LocalServerReceiver.Builder().setPort(8888).build();
+            return new AuthorizationCodeInstalledApp(flow, receiver).authorize("user");
+        };
+    }
+
+    /**
+     * Signs in as the service account of the given JSON key. The presentations, the folder and the spreadsheet must
+     * be shared with its email.
+     */
+    static CredentialProvider serviceAccount(final Path keyFile) {
+        requireNonNull(keyFile);
+        return (transport, jsonFactory, scopes, tokens) -> {
+            final GoogleCredential key;
+            try (InputStream in = Files.newInputStream(keyFile)) {
+                key = GoogleCredential.fromStream(in, transport, jsonFactory);
+            }
+            final StoredTokens storedTokens = StoredTokens.of(tokens, "service-" + key.getServiceAccountId());
+            return storedTokens.restore(new GoogleCredential.Builder()
+                                                .setTransport(transport)
+                                                .setJsonFactory(jsonFactory)
+                                                .setServiceAccountId(key.getServiceAccountId())
+                                                .setServiceAccountPrivateKey(key.getServiceAccountPrivateKey())
+                                                .setServiceAccountPrivateKeyId(key.getServiceAccountPrivateKeyId())
+                                                .setServiceAccountScopes(scopes)
+                                                .setTokenServerEncodedUrl(key.getTokenServerEncodedUrl())
+                                                .addRefreshListener(storedTokens.listener())
+                                                .build());
+        };
+    }
+
+    /**
+     * Uses a refresh token provisioned beforehand, for instance by a first {@link #installedApp(String)} run on
+     * another machine. Its scopes are the ones it was granted.
+     *
+     * @param clientSecretsPath class path resource of the OAuth client secrets the token was issued to
+     */
+    static CredentialProvider refreshToken(final String clientSecretsPath, final String refreshToken) {
+        requireNonNull(clientSecretsPath);
+        requireNonNull(refreshToken);
+        return (transport, jsonFactory, scopes, tokens) -> {
+            // the access tokens of another refresh token are not used
+            final StoredTokens storedTokens =
+                    StoredTokens.of(tokens, "refresh-" + Hashing.sha256()
+                                                                .hashString(refreshToken, StandardCharsets.UTF_8)
+                                                                .toString()
+                                                                .substring(0, 16));
+            final GoogleCredential credential =
+                    new GoogleCredential.Builder()
+                            .setTransport(transport)
+                            .setJsonFactory(jsonFactory)
+                            .setClientSecrets(clientSecrets(clientSecretsPath, jsonFactory))
+                            .addRefreshListener(storedTokens.listener())
+                            .build();
+            return storedTokens.restore(credential.setRefreshToken(refreshToken));
+        };
+    }
+
+    private static GoogleClientSecrets clientSecrets(final String clientSecretsPath, final JsonFactory jsonFactory)
+            throws IOException {
+        final InputStream in = CredentialProvider.class.getResourceAsStream(clientSecretsPath);
+        if (in == null) {
+            throw new IOException("no OAuth client secrets at " + clientSecretsPath);
+        }
+        try (InputStreamReader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return GoogleClientSecrets.load(jsonFactory, reader);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+
+/**
+ * Parses date times with a formatter, each distinct text once: the sessions of a schedule share a few start and end
+ * times. Not thread safe, meant to be used for one parsing.
+ */
+public final class DateTimeCache {
+    private final DateTimeFormatter formatter;
+    private final java.util.Map<String, LocalDateTime> dateTimes = new HashMap<>();
+
+    public DateTimeCache(final DateTimeFormatter formatter) {
+        this.formatter = requireNonNull(formatter);
+    }
+
+    public LocalDateTime parse(final String text) {
+        requireNonNull(text);
+        final LocalDateTime dateTime = dateTimes.get(text);
+        if (dateTime != null) {
+            return dateTime;
+        }
+        final LocalDateTime parsed = LocalDateTime.parse(text, formatter);
+        dateTimes.put(text, parsed);
+        return parsed;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Instant;
+
+/**
+ * A version of a watched file, and when it was modified: the versions of a file only grow.
+ */
+public final class FileChange {
+    private final long version;
+    private final Instant modifiedTime;
+
+    public FileChange(final long version, final Instant modifiedTime) {
+        this.version = version;
+        this.modifiedTime = requireNonNull(modifiedTime);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Instant modifiedTime() {
+        return modifiedTime;
+    }
+
+    @Override
+    public String toString() {
+        return "FileChange{"
+                + "version="
+                + version
+                + ", modifiedTime="
+                + modifiedTime
+                + '}';
+    }
+}
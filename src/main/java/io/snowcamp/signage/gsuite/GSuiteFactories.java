@@ -15,73 +15,27 @@
  */
 package io.snowcamp.signage.gsuite;
 
-import static com.google.api.client.googleapis.javanet.GoogleNetHttpTransport.newTrustedTransport;
-import static com.google.api.services.slides.v1.SlidesScopes.*;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.security.GeneralSecurityException;
-import java.util.List;
-
-import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.extensions.java6.auth.oauth2.AuthorizationCodeInstalledApp;
-import com.google.api.client.extensions.jetty.auth.oauth2.LocalServerReceiver;
-import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
-import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
-import com.google.api.client.json.jackson2.JacksonFactory;
-import com.google.api.client.util.store.FileDataStoreFactory;
-import com.google.api.services.drive.Drive;
-import com.google.api.services.sheets.v4.Sheets;
-import com.google.api.services.slides.v1.Slides;
-import com.google.common.collect.ImmutableList;
-
+/**
+ * The throttles of the Google APIs, sized after their quotas. The clients themselves come from {@link GoogleClients}.
+ */
 public final class GSuiteFactories {
-    private static final String APPLICATION_NAME = "SnowCamp Signage Generator";
-    private static final String GSLIDES_CREDENTIALS_FILE_PATH = "/credentials.json";
-    private static final String GSLIDES_TOKENS_DIRECTORY_PATH = "tokens";
-    private static final List<String> SCOPES = ImmutableList.of(PRESENTATIONS, DRIVE, SPREADSHEETS_READONLY);
-    private static final JacksonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    // per user quotas: Slides 60 requests per minute, Sheets 100 and Drive 1000 requests per 100 seconds
+    private static final double SLIDES_PERMITS_PER_SECOND = 1;
+    private static final double DRIVE_PERMITS_PER_SECOND = 10;
+    private static final double SHEETS_PERMITS_PER_SECOND = 1;
 
     private GSuiteFactories() {
     }
 
-    public static Slides googleSlides() throws IOException, GeneralSecurityException {
-        return new Slides.Builder(newTrustedTransport(),
-                                  JSON_FACTORY,
-                                  credential(GSLIDES_CREDENTIALS_FILE_PATH, GSLIDES_TOKENS_DIRECTORY_PATH))
-                         .setApplicationName(APPLICATION_NAME)
-                         .build();
+    public static ApiThrottle slidesThrottle() {
+        return new ApiThrottle.Builder().name("slides").permitsPerSecond(SLIDES_PERMITS_PER_SECOND).build();
     }
 
-    public static Drive googleDrive() throws IOException, GeneralSecurityException {
-        return new Drive.Builder(newTrustedTransport(),
-                                 JSON_FACTORY,
-                                 credential(GSLIDES_CREDENTIALS_FILE_PATH, GSLIDES_TOKENS_DIRECTORY_PATH))
-                        .setApplicationName(APPLICATION_NAME)
-                        .build();
+    public static ApiThrottle driveThrottle() {
+        return new ApiThrottle.Builder().name("drive").permitsPerSecond(DRIVE_PERMITS_PER_SECOND).build();
     }
 
-    public static Sheets googleSheets() throws IOException, GeneralSecurityException {
-        return new Sheets.Builder(newTrustedTransport(),
-                                  JSON_FACTORY,
-                                  credential(GSLIDES_CREDENTIALS_FILE_PATH, GSLIDES_TOKENS_DIRECTORY_PATH))
-                         .setApplicationName(APPLICATION_NAME)
-                         .build();
-    }
-
-    private static Credential credential(final String credentialsPath, final String tokensPath)
-            throws IOException, GeneralSecurityException {
-        // Load client secrets.
-        InputStream in = GSuiteFactories.class.getResourceAsStream(credentialsPath);
-        GoogleClientSecrets clientSecrets = GoogleClientSecrets.load(JSON_FACTORY, new InputStreamReader(in));
-
-        // Build flow and trigger user authorization request.
-        GoogleAuthorizationCodeFlow flow =
-                new GoogleAuthorizationCodeFlow.Builder(newTrustedTransport(), JSON_FACTORY, clientSecrets, SCOPES)
-                        .setDataStoreFactory(new FileDataStoreFactory(new java.io.File(tokensPath)))
-                        .setAccessType("offline").build();
-        LocalServerReceiver receiver = new LocalServerReceiver.Builder().setPort(8888).build();
-        return new AuthorizationCodeInstalledApp(flow, receiver).authorize("user");
+    public static ApiThrottle sheetsThrottle() {
+        return new ApiThrottle.Builder().name("sheets").permitsPerSecond(SHEETS_PERMITS_PER_SECOND).build();
     }
 }
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static com.google.api.services.slides.v1.SlidesScopes.*;
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.googleapis.GoogleUtils;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.SslUtils;
+import com.google.api.client.util.store.FileDataStoreFactory;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.slides.v1.Slides;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.snowcamp.signage.metrics.MetricsRegistry;
+import io.vavr.control.Option;
+
+/**
+ * The transport and the credential shared by the Slides, Drive and Sheets clients.
+ * <p>
+ * The credential is authorized once. Its access token is refreshed in the background a few minutes before it expires,
+ * and upfront when it is missing or about to expire: the calls do not wait for it. The clients share one pool of
+ * connections of the Apache HTTP client, kept alive from one call to the next, or with {@link Builder#http2(boolean)}
+ * a single HTTP/2 connection per host.
+ * <p>
+ * With {@link Builder#rootUrl(String)}, the clients call a stand-in of the Google APIs instead, anonymously.
+ */
+public final class GoogleClients implements AutoCloseable {
+    public static final int DEFAULT_MAX_CONNECTIONS = 16;
+    private static final String APPLICATION_NAME = "SnowCamp Signage Generator";
+    private static final java.util.List<String> SCOPES = ImmutableList.of(PRESENTATIONS, DRIVE, SPREADSHEETS_READONLY);
+    private static final JacksonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    // the credential refreshes its token on its own, during a call, a minute before it expires
+    private static final long REFRESH_AHEAD_SECONDS = TimeUnit.MINUTES.toSeconds(5);
+    private static final long REFRESH_RETRY_SECONDS = 30;
+    // a token living less than the refresh ahead is not refreshed again and again
+    private static final long MIN_REFRESH_DELAY_SECONDS = 30;
+    // Slides, Drive, Sheets and the OAuth token endpoint
+    private static final int HOSTS = 4;
+    private static final String TRANSPORT_STAGE = "transport";
+    private static final String CREDENTIAL_STAGE = "credential";
+    private static final String REFRESH_STAGE = "refresh";
+    private static final HttpRequestInitializer ANONYMOUS = request -> {
+    };
+
+    public static final class Builder {
+        private CredentialProvider credentialProvider = CredentialProvider.installedApp("/credentials.json");
+        private String tokensDirectory = "tokens";
+        private boolean http2;
+        private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+        private Duration connectTimeout = Duration.ofSeconds(20);
+        private String rootUrl;
+
+        public GoogleClients build() throws IOException, GeneralSecurityException {
+            return new GoogleClients(this);
+        }
+
+        public Builder credentialProvider(final CredentialProvider credentialProvider) {
+            this.credentialProvider = credentialProvider;
+            return this;
+        }
+
+        /**
+         * The directory where the tokens are kept from one run to the next.
+         */
+        public Builder tokensDirectory(final String tokensDirectory) {
+            this.tokensDirectory = tokensDirectory;
+            return this;
+        }
+
+        public Builder http2(final boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        /**
+         * The connections open at the same time to each host, kept alive between calls, over HTTP/1.1.
+         */
+        public Builder maxConnections(final int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Builder connectTimeout(final Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sends the calls to the given server, such as {@code http://localhost:<port>/}, instead of Google. The paths
+         * are the ones of Google; no credential is authorized, the calls are anonymous.
+         */
+        public Builder rootUrl(final String rootUrl) {
+            this.rootUrl = rootUrl;
+            return this;
+        }
+    }
+
+    private final HttpTransport transport;
+    private final Option<String> rootUrl;
+    private final Option<Credential> credential;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final ScheduledExecutorService refresher =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("credential-refresh")
+                                                                                 .setDaemon(true)
+                                                                                 .build());
+
+    private GoogleClients(final Builder builder) throws IOException, GeneralSecurityException {
+        final long transportStart = System.nanoTime();
+        if (builder.http2) {
+            this.transport = new JdkHttpTransport(builder.connectTimeout);
+        } else {
+            this.transport = pooledTransport(builder.maxConnections, builder.connectTimeout);
+        }
+        metrics.recordLatency(TRANSPORT_STAGE, transportStart);
+        this.rootUrl = Option.of(builder.rootUrl);
+        if (rootUrl.isDefined()) {
+            this.credential = Option.none();
+            return;
+        }
+
+        final long credentialStart = System.nanoTime();
+        this.credential = Option.some(builder.credentialProvider.credential(
+                transport, JSON_FACTORY, SCOPES, new FileDataStoreFactory(new File(builder.tokensDirectory))));
+        if (isExpiring()) {
+            credential.get().refreshToken();
+        }
+        metrics.recordLatency(CREDENTIAL_STAGE, credentialStart);
+        scheduleRefresh(refreshDelaySeconds());
+    }
+
+    private static HttpTransport pooledTransport(final int maxConnections, final Duration connectTimeout)
+            throws IOException, GeneralSecurityException {
+        final SSLContext sslContext = SslUtils.initSslContext(SslUtils.getTlsSslContext(),
+                                                              GoogleUtils.getCertificateTrustStore(),
+                                                              SslUtils.getPkixTrustManagerFactory());
+        final PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                               .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                               .register("https", new SSLConnectionSocketFactory(sslContext))
+                               .build());
+        connections.setMaxTotal(HOSTS * maxConnections);
+        connections.setDefaultMaxPerRoute(maxConnections);
+        // the redirects and the retries are left to the Google clients
+        return new ApacheHttpTransport(HttpClientBuilder.create()
+                                                        .setConnectionManager(connections)
+                                                        .setDefaultRequestConfig(RequestConfig.custom()
+                                                                .setConnectTimeout((int) connectTimeout.toMillis())
+                                                                .build())
+                                                        .setRoutePlanner(new SystemDefaultRoutePlanner(
+                                                                ProxySelector.getDefault()))
+                                                        .disableRedirectHandling()
+                                                        .disableAutomaticRetries()
+                                                        .build());
+    }
+
+    public Slides slides(final ApiThrottle throttle) {
+        final Slides.Builder builder = new Slides.Builder(transport, JSON_FACTORY, initializer(throttle));
+        rootUrl.forEach(builder::setRootUrl);
+        return builder.setApplicationName(APPLICATION_NAME).build();
+    }
+
+    public Drive drive(final ApiThrottle throttle) {
+        final Drive.Builder builder = new Drive.Builder(transport, JSON_FACTORY, initializer(throttle));
+        rootUrl.forEach(builder::setRootUrl);
+        return builder.setApplicationName(APPLICATION_NAME).build();
+    }
+
+    public Sheets sheets(final ApiThrottle throttle) {
+        final Sheets.Builder builder = new Sheets.Builder(transport, JSON_FACTORY, initializer(throttle));
+        rootUrl.forEach(builder::setRootUrl);
+        return builder.setApplicationName(APPLICATION_NAME).build();
+    }
+
+    /**
+     * The time spent creating the transport, authorizing the credential and refreshing its token.
+     */
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    private HttpRequestInitializer initializer(final ApiThrottle throttle) {
+        return throttle.wrap(Option.<HttpRequestInitializer>narrow(credential).getOrElse(ANONYMOUS));
+    }
+
+    private boolean isExpiring() {
+        final Long expiresInSeconds = credential.get().getExpiresInSeconds();
+        return expiresInSeconds == null || expiresInSeconds <= REFRESH_AHEAD_SECONDS;
+    }
+
+    private long refreshDelaySeconds() {
+        final Long expiresInSeconds = credential.get().getExpiresInSeconds();
+        return expiresInSeconds == null
+               ? MIN_REFRESH_DELAY_SECONDS
+               : Math.max(MIN_REFRESH_DELAY_SECONDS, expiresInSeconds - REFRESH_AHEAD_SECONDS);
+    }
+
+    private void scheduleRefresh(final long delaySeconds) {
+        refresher.schedule(this::refresh, delaySeconds, TimeUnit.SECONDS);
+    }
+
+    private void refresh() {
+        final long start = System.nanoTime();
+        try {
+            if (credential.get().refreshToken()) {
+                metrics.recordLatency(REFRESH_STAGE, start);
+                scheduleRefresh(refreshDelaySeconds());
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError(e);
+        }
+        // the calls still refresh the token on their own meanwhile
+        scheduleRefresh(REFRESH_RETRY_SECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        refresher.shutdownNow();
+        transport.shutdown();
+    }
+}
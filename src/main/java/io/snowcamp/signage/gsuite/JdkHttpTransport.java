@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Set;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+
+/**
+ * A transport sending the requests of the Google clients with the JDK {@link HttpClient}: HTTP/2 when the server
+ * accepts it, so the requests to one host are multiplexed on a single connection.
+ */
+final class JdkHttpTransport extends HttpTransport {
+    // set by the JDK client itself
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host",
+                                                                 "upgrade");
+    private final HttpClient client;
+
+    JdkHttpTransport(final Duration connectTimeout) {
+        this.client = HttpClient.newBuilder()
+                                .version(HttpClient.Version.HTTP_2)
+                                .connectTimeout(requireNonNull(connectTimeout))
+                                .followRedirects(HttpClient.Redirect.NORMAL)
+                                .build();
+    }
+
+    @Override
+    protected LowLevelHttpRequest buildRequest(final String method, final String url) {
+        return new JdkRequest(method, url);
+    }
+
+    private final class JdkRequest extends LowLevelHttpRequest {
+        private final HttpRequest.Builder request;
+        private final String method;
+
+        private JdkRequest(final String method, final String url) {
+            this.request = HttpRequest.newBuilder(URI.create(url));
+            this.method = method;
+        }
+
+        @Override
+        public void addHeader(final String name, final String value) {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                request.header(name, value);
+            }
+        }
+
+        @Override
+        public void setTimeout(final int connectTimeout, final int readTimeout) {
+            if (readTimeout > 0) {
+                request.timeout(Duration.ofMillis(readTimeout));
+            }
+        }
+
+        @Override
+        public LowLevelHttpResponse execute() throws IOException {
+            if (getContentType() != null) {
+                request.header("Content-Type", getContentType());
+            }
+            if (getContentEncoding() != null) {
+                request.header("Content-Encoding", getContentEncoding());
+            }
+            request.method(method, body());
+            try {
+                return new JdkResponse(client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for " + method + " response");
+            }
+        }
+
+        private HttpRequest.BodyPublisher body() throws IOException {
+            if (getStreamingContent() == null) {
+                return HttpRequest.BodyPublishers.noBody();
+            }
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            getStreamingContent().writeTo(content);
+            return HttpRequest.BodyPublishers.ofByteArray(content.toByteArray());
+        }
+    }
+
+    private static final class JdkResponse extends LowLevelHttpResponse {
+        private final HttpResponse<InputStream> response;
+        private final java.util.List<String> headerNames = new ArrayList<>();
+        private final java.util.List<String> headerValues = new ArrayList<>();
+
+        private JdkResponse(final HttpResponse<InputStream> response) {
+            this.response = response;
+            response.headers().map().forEach((name, values) -> values.forEach(value -> {
+                headerNames.add(name);
+                headerValues.add(value);
+            }));
+        }
+
+        @Override
+        public InputStream getContent() {
+            return response.body();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return response.headers().firstValue("Content-Encoding").orElse(null);
+        }
+
+        @Override
+        public long getContentLength() {
+            return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        }
+
+        @Override
+        public String getContentType() {
+            return response.headers().firstValue("Content-Type").orElse(null);
+        }
+
+        @Override
+        public String getStatusLine() {
+            return (response.version() == HttpClient.Version.HTTP_2 ? "HTTP/2 " : "HTTP/1.1 ") + getStatusCode();
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public String getReasonPhrase() {
+            // not available from the JDK client
+            return null;
+        }
+
+        @Override
+        public int getHeaderCount() {
+            return headerNames.size();
+        }
+
+        @Override
+        public String getHeaderName(final int index) {
+            return headerNames.get(index);
+        }
+
+        @Override
+        public String getHeaderValue(final int index) {
+            return headerValues.get(index);
+        }
+
+        @Override
+        public void disconnect() throws IOException {
+            response.body().close();
+        }
+    }
+}
@@ -19,34 +19,44 @@ import static java.util.Objects.requireNonNull;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.RandomAccess;
 
-import io.vavr.collection.List;
 import io.vavr.control.Option;
 
+/**
+ * The cells of a spreadsheet row, with constant time access by index.
+ */
 public final class Row {
-    private final List<Object> row;
+    private final java.util.List<?> cells;
 
-    public Row(final List<Object> row) {
-        this.row = requireNonNull(row);
+    public Row(final java.util.List<?> cells) {
+        requireNonNull(cells);
+        this.cells = cells instanceof RandomAccess ? cells : new ArrayList<>(cells);
     }
 
     public int size() {
-        return row.size();
+        return cells.size();
     }
 
     public String getAsString(final int index) {
-        return getAsOptionalString(index).getOrNull();
+        final Object cell = cells.get(index);
+        return cell == null ? null : cell.toString();
     }
 
     public LocalDateTime getAsLocalDateTime(final int index, final DateTimeFormatter formatter) {
         requireNonNull(formatter);
-        return getAsOptionalString(index)
-                   .map(s -> LocalDateTime.parse(s, formatter))
-                   .getOrNull();
+        final String cell = getAsString(index);
+        return cell == null ? null : LocalDateTime.parse(cell, formatter);
     }
 
-    public Option<String> getAsOptionalString(final int index) {
-        return Option.of(row.get(index)).map(Object::toString);
+    public LocalDateTime getAsLocalDateTime(final int index, final DateTimeCache dateTimes) {
+        requireNonNull(dateTimes);
+        final String cell = getAsString(index);
+        return cell == null ? null : dateTimes.parse(cell);
     }
 
+    public Option<String> getAsOptionalString(final int index) {
+        return Option.of(getAsString(index));
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+
+import com.google.api.services.sheets.v4.Sheets;
+
+/**
+ * The raw values of a spreadsheet range, row by row.
+ */
+@FunctionalInterface
+public interface SheetValuesSource {
+    java.util.List<java.util.List<Object>> values(String spreadsheetId, String range) throws IOException;
+
+    static SheetValuesSource of(final Sheets googleSheets) {
+        requireNonNull(googleSheets);
+        return (spreadsheetId, range) -> googleSheets.spreadsheets()
+                                                     .values()
+                                                     .get(spreadsheetId, range)
+                                                     .execute()
+                                                     .getValues();
+    }
+}
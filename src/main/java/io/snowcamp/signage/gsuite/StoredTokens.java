@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.auth.oauth2.CredentialRefreshListener;
+import com.google.api.client.auth.oauth2.DataStoreCredentialRefreshListener;
+import com.google.api.client.auth.oauth2.StoredCredential;
+import com.google.api.client.util.store.DataStore;
+import com.google.api.client.util.store.DataStoreFactory;
+
+/**
+ * The access token of a credential, saved on each refresh and restored by the next run.
+ */
+final class StoredTokens {
+    // a restored token shorter lived than that would be refreshed right away
+    private static final long MIN_VALIDITY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final DataStore<StoredCredential> store;
+    private final String key;
+
+    private StoredTokens(final DataStore<StoredCredential> store, final String key) {
+        this.store = requireNonNull(store);
+        this.key = requireNonNull(key);
+    }
+
+    static StoredTokens of(final DataStoreFactory tokens, final String key) throws IOException {
+        return new StoredTokens(StoredCredential.getDefaultDataStore(tokens), key);
+    }
+
+    CredentialRefreshListener listener() {
+        return new DataStoreCredentialRefreshListener(key, store);
+    }
+
+    /**
+     * Gives the credential the saved access token, when it is still valid.
+     */
+    <C extends Credential> C restore(final C credential) throws IOException {
+        final StoredCredential stored = store.get(key);
+        if (stored == null || stored.getAccessToken() == null || stored.getExpirationTimeMilliseconds() == null) {
+            return credential;
+        }
+        final long validityMillis = stored.getExpirationTimeMilliseconds()
+                - credential.getClock().currentTimeMillis();
+        if (validityMillis >= MIN_VALIDITY_MILLIS) {
+            credential.setAccessToken(stored.getAccessToken());
+            credential.setExpirationTimeMilliseconds(stored.getExpirationTimeMilliseconds());
+        }
+        return credential;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpIOExceptionHandler;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseInterceptor;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+import com.google.api.client.util.BackOff;
+import com.google.common.primitives.Longs;
+
+final class ThrottledRequest implements HttpExecuteInterceptor,
+                                        HttpUnsuccessfulResponseHandler,
+                                        HttpIOExceptionHandler,
+                                        HttpResponseInterceptor {
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int CLIENT_ERRORS = 400;
+    // a call whose answer is lost, or failed on a server error, may have been applied: only those applied once whatever
+    // their number are sent again
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "PUT", "DELETE");
+
+    private final ApiThrottle throttle;
+    private final HttpExecuteInterceptor interceptor;
+    private final HttpUnsuccessfulResponseHandler unsuccessfulResponseHandler;
+    private final BackOff backOff;
+
+    ThrottledRequest(final ApiThrottle throttle,
+                     final HttpExecuteInterceptor interceptor,
+                     final HttpUnsuccessfulResponseHandler unsuccessfulResponseHandler) {
+        this.throttle = requireNonNull(throttle);
+        this.interceptor = interceptor;
+        this.unsuccessfulResponseHandler = unsuccessfulResponseHandler;
+        this.backOff = throttle.newBackOff();
+    }
+
+    @Override
+    public void intercept(final HttpRequest request) throws IOException {
+        if (!throttle.circuitBreaker().tryAcquire()) {
+            throttle.metrics().recordRejection();
+            throw new CircuitOpenException(throttle.name());
+        }
+        throttle.metrics().recordThrottleWait(throttle.rateLimiter().acquire());
+        throttle.metrics().recordAttempt();
+        if (interceptor != null) {
+            interceptor.intercept(request);
+        }
+    }
+
+    @Override
+    public boolean handleResponse(final HttpRequest request,
+                                  final HttpResponse response,
+                                  final boolean supportsRetry) throws IOException {
+        if (unsuccessfulResponseHandler != null
+                && unsuccessfulResponseHandler.handleResponse(request, response, supportsRetry)) {
+            return true;
+        }
+        final int statusCode = response.getStatusCode();
+        if (isRetryable(statusCode)) {
+            throttle.circuitBreaker().onFailure();
+            // a rate limit rejects the call before it is applied
+            if (supportsRetry
+                    && (statusCode == TOO_MANY_REQUESTS || IDEMPOTENT_METHODS.contains(request.getRequestMethod()))
+                    && backOff(retryAfterMillis(response))) {
+                return true;
+            }
+        }
+        if (statusCode >= CLIENT_ERRORS) {
+            // the call fails with this answer, a redirect is still followed
+            throttle.metrics().recordFailure();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean handleIOException(final HttpRequest request, final boolean supportsRetry) throws IOException {
+        throttle.circuitBreaker().onFailure();
+        if (supportsRetry && IDEMPOTENT_METHODS.contains(request.getRequestMethod()) && backOff(0)) {
+            return true;
+        }
+        throttle.metrics().recordFailure();
+        return false;
+    }
+
+    @Override
+    public void interceptResponse(final HttpResponse response) {
+        if (response.isSuccessStatusCode() || !isRetryable(response.getStatusCode())) {
+            // the API answered, whatever the answer it is healthy
+            throttle.circuitBreaker().onSuccess();
+        }
+    }
+
+    /**
+     * Restores the handlers the request had before being throttled.
+     */
+    void unwrap(final HttpRequest request) {
+        request.setInterceptor(interceptor)
+               .setUnsuccessfulResponseHandler(unsuccessfulResponseHandler)
+               .setIOExceptionHandler(null)
+               .setResponseInterceptor(null);
+    }
+
+    private boolean backOff(final long minimumMillis) throws IOException {
+        if (!throttle.backOff(backOff, minimumMillis)) {
+            return false;
+        }
+        throttle.metrics().recordRetry();
+        return true;
+    }
+
+    private static boolean isRetryable(final int statusCode) {
+        return statusCode == TOO_MANY_REQUESTS || statusCode >= 500;
+    }
+
+    private static long retryAfterMillis(final HttpResponse response) {
+        final String retryAfter = response.getHeaders().getRetryAfter();
+        if (retryAfter == null) {
+            return 0;
+        }
+        final Long seconds = Longs.tryParse(retryAfter.trim());
+        return seconds == null ? 0 : TimeUnit.SECONDS.toMillis(seconds);
+    }
+}
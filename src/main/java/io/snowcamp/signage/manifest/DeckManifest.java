@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.manifest;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+
+import io.vavr.collection.List;
+
+/**
+ * The state of one generated presentation, its slides being listed in the order they are displayed.
+ */
+public final class DeckManifest extends GenericJson {
+    @Key
+    private String presentationId;
+    @Key
+    private java.util.List<SlideManifest> slides;
+
+    public DeckManifest() {
+        // required by the JSON parser
+    }
+
+    public DeckManifest(final String presentationId, final List<SlideManifest> slides) {
+        this.presentationId = requireNonNull(presentationId);
+        this.slides = new java.util.ArrayList<>(slides.asJava());
+    }
+
+    public String presentationId() {
+        return presentationId;
+    }
+
+    public List<SlideManifest> slides() {
+        return slides == null ? List.empty() : List.ofAll(slides);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.manifest;
+
+import static java.util.Objects.requireNonNull;
+
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+
+/**
+ * How far the generation of a deck went before it stopped: its copy of the template, then the requests it was being
+ * filled with and how many of their batches were applied.
+ */
+public final class DeckProgress {
+    private final String presentationId;
+    private final Option<String> templateSlideId;
+    private final List<String> slideIds;
+    private final Option<String> requestsHash;
+    private final int appliedBatches;
+
+    DeckProgress(final String presentationId) {
+        this(presentationId, Option.none(), List.empty(), Option.none(), 0);
+    }
+
+    private DeckProgress(final String presentationId,
+                         final Option<String> templateSlideId,
+                         final List<String> slideIds,
+                         final Option<String> requestsHash,
+                         final int appliedBatches) {
+        this.presentationId = requireNonNull(presentationId);
+        this.templateSlideId = requireNonNull(templateSlideId);
+        this.slideIds = requireNonNull(slideIds);
+        this.requestsHash = requireNonNull(requestsHash);
+        this.appliedBatches = appliedBatches;
+    }
+
+    DeckProgress withRequests(final String templateSlideId, final List<String> slideIds, final String requestsHash) {
+        return new DeckProgress(presentationId, Option.of(templateSlideId), slideIds, Option.of(requestsHash), 0);
+    }
+
+    DeckProgress withAppliedBatches(final int appliedBatches) {
+        return new DeckProgress(presentationId, templateSlideId, slideIds, requestsHash, appliedBatches);
+    }
+
+    public String presentationId() {
+        return presentationId;
+    }
+
+    /**
+     * The template slide the requests duplicate, none until they are sent.
+     */
+    public Option<String> templateSlideId() {
+        return templateSlideId;
+    }
+
+    public List<String> slideIds() {
+        return slideIds;
+    }
+
+    public Option<String> requestsHash() {
+        return requestsHash;
+    }
+
+    public int appliedBatches() {
+        return appliedBatches;
+    }
+
+    @Override
+    public String toString() {
+        return "DeckProgress{"
+                + "presentationId='"
+                + presentationId
+                + '\''
+                + ", slides="
+                + slideIds.size()
+                + ", appliedBatches="
+                + appliedBatches
+                + '}';
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.manifest;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+
+/**
+ * One line of the {@link RunJournal}: a step of the generation of a deck, done.
+ */
+public final class JournalRecord extends GenericJson {
+    static final String COPIED = "copied";
+    static final String REQUESTS = "requests";
+    static final String BATCH = "batch";
+    static final String DONE = "done";
+    @Key
+    private String deck;
+    @Key
+    private String step;
+    @Key
+    private String presentationId;
+    @Key
+    private String templateSlideId;
+    @Key
+    private java.util.List<String> slideIds;
+    @Key
+    private String requestsHash;
+    @Key
+    private Integer batch;
+
+    public JournalRecord() {
+        // required by the JSON parser
+    }
+
+    static JournalRecord copied(final String deck, final String presentationId) {
+        final JournalRecord record = step(deck, COPIED);
+        record.presentationId = presentationId;
+        return record;
+    }
+
+    static JournalRecord requests(final String deck,
+                                  final String templateSlideId,
+                                  final java.util.List<String> slideIds,
+                                  final String requestsHash) {
+        final JournalRecord record = step(deck, REQUESTS);
+        record.templateSlideId = templateSlideId;
+        record.slideIds = slideIds;
+        record.requestsHash = requestsHash;
+        return record;
+    }
+
+    static JournalRecord batch(final String deck, final int batch) {
+        final JournalRecord record = step(deck, BATCH);
+        record.batch = batch;
+        return record;
+    }
+
+    static JournalRecord done(final String deck) {
+        return step(deck, DONE);
+    }
+
+    private static JournalRecord step(final String deck, final String step) {
+        final JournalRecord record = new JournalRecord();
+        record.deck = deck;
+        record.step = step;
+        return record;
+    }
+
+    String deck() {
+        return deck;
+    }
+
+    String step() {
+        return step;
+    }
+
+    String presentationId() {
+        return presentationId;
+    }
+
+    String templateSlideId() {
+        return templateSlideId;
+    }
+
+    java.util.List<String> slideIds() {
+        return slideIds;
+    }
+
+    String requestsHash() {
+        return requestsHash;
+    }
+
+    Integer batch() {
+        return batch;
+    }
+}
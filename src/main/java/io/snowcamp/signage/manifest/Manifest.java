@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.manifest;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+
+import io.vavr.control.Option;
+
+/**
+ * The last generated state of every presentation, by deck key.
+ */
+public final class Manifest extends GenericJson {
+    @Key
+    private java.util.Map<String, DeckManifest> decks = new java.util.TreeMap<>();
+
+    public synchronized Option<DeckManifest> deck(final String deckKey) {
+        requireNonNull(deckKey);
+        return Option.of(decks.get(deckKey));
+    }
+
+    public synchronized void putDeck(final String deckKey, final DeckManifest deck) {
+        decks.put(requireNonNull(deckKey), requireNonNull(deck));
+    }
+
+    public synchronized void removeDeck(final String deckKey) {
+        decks.remove(requireNonNull(deckKey));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.manifest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+
+import io.vavr.control.Try;
+
+public final class ManifestStore {
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private final Path path;
+
+    public ManifestStore(final Path path) {
+        this.path = requireNonNull(path);
+    }
+
+    public Try<Manifest> load() {
+        if (!Files.exists(path)) {
+            return Try.success(new Manifest());
+        }
+        return Try.of(() -> {
+            try (Reader reader = Files.newBufferedReader(path, UTF_8)) {
+                return JSON_FACTORY.fromReader(reader, Manifest.class);
+            }
+        });
+    }
+
+    public Try<Manifest> save(final Manifest manifest) {
+        requireNonNull(manifest);
+        return Try.of(() -> {
+            write(manifest);
+            return manifest;
+        });
+    }
+
+    private void write(final Manifest manifest) throws IOException {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temporary, JSON_FACTORY.toPrettyString(manifest).getBytes(UTF_8));
+        Files.move(temporary, path, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.manifest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+
+import io.snowcamp.signage.metrics.MetricsRegistry;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+
+/**
+ * An append-only journal of the generations: a line of JSON per step done, forced to the disk before the next step
+ * starts. A rerun resumes the decks left unfinished from their last step instead of starting them over.
+ * <p>
+ * A crash may leave the last line incomplete: it is ignored. When the journal is opened, it is rewritten with the
+ * unfinished decks only, so that it does not grow from one run to the next: the rewritten journal replaces the
+ * previous one by an atomic rename, forced to the disk along with its directory where the platform allows it.
+ */
+public final class RunJournal implements Closeable {
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private static final byte NEW_LINE = '\n';
+    private static final String APPEND_STAGE = "append";
+    private static final String RESUMABLE_DECKS = "decks.resumable";
+    private final FileChannel channel;
+    // guarded by this
+    private final java.util.Map<String, DeckProgress> unfinished;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    private RunJournal(final FileChannel channel, final java.util.Map<String, DeckProgress> unfinished) {
+        this.channel = requireNonNull(channel);
+        this.unfinished = requireNonNull(unfinished);
+        metrics.counter(RESUMABLE_DECKS).add(unfinished.size());
+    }
+
+    public static RunJournal open(final Path path) throws IOException {
+        requireNonNull(path);
+        final java.util.Map<String, DeckProgress> unfinished = new LinkedHashMap<>();
+        if (Files.exists(path)) {
+            read(Files.readAllBytes(path)).forEach(record -> apply(unfinished, record));
+        }
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel compacted = FileChannel.open(temporary, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            for (final java.util.Map.Entry<String, DeckProgress> deck : unfinished.entrySet()) {
+                for (final JournalRecord record : records(deck.getKey(), deck.getValue())) {
+                    write(compacted, record);
+                }
+            }
+            compacted.force(true);
+        }
+        Files.move(temporary, path, ATOMIC_MOVE, REPLACE_EXISTING);
+        forceDirectory(path.toAbsolutePath().getParent());
+        return new RunJournal(FileChannel.open(path, WRITE, APPEND), unfinished);
+    }
+
+    /**
+     * Forces the entries of the directory, its renames, to the disk. Windows cannot open a directory: the rename is
+     * then as durable as the file system makes it.
+     */
+    private static void forceDirectory(final Path directory) {
+        try (FileChannel entries = FileChannel.open(directory, READ)) {
+            entries.force(true);
+        } catch (IOException e) {
+            // the platform does not open, or does not force, a directory
+        }
+    }
+
+    /**
+     * The progress of the deck, when its generation did not finish.
+     */
+    public synchronized Option<DeckProgress> progress(final String deckKey) {
+        return Option.of(unfinished.get(deckKey));
+    }
+
+    public void copied(final String deckKey, final String presentationId) throws IOException {
+        append(JournalRecord.copied(requireNonNull(deckKey), requireNonNull(presentationId)));
+    }
+
+    /**
+     * The requests the copy is being filled with, before the first batch is sent.
+     */
+    public void requests(final String deckKey,
+                         final String templateSlideId,
+                         final List<String> slideIds,
+                         final String requestsHash) throws IOException {
+        append(JournalRecord.requests(requireNonNull(deckKey), requireNonNull(templateSlideId),
+                                      new java.util.ArrayList<>(slideIds.asJava()), requireNonNull(requestsHash)));
+    }
+
+    /**
+     * The batch of the given index, from 0, is applied.
+     */
+    public void batchApplied(final String deckKey, final int batch) throws IOException {
+        append(JournalRecord.batch(requireNonNull(deckKey), batch));
+    }
+
+    public void done(final String deckKey) throws IOException {
+        append(JournalRecord.done(requireNonNull(deckKey)));
+    }
+
+    /**
+     * The time spent appending to the journal, and the decks left unfinished by the previous runs.
+     */
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    private synchronized void append(final JournalRecord record) throws IOException {
+        final long start = System.nanoTime();
+        write(channel, record);
+        // the data only, the size of the file does not matter to read it back
+        channel.force(false);
+        apply(unfinished, record);
+        metrics.recordLatency(APPEND_STAGE, start);
+    }
+
+    private static void write(final FileChannel channel, final JournalRecord record) throws IOException {
+        final ByteBuffer line = ByteBuffer.wrap((JSON_FACTORY.toString(record) + (char) NEW_LINE).getBytes(UTF_8));
+        while (line.hasRemaining()) {
+            channel.write(line);
+        }
+    }
+
+    private static List<JournalRecord> read(final byte[] journal) throws IOException {
+        List<JournalRecord> records = List.empty();
+        int start = 0;
+        for (int end = 0; end < journal.length; end++) {
+            if (journal[end] == NEW_LINE) {
+                final String line = new String(journal, start, end - start, UTF_8);
+                records = records.append(JSON_FACTORY.fromString(line, JournalRecord.class));
+                start = end + 1;
+            }
+        }
+        // the bytes after the last new line are a record the crash did not let finish
+        return records;
+    }
+
+    private static void apply(final java.util.Map<String, DeckProgress> unfinished, final JournalRecord record) {
+        switch (record.step()) {
+            case JournalRecord.COPIED:
+                unfinished.put(record.deck(), new DeckProgress(record.presentationId()));
+                break;
+            case JournalRecord.REQUESTS:
+                unfinished.computeIfPresent(record.deck(), (deck, progress) -> progress.withRequests(
+                        record.templateSlideId(), List.ofAll(record.slideIds()), record.requestsHash()));
+                break;
+            case JournalRecord.BATCH:
+                unfinished.computeIfPresent(record.deck(),
+                                            (deck, progress) -> progress.withAppliedBatches(record.batch() + 1));
+                break;
+            case JournalRecord.DONE:
+                unfinished.remove(record.deck());
+                break;
+            default:
+                throw new IllegalArgumentException("unknown journal step: " + record.step());
+        }
+    }
+
+    private static List<JournalRecord> records(final String deckKey, final DeckProgress progress) {
+        final List<JournalRecord> copied = List.of(JournalRecord.copied(deckKey, progress.presentationId()));
+        if (progress.requestsHash().isEmpty()) {
+            return copied;
+        }
+        final List<JournalRecord> requests = copied.append(JournalRecord.requests(
+                deckKey, progress.templateSlideId().get(), new java.util.ArrayList<>(progress.slideIds().asJava()),
+                progress.requestsHash().get()));
+        return progress.appliedBatches() == 0
+                ? requests
+                : requests.append(JournalRecord.batch(deckKey, progress.appliedBatches() - 1));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.manifest;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+
+import io.vavr.collection.LinkedHashMap;
+import io.vavr.collection.Map;
+
+/**
+ * The state of one generated slide: the session it displays and the text that replaced each template variable.
+ */
+public final class SlideManifest extends GenericJson {
+    @Key
+    private String sessionKey;
+    @Key
+    private String slideId;
+    @Key
+    private String hash;
+    @Key
+    private java.util.Map<String, String> variables;
+
+    public SlideManifest() {
+        // required by the JSON parser
+    }
+
+    public SlideManifest(final String sessionKey,
+                         final String slideId,
+                         final String hash,
+                         final Map<String, String> variables) {
+        this.sessionKey = requireNonNull(sessionKey);
+        this.slideId = requireNonNull(slideId);
+        this.hash = requireNonNull(hash);
+        this.variables = new java.util.LinkedHashMap<>(variables.toJavaMap());
+    }
+
+    public String sessionKey() {
+        return sessionKey;
+    }
+
+    public String slideId() {
+        return slideId;
+    }
+
+    public String hash() {
+        return hash;
+    }
+
+    public Map<String, String> variables() {
+        return LinkedHashMap.ofAll(variables);
+    }
+}
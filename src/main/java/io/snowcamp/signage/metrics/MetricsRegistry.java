@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.metrics;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.google.common.base.Throwables;
+
+/**
+ * The counters, gauges and histograms of a component, by name. The registries of several components are gathered
+ * under a prefix with {@link #include}.
+ * <p>
+ * The latencies are recorded in microseconds, in histograms whose name ends with {@code .micros}.
+ */
+public final class MetricsRegistry {
+    private static final String ERRORS_PREFIX = "errors.";
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, MetricsRegistry> included = new ConcurrentHashMap<>();
+
+    public LongAdder counter(final String name) {
+        return counters.computeIfAbsent(requireNonNull(name), key -> new LongAdder());
+    }
+
+    public Histogram histogram(final String name) {
+        return histograms.computeIfAbsent(requireNonNull(name), key -> new Histogram());
+    }
+
+    /**
+     * Records the time elapsed since the given {@link System#nanoTime()}, in the histogram of the given stage.
+     */
+    public void recordLatency(final String stage, final long startNanos) {
+        histogram(stage + ".micros").record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Counts an error by the type of its root cause, the one telling what went wrong.
+     */
+    public void recordError(final Throwable error) {
+        counter(ERRORS_PREFIX + Throwables.getRootCause(error).getClass().getSimpleName()).increment();
+    }
+
+    /**
+     * The number of errors recorded by {@link #recordError}, by type, without those of the included registries.
+     */
+    public java.util.Map<String, Long> errors() {
+        final java.util.Map<String, Long> errors = new TreeMap<>();
+        counters.forEach((name, counter) -> {
+            if (name.startsWith(ERRORS_PREFIX)) {
+                errors.put(name.substring(ERRORS_PREFIX.length()), counter.sum());
+            }
+        });
+        return errors;
+    }
+
+    /**
+     * A value read when the metrics are, the metrics of another component for instance.
+     */
+    public void gauge(final String name, final LongSupplier value) {
+        gauges.put(requireNonNull(name), requireNonNull(value));
+    }
+
+    public void histogram(final String name, final Histogram histogram) {
+        histograms.put(requireNonNull(name), requireNonNull(histogram));
+    }
+
+    public void include(final String prefix, final MetricsRegistry registry) {
+        included.put(requireNonNull(prefix), requireNonNull(registry));
+    }
+
+    /**
+     * The current values, as nested maps sorted by name: {@code counters}, {@code gauges} and {@code histograms}.
+     */
+    public java.util.Map<String, Object> snapshot() {
+        final java.util.Map<String, Object> counterValues = new TreeMap<>();
+        final java.util.Map<String, Object> gaugeValues = new TreeMap<>();
+        final java.util.Map<String, Object> histogramValues = new TreeMap<>();
+        collect("", counterValues, gaugeValues, histogramValues);
+
+        final java.util.Map<String, Object> snapshot = new java.util.LinkedHashMap<>();
+        snapshot.put("counters", counterValues);
+        snapshot.put("gauges", gaugeValues);
+        snapshot.put("histograms", histogramValues);
+        return snapshot;
+    }
+
+    private void collect(final String prefix,
+                         final java.util.Map<String, Object> counterValues,
+                         final java.util.Map<String, Object> gaugeValues,
+                         final java.util.Map<String, Object> histogramValues) {
+        counters.forEach((name, counter) -> counterValues.put(prefix + name, counter.sum()));
+        gauges.forEach((name, gauge) -> gaugeValues.put(prefix + name, gauge.getAsLong()));
+        histograms.forEach((name, histogram) -> histogramValues.put(prefix + name, snapshot(histogram)));
+        included.forEach((name, registry) -> registry.collect(prefix + name + '.',
+                                                              counterValues, gaugeValues, histogramValues));
+    }
+
+    private static java.util.Map<String, Object> snapshot(final Histogram histogram) {
+        final java.util.Map<String, Object> values = new java.util.LinkedHashMap<>();
+        values.put("count", histogram.count());
+        values.put("sum", histogram.sum());
+        values.put("min", histogram.min());
+        values.put("mean", histogram.mean());
+        values.put("p50", histogram.percentile(0.5));
+        values.put("p90", histogram.percentile(0.9));
+        values.put("p99", histogram.percentile(0.99));
+        values.put("max", histogram.max());
+        return values;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.metrics;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+
+import io.vavr.control.Try;
+
+/**
+ * The JSON report of a run: when it started, how long it lasted, and the metrics of its components.
+ */
+public final class MetricsReport {
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private final Instant start;
+    private final MetricsRegistry metrics;
+
+    public MetricsReport(final Instant start, final MetricsRegistry metrics) {
+        this.start = requireNonNull(start);
+        this.metrics = requireNonNull(metrics);
+    }
+
+    public String toJson(final Instant now) throws IOException {
+        final java.util.Map<String, Object> report = new java.util.LinkedHashMap<>();
+        report.put("start", start.toString());
+        report.put("durationMillis", Duration.between(start, now).toMillis());
+        report.putAll(metrics.snapshot());
+        return JSON_FACTORY.toPrettyString(report);
+    }
+
+    public Try<Path> write(final Path path, final Instant now) {
+        requireNonNull(path);
+        requireNonNull(now);
+        return Try.of(() -> {
+            final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temporary, toJson(now).getBytes(UTF_8));
+            return Files.move(temporary, path, ATOMIC_MOVE, REPLACE_EXISTING);
+        });
+    }
+}
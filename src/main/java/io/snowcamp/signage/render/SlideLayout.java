@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.render;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+
+/**
+ * The layout of the slides rendered without Google Slides, read from a JSON file: the size of the slides, their
+ * background and the text boxes drawn on it.
+ */
+public final class SlideLayout extends GenericJson {
+    @Key
+    private int width;
+    @Key
+    private int height;
+    @Key
+    private String backgroundColor;
+    /**
+     * The path of an image drawn on the whole slide, relative to the layout.
+     */
+    @Key
+    private String backgroundImage;
+    @Key
+    private java.util.List<TextBox> texts;
+
+    public SlideLayout() {
+        // required by the JSON parser
+    }
+
+    int width() {
+        return width == 0 ? 1920 : width;
+    }
+
+    int height() {
+        return height == 0 ? 1080 : height;
+    }
+
+    String backgroundColor() {
+        return backgroundColor == null ? "#FFFFFF" : backgroundColor;
+    }
+
+    String backgroundImage() {
+        return backgroundImage;
+    }
+
+    java.util.List<TextBox> texts() {
+        return texts == null ? java.util.List.of() : texts;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.render;
+
+import static java.util.Objects.requireNonNull;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+
+/**
+ * Draws slides from a {@link SlideLayout}, without Google Slides.
+ * <p>
+ * The layout is prepared once: the fonts are loaded, and the background along with the texts without variables are
+ * drawn into a layer that every slide starts from. Rendering a slide copies this layer and draws the texts holding
+ * variables only. A renderer is immutable and can draw several slides at the same time.
+ * <p>
+ * The variables are found whatever their spacing, {@code {{title}}} as well as {@code {{ title }}}, and replaced by
+ * the value of their canonical form, {@code {{ title }}}. The unknown variables are left as is.
+ */
+public final class SlideRenderer {
+    /**
+     * A variable as written in a template, its name in the first group.
+     */
+    public static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{\\{ *([A-Za-z][\\w-]*) *}}");
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private static final String FONT_FILE_EXTENSION = ".ttf";
+
+    private final BufferedImage background;
+    private final List<PreparedText> texts;
+
+    private SlideRenderer(final BufferedImage background, final List<PreparedText> texts) {
+        this.background = requireNonNull(background);
+        this.texts = requireNonNull(texts);
+    }
+
+    public static SlideRenderer load(final Path layoutPath) throws IOException {
+        requireNonNull(layoutPath);
+        final SlideLayout layout;
+        try (Reader reader = Files.newBufferedReader(layoutPath)) {
+            layout = JSON_FACTORY.fromReader(reader, SlideLayout.class);
+        }
+        final Path directory = layoutPath.toAbsolutePath().getParent();
+
+        final BufferedImage background = new BufferedImage(layout.width(), layout.height(), BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = createGraphics(background);
+        try {
+            graphics.setColor(Color.decode(layout.backgroundColor()));
+            graphics.fillRect(0, 0, layout.width(), layout.height());
+            if (layout.backgroundImage() != null) {
+                final BufferedImage image = ImageIO.read(directory.resolve(layout.backgroundImage()).toFile());
+                if (image == null) {
+                    throw new IOException("unsupported background image [" + layout.backgroundImage() + "]");
+                }
+                graphics.drawImage(image, 0, 0, layout.width(), layout.height(), null);
+            }
+
+            List<PreparedText> variableTexts = List.empty();
+            for (final TextBox box : layout.texts()) {
+                final PreparedText text = new PreparedText(box, font(directory, box));
+                if (VARIABLE_PATTERN.matcher(box.text()).find()) {
+                    variableTexts = variableTexts.append(text);
+                } else {
+                    text.draw(graphics, box.text());
+                }
+            }
+            return new SlideRenderer(background, variableTexts);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * The canonical form of the variable of the given name.
+     */
+    public static String variable(final String name) {
+        return "{{ " + name + " }}";
+    }
+
+    /**
+     * Renders a slide, replacing each variable of the texts by its value, the variables being in canonical form.
+     */
+    public BufferedImage render(final Map<String, String> variables) {
+        requireNonNull(variables);
+        final BufferedImage slide = new BufferedImage(background.getColorModel(),
+                                                      background.copyData(null),
+                                                      false,
+                                                      null);
+        final Graphics2D graphics = createGraphics(slide);
+        try {
+            texts.forEach(text -> text.draw(graphics, replace(text.box.text(), variables)));
+        } finally {
+            graphics.dispose();
+        }
+        return slide;
+    }
+
+    private static String replace(final String text, final Map<String, String> variables) {
+        return VARIABLE_PATTERN.matcher(text)
+                               .replaceAll(match -> Matcher.quoteReplacement(variables.get(variable(match.group(1)))
+                                                                                      .getOrElse(match.group())));
+    }
+
+    private static Graphics2D createGraphics(final BufferedImage image) {
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        return graphics;
+    }
+
+    private static Font font(final Path directory, final TextBox box) throws IOException {
+        final int style = box.bold() ? Font.BOLD : Font.PLAIN;
+        if (!box.font().endsWith(FONT_FILE_EXTENSION)) {
+            return new Font(box.font(), style, box.fontSize());
+        }
+        try {
+            return Font.createFont(Font.TRUETYPE_FONT, directory.resolve(box.font()).toFile())
+                       .deriveFont(style, box.fontSize());
+        } catch (FontFormatException e) {
+            throw new IOException("invalid font [" + box.font() + "]", e);
+        }
+    }
+
+    private static final class PreparedText {
+        private final TextBox box;
+        private final Font font;
+        private final Color color;
+
+        private PreparedText(final TextBox box, final Font font) {
+            this.box = box;
+            this.font = font;
+            this.color = Color.decode(box.color());
+        }
+
+        /**
+         * Draws the text word by word, wrapping it at the width of the box. The lines below the box are dropped.
+         */
+        private void draw(final Graphics2D graphics, final String text) {
+            graphics.setFont(font);
+            graphics.setColor(color);
+            final FontMetrics metrics = graphics.getFontMetrics();
+            int baseline = box.y() + metrics.getAscent();
+            for (final String line : wrap(text, metrics)) {
+                if (box.height() > 0 && baseline + metrics.getDescent() > box.y() + box.height()) {
+                    return;
+                }
+                graphics.drawString(line, x(line, metrics), baseline);
+                baseline += metrics.getHeight();
+            }
+        }
+
+        private java.util.List<String> wrap(final String text, final FontMetrics metrics) {
+            final java.util.List<String> lines = new java.util.ArrayList<>();
+            for (final String paragraph : text.split("\n")) {
+                final StringBuilder line = new StringBuilder();
+                for (final String word : paragraph.split(" ")) {
+                    if (line.length() > 0 && box.width() > 0
+                            && metrics.stringWidth(line + " " + word) > box.width()) {
+                        lines.add(line.toString());
+                        line.setLength(0);
+                    }
+                    if (line.length() > 0) {
+                        line.append(' ');
+                    }
+                    line.append(word);
+                }
+                lines.add(line.toString());
+            }
+            return lines;
+        }
+
+        private int x(final String line, final FontMetrics metrics) {
+            switch (box.align()) {
+                case "center":
+                    return box.x() + (box.width() - metrics.stringWidth(line)) / 2;
+                case "right":
+                    return box.x() + box.width() - metrics.stringWidth(line);
+                default:
+                    return box.x();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.render;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Key;
+
+/**
+ * A text drawn on the slides, wrapped within its box. The text may hold variables such as {@code {{ title }}}.
+ */
+public final class TextBox extends GenericJson {
+    @Key
+    private String text;
+    @Key
+    private int x;
+    @Key
+    private int y;
+    @Key
+    private int width;
+    @Key
+    private int height;
+    /**
+     * A font family, or the path of a TrueType font file relative to the layout.
+     */
+    @Key
+    private String font;
+    @Key
+    private Integer size;
+    @Key
+    private Boolean bold;
+    @Key
+    private String color;
+    /**
+     * {@code left}, {@code center} or {@code right}.
+     */
+    @Key
+    private String align;
+
+    public TextBox() {
+        // required by the JSON parser
+    }
+
+    String text() {
+        return text == null ? "" : text;
+    }
+
+    int x() {
+        return x;
+    }
+
+    int y() {
+        return y;
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    String font() {
+        return font == null ? java.awt.Font.SANS_SERIF : font;
+    }
+
+    int fontSize() {
+        return size == null ? 32 : size;
+    }
+
+    boolean bold() {
+        return Boolean.TRUE.equals(bold);
+    }
+
+    String color() {
+        return color == null ? "#000000" : color;
+    }
+
+    String align() {
+        return align == null ? "left" : align;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.sched;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+
+/**
+ * Reads RFC 4180 records one at a time: fields separated by commas, optionally quoted, quotes escaped by doubling
+ * them. A quoted field may span several lines.
+ */
+final class CsvReader implements Closeable {
+    private static final int END = -1;
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder field = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean started;
+
+    CsvReader(final Reader reader) {
+        this.reader = requireNonNull(reader);
+    }
+
+    /**
+     * Returns the fields of the next record, or {@code null} at the end of the input.
+     */
+    java.util.List<String> readRecord() throws IOException {
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == BYTE_ORDER_MARK) {
+                c = read();
+            }
+        }
+        if (c == END) {
+            return null;
+        }
+
+        final java.util.List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == QUOTE) {
+                    c = read();
+                    if (c == QUOTE) {
+                        field.append(QUOTE);
+                        c = read();
+                    } else {
+                        quoted = false;
+                    }
+                    continue;
+                }
+                if (c == END) {
+                    // unterminated quote, keep what was read
+                    fields.add(field.toString());
+                    return fields;
+                }
+                field.append((char) c);
+            } else if (c == END || c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c == SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == QUOTE && field.length() == 0) {
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        return fill() ? buffer[position++] : END;
+    }
+
+    private int peek() throws IOException {
+        return fill() ? buffer[position] : END;
+    }
+
+    private boolean fill() throws IOException {
+        while (position == limit) {
+            final int read = reader.read(buffer);
+            if (read == END) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
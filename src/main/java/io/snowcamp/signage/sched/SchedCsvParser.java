@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.sched;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import io.snowcamp.signage.gsuite.Row;
+import io.snowcamp.signage.metrics.MetricsRegistry;
+import io.snowcamp.signage.session.Session;
+import io.snowcamp.signage.session.SessionRowParser;
+import io.vavr.collection.Stream;
+import io.vavr.control.Try;
+
+/**
+ * Reads the sessions from the CSV file exported by Sched, without going through Google Sheets.
+ * The argument of {@link #parseSessions(String)} is the path of the file.
+ * <p>
+ * The file is read record by record: only the sessions are kept in memory, not the lines of the file. The lines
+ * heading the file are left out up to the first scheduled session, whatever their number: the export may not hold
+ * the 8 lines heading the spreadsheet.
+ */
+public final class SchedCsvParser implements SessionRowParser {
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    @Override
+    public Try<Stream<Session>> parseSessions(final String csvPath) {
+        final java.util.List<Session> sessions = new ArrayList<>();
+        return parseSessions(csvPath, sessions::add).map(count -> Stream.ofAll(sessions));
+    }
+
+    /**
+     * Hands each session as soon as its record is read.
+     */
+    @Override
+    public Try<Integer> parseSessions(final String csvPath, final Consumer<? super Session> sessions) {
+        requireNonNull(csvPath);
+        requireNonNull(sessions);
+        return Try.of(() -> parse(Paths.get(csvPath), sessions)).onFailure(metrics::recordError);
+    }
+
+    /**
+     * The time spent reading and decoding the file, the records being decoded as they are read, and the number of
+     * rows read and left out.
+     */
+    @Override
+    public MetricsRegistry metrics() {
+        return metrics;
+    }
+
+    private int parse(final Path csvPath, final Consumer<? super Session> sessions) throws IOException {
+        final long start = System.nanoTime();
+        final SchedRows rows = new SchedRows();
+        long rowsRead = 0;
+        int count = 0;
+        boolean heading = true;
+        try (CsvReader csv = new CsvReader(Files.newBufferedReader(csvPath, UTF_8))) {
+            for (java.util.List<String> record = csv.readRecord(); record != null; record = csv.readRecord()) {
+                rowsRead++;
+                final Row row = toRow(record);
+                // the column titles look like a session, but for their times
+                heading = heading && !(SchedRows.isSessionRow(row) && rows.isScheduled(row));
+                if (!heading && SchedRows.isSessionRow(row)) {
+                    sessions.accept(rows.toSession(row));
+                    count++;
+                }
+            }
+        }
+        metrics.recordLatency(SchedRows.PARSE_STAGE, start);
+        metrics.counter(SchedRows.ROWS_READ).add(rowsRead);
+        metrics.counter(SchedRows.ROWS_FILTERED).add(rowsRead - count);
+        return count;
+    }
+
+    /**
+     * Keeps the columns read by {@link SchedParser}, without the trailing empty cells that Sheets leaves out.
+     */
+    private static Row toRow(final java.util.List<String> record) {
+        int end = Math.min(record.size(), SchedRows.FIRST_COLUMN + SchedRows.COLUMNS);
+        while (end > SchedRows.FIRST_COLUMN && record.get(end - 1).isEmpty()) {
+            end--;
+        }
+        final int start = Math.min(SchedRows.FIRST_COLUMN, end);
+        return new Row(record.subList(start, end));
+    }
+}
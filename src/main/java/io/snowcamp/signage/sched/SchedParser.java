@@ -16,77 +16,75 @@
 package io.snowcamp.signage.sched;
 
 import static java.util.Objects.requireNonNull;
-import static org.apache.commons.lang3.StringUtils.isNotEmpty;
 
-import java.time.format.DateTimeFormatter;
-
-import org.apache.commons.text.WordUtils;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.function.Consumer;
 
 import com.google.api.services.sheets.v4.Sheets;
 
 import io.snowcamp.signage.gsuite.Row;
+import io.snowcamp.signage.gsuite.SheetValuesSource;
+import io.snowcamp.signage.metrics.MetricsRegistry;
 import io.snowcamp.signage.session.Session;
 import io.snowcamp.signage.session.SessionRowParser;
-import io.vavr.collection.List;
 import io.vavr.collection.Stream;
 import io.vavr.control.Try;
 
 public final class SchedParser implements SessionRowParser {
-    private static final String RANGE = "Sessions!B9:O";
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("M/dd/yyyy h:mm a");
-    private static final int TITLE_INDEX = 0;
-    private static final int ROOM_INDEX = 13;
-    private static final int START_TIME_INDEX = 2;
-    private static final int END_TIME_INDEX = 3;
-    private static final int SPEAKERS_INDEX = 8;
-    private static final String SPEAKERS_SEPARATOR = "; ";
-    private final Sheets googleSheets;
+    private final SheetValuesSource sheetValues;
+    private final MetricsRegistry metrics = new MetricsRegistry();
 
     public SchedParser(final Sheets googleSheets) {
-        this.googleSheets = googleSheets;
+        this(SheetValuesSource.of(googleSheets));
+    }
+
+    public SchedParser(final SheetValuesSource sheetValues) {
+        this.sheetValues = requireNonNull(sheetValues);
     }
 
     @Override
     public Try<Stream<Session>> parseSessions(final String spreadSheetId) {
-        requireNonNull(spreadSheetId);
-        return Try.of(() -> Stream.ofAll(googleSheets.spreadsheets()
-                                                     .values()
-                                                     .get(spreadSheetId, RANGE)
-                                                     .execute()
-                                                     .getValues()
-                                                     .stream()
-                                                     .map(List::ofAll)
-                                                     .map(this::mapToRow)
-                                                     .filter(this::isSessionRow)
-                                                     .map(this::mapToSession)));
+        final java.util.List<Session> sessions = new ArrayList<>();
+        return parseSessions(spreadSheetId, sessions::add).map(count -> Stream.ofAll(sessions));
     }
 
-    private Row mapToRow(final List<Object> row) {
-        return new Row(row);
+    /**
+     * Hands each session as soon as its row is decoded, the spreadsheet being read in one call.
+     */
+    @Override
+    public Try<Integer> parseSessions(final String spreadSheetId, final Consumer<? super Session> sessions) {
+        requireNonNull(spreadSheetId);
+        requireNonNull(sessions);
+        return Try.of(() -> parse(spreadSheetId, sessions)).onFailure(metrics::recordError);
     }
 
-    private boolean isSessionRow(final Row row) {
-        requireNonNull(row);
-        return row.size() == 14 && isNotEmpty(row.getAsString(SPEAKERS_INDEX));
+    /**
+     * The time spent reading the spreadsheet and decoding its rows, and the number of rows read and left out.
+     */
+    @Override
+    public MetricsRegistry metrics() {
+        return metrics;
     }
 
-    private Session mapToSession(final Row row) {
-        requireNonNull(row);
-        return new Session.Builder()
-                          .title(row.getAsString(TITLE_INDEX))
-                          .speakers(mapToSpeakers(row))
-                          .room(row.getAsString(ROOM_INDEX))
-                          .start(row.getAsLocalDateTime(START_TIME_INDEX, TIME_FORMATTER))
-                          .end(row.getAsLocalDateTime(END_TIME_INDEX, TIME_FORMATTER))
-                          .build();
-    }
+    private int parse(final String spreadSheetId, final Consumer<? super Session> sessions) throws IOException {
+        final long fetchStart = System.nanoTime();
+        final java.util.List<java.util.List<Object>> values = sheetValues.values(spreadSheetId, SchedRows.RANGE);
+        metrics.recordLatency(SchedRows.FETCH_STAGE, fetchStart);
 
-    private List<String> mapToSpeakers(final Row row) {
-        return row.getAsOptionalString(SPEAKERS_INDEX)
-                  .map(String::toLowerCase)
-                  .map(WordUtils::capitalize)
-                  .map(speakers -> speakers.split(SPEAKERS_SEPARATOR))
-                  .map(List::of)
-                  .getOrElse(List.of());
+        final long parseStart = System.nanoTime();
+        final SchedRows rows = new SchedRows();
+        int count = 0;
+        for (final java.util.List<Object> value : values) {
+            final Row row = new Row(value);
+            if (SchedRows.isSessionRow(row)) {
+                sessions.accept(rows.toSession(row));
+                count++;
+            }
+        }
+        metrics.recordLatency(SchedRows.PARSE_STAGE, parseStart);
+        metrics.counter(SchedRows.ROWS_READ).add(values.size());
+        metrics.counter(SchedRows.ROWS_FILTERED).add(values.size() - count);
+        return count;
     }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.sched;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.commons.lang3.StringUtils.isNotEmpty;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+
+import io.snowcamp.signage.gsuite.DateTimeCache;
+import io.snowcamp.signage.gsuite.Row;
+import io.snowcamp.signage.session.Session;
+import io.vavr.collection.List;
+import io.vavr.control.Try;
+
+/**
+ * The layout of the Sched export: the sessions start at the 9th line of the spreadsheet, the columns used are B to O.
+ * <p>
+ * An instance decodes the rows of one parsing: it keeps the date times already parsed.
+ */
+final class SchedRows {
+    static final String RANGE = "Sessions!B9:O";
+    static final int FIRST_COLUMN = 1;
+    static final int COLUMNS = 14;
+    // the metrics of the parsers
+    static final String FETCH_STAGE = "fetch";
+    static final String PARSE_STAGE = "parse";
+    static final String ROWS_READ = "rows.read";
+    static final String ROWS_FILTERED = "rows.filtered";
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("M/dd/yyyy h:mm a");
+    private static final int TITLE_INDEX = 0;
+    private static final int ROOM_INDEX = 13;
+    private static final int START_TIME_INDEX = 2;
+    private static final int END_TIME_INDEX = 3;
+    private static final int SPEAKERS_INDEX = 8;
+    private static final String SPEAKERS_SEPARATOR = "; ";
+    private final DateTimeCache dateTimes = new DateTimeCache(TIME_FORMATTER);
+
+    static boolean isSessionRow(final Row row) {
+        requireNonNull(row);
+        return row.size() == COLUMNS && isNotEmpty(row.getAsString(SPEAKERS_INDEX));
+    }
+
+    /**
+     * Whether the start and end of the row are date times, which they are not in the lines heading the export.
+     */
+    boolean isScheduled(final Row row) {
+        requireNonNull(row);
+        return Try.of(() -> row.getAsLocalDateTime(START_TIME_INDEX, dateTimes) != null
+                && row.getAsLocalDateTime(END_TIME_INDEX, dateTimes) != null)
+                  .getOrElse(false);
+    }
+
+    Session toSession(final Row row) {
+        requireNonNull(row);
+        return new Session.Builder()
+                          .title(row.getAsString(TITLE_INDEX))
+                          .speakers(toSpeakers(row.getAsString(SPEAKERS_INDEX)))
+                          .room(row.getAsString(ROOM_INDEX))
+                          .start(row.getAsLocalDateTime(START_TIME_INDEX, dateTimes))
+                          .end(row.getAsLocalDateTime(END_TIME_INDEX, dateTimes))
+                          .build();
+    }
+
+    /**
+     * Splits "JOHN DOE; jane doe" into "John Doe" and "Jane Doe".
+     */
+    static List<String> toSpeakers(final String speakers) {
+        if (speakers == null) {
+            return List.empty();
+        }
+        final java.util.List<String> names = new ArrayList<>();
+        int start = 0;
+        for (int end = speakers.indexOf(SPEAKERS_SEPARATOR); end >= 0;
+             end = speakers.indexOf(SPEAKERS_SEPARATOR, start)) {
+            names.add(capitalize(speakers.substring(start, end)));
+            start = end + SPEAKERS_SEPARATOR.length();
+        }
+        names.add(capitalize(speakers.substring(start)));
+        // as String.split, drop the trailing empty names
+        int size = names.size();
+        while (size > 1 && names.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return List.ofAll(names.subList(0, size));
+    }
+
+    /**
+     * Lower cases the name and upper cases the first letter of each word, as {@code WordUtils.capitalize} does.
+     */
+    private static String capitalize(final String name) {
+        final char[] chars = name.toLowerCase().toCharArray();
+        boolean wordStart = true;
+        for (int i = 0; i < chars.length; i++) {
+            if (Character.isWhitespace(chars[i])) {
+                wordStart = true;
+            } else if (wordStart) {
+                chars[i] = Character.toTitleCase(chars[i]);
+                wordStart = false;
+            }
+        }
+        return new String(chars);
+    }
+}
@@ -18,20 +18,25 @@ package io.snowcamp.signage.session;
 import static java.util.Objects.requireNonNull;
 
 import java.time.DayOfWeek;
+import java.time.LocalDate;
 
 import io.vavr.collection.List;
 
 public final class DaySessions {
-    private final DayOfWeek day;
+    private final LocalDate date;
     private final List<Session> sessions;
 
-    public DaySessions(final DayOfWeek day, final List<Session> sessions) {
-        this.day = requireNonNull(day);
+    public DaySessions(final LocalDate date, final List<Session> sessions) {
+        this.date = requireNonNull(date);
         this.sessions = requireNonNull(sessions);
     }
 
+    public LocalDate date() {
+        return date;
+    }
+
     public DayOfWeek day() {
-        return day;
+        return date.getDayOfWeek();
     }
 
     public List<Session> sessions() {
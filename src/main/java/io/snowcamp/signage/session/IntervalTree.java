@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.session;
+
+import java.util.function.Consumer;
+
+/**
+ * Sessions sorted by start, seen as an implicit balanced binary tree: the root of a range is its middle, and each node
+ * keeps the latest end of its subtree. An overlap query skips the subtrees ending too early, in O(log n + k).
+ */
+final class IntervalTree {
+    private final Session[] sessions;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] maxEnds;
+
+    /**
+     * @param sessions sorted by start
+     */
+    IntervalTree(final Session[] sessions) {
+        this.sessions = sessions;
+        this.starts = new int[sessions.length];
+        this.ends = new int[sessions.length];
+        this.maxEnds = new int[sessions.length];
+        for (int i = 0; i < sessions.length; i++) {
+            starts[i] = ScheduleIndex.minutes(sessions[i].start());
+            ends[i] = ScheduleIndex.minutes(sessions[i].end());
+        }
+        build(0, sessions.length);
+    }
+
+    /**
+     * Passes the sessions overlapping [from, to) to the consumer, in start order.
+     */
+    void overlapping(final int from, final int to, final Consumer<Session> consumer) {
+        overlapping(0, sessions.length, from, to, consumer);
+    }
+
+    private int build(final int low, final int high) {
+        if (low >= high) {
+            return Integer.MIN_VALUE;
+        }
+        final int middle = (low + high) >>> 1;
+        maxEnds[middle] = Math.max(ends[middle], Math.max(build(low, middle), build(middle + 1, high)));
+        return maxEnds[middle];
+    }
+
+    private void overlapping(final int low,
+                             final int high,
+                             final int from,
+                             final int to,
+                             final Consumer<Session> consumer) {
+        if (low >= high) {
+            return;
+        }
+        final int middle = (low + high) >>> 1;
+        if (maxEnds[middle] <= from) {
+            return;
+        }
+        overlapping(low, middle, from, to, consumer);
+        // the sessions on the right start later than the middle one
+        if (starts[middle] < to) {
+            if (ends[middle] > from) {
+                consumer.accept(sessions[middle]);
+            }
+            overlapping(middle + 1, high, from, to, consumer);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.session;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+
+/**
+ * The sessions of one room sorted by start, with the start and end minutes in primitive arrays and, for each session,
+ * the latest end among the sessions started before it.
+ */
+final class RoomSchedule {
+    private static final Comparator<Session> START_ORDER = Comparator.comparing(Session::start)
+                                                                     .thenComparing(Session::end);
+    private final Session[] sessions;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] latestEnds;
+
+    RoomSchedule(final java.util.List<Session> sessions) {
+        this.sessions = sessions.toArray(new Session[0]);
+        Arrays.sort(this.sessions, START_ORDER);
+        this.starts = new int[this.sessions.length];
+        this.ends = new int[this.sessions.length];
+        this.latestEnds = new int[this.sessions.length];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = ScheduleIndex.minutes(this.sessions[i].start());
+            ends[i] = ScheduleIndex.minutes(this.sessions[i].end());
+            latestEnds[i] = i == 0 ? ends[i] : Math.max(ends[i], latestEnds[i - 1]);
+        }
+    }
+
+    Option<Session> current(final int minute) {
+        // without overlapping sessions, the last one started is the only candidate
+        for (int i = startedBefore(minute + 1) - 1; i >= 0 && latestEnds[i] > minute; i--) {
+            if (ends[i] > minute) {
+                return Option.some(sessions[i]);
+            }
+        }
+        return Option.none();
+    }
+
+    Option<Session> next(final int minute) {
+        final int index = startedBefore(minute + 1);
+        return index < sessions.length ? Option.some(sessions[index]) : Option.none();
+    }
+
+    boolean isFree(final int from, final int to) {
+        final int index = startedBefore(to);
+        return index == 0 || latestEnds[index - 1] <= from;
+    }
+
+    /**
+     * Every pair of overlapping sessions, each pair ordered by start. The sessions started before one are walked back
+     * only as long as the latest end among them is after its start.
+     */
+    List<Tuple2<Session, Session>> conflicts() {
+        List<Tuple2<Session, Session>> conflicts = List.empty();
+        for (int i = sessions.length - 1; i > 0; i--) {
+            for (int j = i - 1; j >= 0 && latestEnds[j] > starts[i]; j--) {
+                if (ends[j] > starts[i]) {
+                    conflicts = conflicts.prepend(Tuple.of(sessions[j], sessions[i]));
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * The number of sessions starting before the given minute.
+     */
+    private int startedBefore(final int minute) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (starts[middle] < minute) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.session;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.TreeMap;
+
+import com.google.common.base.Preconditions;
+
+import io.vavr.Tuple2;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+
+/**
+ * Answers "what is on at this time, in this room" in O(log n) instead of scanning the sessions.
+ * <p>
+ * The sessions of each room are sorted by start in primitive arrays of epoch minutes and searched by binary search.
+ * An interval tree over every session answers the queries across rooms. Times are truncated to the minute, the
+ * resolution of a schedule.
+ */
+public final class ScheduleIndex {
+    private final java.util.SortedMap<String, RoomSchedule> rooms;
+    private final IntervalTree sessions;
+
+    private ScheduleIndex(final java.util.SortedMap<String, RoomSchedule> rooms, final IntervalTree sessions) {
+        this.rooms = rooms;
+        this.sessions = sessions;
+    }
+
+    public static ScheduleIndex of(final Iterable<Session> sessions) {
+        requireNonNull(sessions);
+        final java.util.SortedMap<String, java.util.List<Session>> rooms = new TreeMap<>();
+        final java.util.List<Session> all = new ArrayList<>();
+        for (final Session session : sessions) {
+            rooms.computeIfAbsent(session.room(), room -> new ArrayList<>()).add(session);
+            all.add(session);
+        }
+        final java.util.SortedMap<String, RoomSchedule> roomSchedules = new TreeMap<>();
+        rooms.forEach((room, roomSessions) -> roomSchedules.put(room, new RoomSchedule(roomSessions)));
+        final Session[] sorted = all.toArray(new Session[0]);
+        Arrays.sort(sorted, Comparator.comparing(Session::start));
+        return new ScheduleIndex(roomSchedules, new IntervalTree(sorted));
+    }
+
+    /**
+     * The rooms in alphabetical order.
+     */
+    public List<String> rooms() {
+        return List.ofAll(rooms.keySet());
+    }
+
+    /**
+     * The session of the room started at the given time and not ended yet.
+     */
+    public Option<Session> current(final String room, final LocalDateTime time) {
+        requireNonNull(time);
+        return room(room).flatMap(schedule -> schedule.current(minutes(time)));
+    }
+
+    /**
+     * The first session of the room starting after the given time.
+     */
+    public Option<Session> next(final String room, final LocalDateTime time) {
+        requireNonNull(time);
+        return room(room).flatMap(schedule -> schedule.next(minutes(time)));
+    }
+
+    /**
+     * The sessions of every room running at the given time, in start order.
+     */
+    public List<Session> at(final LocalDateTime time) {
+        final int minute = minutes(requireNonNull(time));
+        return overlapping(minute, minute + 1);
+    }
+
+    /**
+     * The sessions of every room running at some point between {@code from} included and {@code to} excluded.
+     */
+    public List<Session> overlapping(final LocalDateTime from, final LocalDateTime to) {
+        Preconditions.checkArgument(from.isBefore(to), "from must be before to");
+        return overlapping(minutes(from), minutes(to));
+    }
+
+    /**
+     * The rooms without a session at the given time, in alphabetical order.
+     */
+    public List<String> freeRooms(final LocalDateTime time) {
+        final java.util.Set<String> busyRooms = new HashSet<>();
+        at(time).forEach(session -> busyRooms.add(session.room()));
+        return rooms().filter(room -> !busyRooms.contains(room));
+    }
+
+    /**
+     * Whether a session could take place in the room between {@code from} and {@code to} without conflict.
+     */
+    public boolean isFree(final String room, final LocalDateTime from, final LocalDateTime to) {
+        Preconditions.checkArgument(from.isBefore(to), "from must be before to");
+        return room(room).map(schedule -> schedule.isFree(minutes(from), minutes(to))).getOrElse(true);
+    }
+
+    /**
+     * The pairs of sessions overlapping in the same room, to validate a schedule.
+     */
+    public List<Tuple2<Session, Session>> conflicts() {
+        return List.ofAll(rooms.values()).flatMap(RoomSchedule::conflicts);
+    }
+
+    private Option<RoomSchedule> room(final String room) {
+        return Option.of(rooms.get(requireNonNull(room)));
+    }
+
+    private List<Session> overlapping(final int from, final int to) {
+        final java.util.List<Session> overlapping = new ArrayList<>();
+        sessions.overlapping(from, to, overlapping::add);
+        return List.ofAll(overlapping);
+    }
+
+    static int minutes(final LocalDateTime time) {
+        return Math.toIntExact(Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60));
+    }
+}
@@ -18,6 +18,7 @@ package io.snowcamp.signage.session;
 import static java.util.Objects.requireNonNull;
 
 import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import io.vavr.collection.List;
@@ -98,6 +99,10 @@ public final class Session {
         return start.getDayOfWeek();
     }
 
+    public LocalDate date() {
+        return start.toLocalDate();
+    }
+
     public String room() {
         return room;
     }
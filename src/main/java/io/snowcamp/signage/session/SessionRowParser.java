@@ -15,10 +15,30 @@
  */
 package io.snowcamp.signage.session;
 
+import java.util.function.Consumer;
 
+import io.snowcamp.signage.metrics.MetricsRegistry;
 import io.vavr.collection.Stream;
 import io.vavr.control.Try;
 
 public interface SessionRowParser {
     Try<Stream<Session>> parseSessions(String spreadSheetId);
+
+    /**
+     * Hands the sessions to the consumer in the order of the rows, and gives their number. By default the sessions are
+     * handed once they are all parsed.
+     */
+    default Try<Integer> parseSessions(final String spreadSheetId, final Consumer<? super Session> sessions) {
+        return parseSessions(spreadSheetId).map(parsed -> {
+            parsed.forEach(sessions);
+            return parsed.size();
+        });
+    }
+
+    /**
+     * The metrics of the parsings, none by default.
+     */
+    default MetricsRegistry metrics() {
+        return new MetricsRegistry();
+    }
 }
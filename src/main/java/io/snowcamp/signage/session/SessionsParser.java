@@ -15,36 +15,188 @@
  */
 package io.snowcamp.signage.session;
 
-import static io.vavr.Function1.identity;
-import static java.util.Comparator.comparing;
 import static java.util.Objects.requireNonNull;
 
-import java.time.DayOfWeek;
-import java.util.Comparator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
-import io.vavr.Tuple2;
+import com.google.common.base.Preconditions;
+
+import io.snowcamp.signage.metrics.MetricsRegistry;
+import io.vavr.collection.List;
 import io.vavr.collection.Seq;
 import io.vavr.collection.Stream;
+import io.vavr.control.Option;
 import io.vavr.control.Try;
 
+/**
+ * Groups the sessions by date in a single pass, then sorts the sessions of each date, the latest first.
+ * <p>
+ * The sessions are sorted on a primitive key: the second of the day they start at, then the rank of their room in
+ * alphabetical order. Given a fork-join pool, the dates are sorted in parallel.
+ * <p>
+ * The days may also be handed one by one as soon as they are parsed, see {@link #parse(String, Consumer)}.
+ */
 public final class SessionsParser {
+    // the index of a session is kept in the low bits of its sort key: sessions of the same slot keep their order
+    private static final int INDEX_BITS = 24;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    private static final String GROUP_STAGE = "group";
+    private static final String SESSIONS = "sessions";
+    private static final String DAYS = "days";
+    private static final String REOPENED_DAYS = "days.reopened";
     private final SessionRowParser sessionRowParser;
+    private final Option<ForkJoinPool> pool;
+    private final MetricsRegistry metrics = new MetricsRegistry();
 
     public SessionsParser(final SessionRowParser sessionRowParser) {
         this.sessionRowParser = requireNonNull(sessionRowParser);
+        this.pool = Option.none();
+    }
+
+    public SessionsParser(final SessionRowParser sessionRowParser, final ForkJoinPool pool) {
+        this.sessionRowParser = requireNonNull(sessionRowParser);
+        this.pool = Option.some(requireNonNull(pool));
     }
 
     public Try<Seq<DaySessions>> parse(final String spreadSheetId) {
         requireNonNull(spreadSheetId);
-        return sessionRowParser.parseSessions(spreadSheetId)
-                               .map(sessions -> sessions.groupBy(Session::dayInTheWeek).map(this::mapToSession))
-                               ;
+        return sessionRowParser.parseSessions(spreadSheetId).map(this::groupByDate);
+    }
+
+    /**
+     * Hands each day to the consumer as soon as it is complete, then gives them all once the rows are parsed.
+     * <p>
+     * The rows exported by Sched are in date order: a day is complete once a session of a later date is read. Should
+     * a session of a day already handed be read afterwards, the day is handed again once complete.
+     */
+    public Try<Seq<DaySessions>> parse(final String spreadSheetId, final Consumer<? super DaySessions> days) {
+        requireNonNull(spreadSheetId);
+        requireNonNull(days);
+        final DayAccumulator accumulator = new DayAccumulator(days);
+        return sessionRowParser.parseSessions(spreadSheetId, accumulator::add).map(count -> accumulator.finish());
+    }
+
+    /**
+     * The time spent grouping and sorting the sessions, the number of sessions and days, and the days handed again.
+     */
+    public MetricsRegistry metrics() {
+        return metrics;
     }
 
-    private DaySessions mapToSession(final Tuple2<DayOfWeek, Stream<Session>> daySessions) {
-        return new DaySessions(daySessions._1, daySessions._2.toList().sorted(sessionComparator()));
+    private Seq<DaySessions> groupByDate(final Stream<Session> sessions) {
+        final long start = System.nanoTime();
+        final Seq<DaySessions> days = sortByDate(sessions);
+        metrics.recordLatency(GROUP_STAGE, start);
+        metrics.counter(SESSIONS).add(days.map(day -> day.sessions().size()).sum().longValue());
+        metrics.counter(DAYS).add(days.size());
+        return days;
     }
-    private Comparator<Session> sessionComparator() {
-        return comparing(Session::start).thenComparing(Session::room).reversed();
+
+    private Seq<DaySessions> sortByDate(final Stream<Session> sessions) {
+        final java.util.Map<LocalDate, java.util.List<Session>> dates = new TreeMap<>();
+        for (final Session session : sessions) {
+            dates.computeIfAbsent(session.date(), date -> new ArrayList<>()).add(session);
+        }
+        final java.util.Map<String, Integer> roomRanks = roomRanks(sessions);
+
+        final List<java.util.Map.Entry<LocalDate, java.util.List<Session>>> days = List.ofAll(dates.entrySet());
+        if (pool.isEmpty()) {
+            return days.map(day -> sort(day.getKey(), day.getValue(), roomRanks));
+        }
+        final List<ForkJoinTask<DaySessions>> sorts =
+                days.map(day -> pool.get().submit(() -> sort(day.getKey(), day.getValue(), roomRanks)));
+        return sorts.map(ForkJoinTask::join);
+    }
+
+    /**
+     * The rank of each room in alphabetical order.
+     */
+    private static java.util.Map<String, Integer> roomRanks(final Iterable<Session> sessions) {
+        final SortedSet<String> rooms = new TreeSet<>();
+        for (final Session session : sessions) {
+            rooms.add(session.room());
+        }
+        final java.util.Map<String, Integer> roomRanks = new HashMap<>();
+        rooms.forEach(room -> roomRanks.put(room, roomRanks.size()));
+        return roomRanks;
+    }
+
+    private static DaySessions sort(final LocalDate date,
+                                    final java.util.List<Session> sessions,
+                                    final java.util.Map<String, Integer> roomRanks) {
+        Preconditions.checkArgument(sessions.size() <= INDEX_MASK, "too many sessions on %s", date);
+        final long rooms = roomRanks.size();
+        final long[] keys = new long[sessions.size()];
+        for (int i = 0; i < keys.length; i++) {
+            final Session session = sessions.get(i);
+            final long slot = session.start().toLocalTime().toSecondOfDay() * rooms + roomRanks.get(session.room());
+            // the complement of the index, so that equal slots are read back in their order
+            keys[i] = (slot << INDEX_BITS) | (INDEX_MASK - i);
+        }
+        Arrays.sort(keys);
+
+        final Session[] sorted = new Session[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[keys.length - 1 - i] = sessions.get((int) (INDEX_MASK - (keys[i] & INDEX_MASK)));
+        }
+        return new DaySessions(date, List.of(sorted));
+    }
+
+    /**
+     * The sessions read so far by date, the days already handed being kept in case they are reopened.
+     */
+    private final class DayAccumulator {
+        private final Consumer<? super DaySessions> consumer;
+        private final java.util.NavigableMap<LocalDate, java.util.List<Session>> dates = new TreeMap<>();
+        private final java.util.Map<LocalDate, DaySessions> handed = new HashMap<>();
+        private LocalDate latest;
+
+        private DayAccumulator(final Consumer<? super DaySessions> consumer) {
+            this.consumer = consumer;
+        }
+
+        void add(final Session session) {
+            final LocalDate date = session.date();
+            if (latest != null && date.isAfter(latest)) {
+                // the ones before are complete
+                dates.headMap(date, false).forEach(this::handIfOpen);
+            }
+            if (handed.remove(date) != null) {
+                metrics.counter(REOPENED_DAYS).increment();
+            }
+            dates.computeIfAbsent(date, day -> new ArrayList<>()).add(session);
+            if (latest == null || date.isAfter(latest)) {
+                latest = date;
+            }
+        }
+
+        Seq<DaySessions> finish() {
+            dates.forEach(this::handIfOpen);
+            final List<DaySessions> days = List.ofAll(dates.keySet()).map(handed::get);
+            metrics.counter(SESSIONS).add(days.map(day -> day.sessions().size()).sum().longValue());
+            metrics.counter(DAYS).add(days.size());
+            return days;
+        }
+
+        private void handIfOpen(final LocalDate date, final java.util.List<Session> sessions) {
+            if (handed.containsKey(date)) {
+                return;
+            }
+            final long start = System.nanoTime();
+            // the ranks of the rooms of the day keep the alphabetical order of all the rooms
+            final DaySessions day = sort(date, sessions, roomRanks(sessions));
+            metrics.recordLatency(GROUP_STAGE, start);
+            handed.put(date, day);
+            consumer.accept(day);
+        }
     }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.slides.v1.Slides;
+import com.google.api.services.slides.v1.model.BatchUpdatePresentationRequest;
+import com.google.api.services.slides.v1.model.Request;
+import com.google.common.base.Strings;
+
+import io.snowcamp.signage.session.Session;
+import io.snowcamp.signage.testing.ScriptedTransport;
+import io.vavr.collection.List;
+
+class BatchUpdaterTest {
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private static final int SESSIONS = 1200;
+    private final ScriptedTransport transport = new ScriptedTransport();
+    private final BatchUpdater batchUpdater =
+            new BatchUpdater.Builder().googleSlides(new Slides.Builder(transport, JSON_FACTORY, null)
+                                                              .setApplicationName("test")
+                                                              .build())
+                                      .build();
+
+    @Test
+    void splitsAtTheMaxRequests() throws IOException {
+        final List<Request> requests = requests(sessions(SESSIONS, 0));
+
+        batchUpdater.batchUpdate("deck", requests);
+
+        final List<List<String>> batches = sentBatches();
+        assertTrue(batches.size() > 1, batches.size() + " batches");
+        batches.init().forEach(batch -> assertEquals(BatchUpdater.DEFAULT_MAX_REQUESTS, batch.size()));
+        assertEquals(requests.map(BatchUpdaterTest::json), batches.flatMap(batch -> batch));
+    }
+
+    @Test
+    void splitsAtTheMaxBytes() throws IOException {
+        // titles of 8 KiB: far fewer than 500 replacements fill 2 MiB
+        final List<Request> requests = requests(sessions(SESSIONS, 8 * 1024));
+
+        batchUpdater.batchUpdate("deck", requests);
+
+        transport.calls().forEach(call -> assertTrue(call.content().getBytes(UTF_8).length
+                                                             <= BatchUpdater.DEFAULT_MAX_BYTES,
+                                                     call.content().length() + " bytes"));
+        final List<List<String>> batches = sentBatches();
+        assertTrue(batches.init().exists(batch -> batch.size() < BatchUpdater.DEFAULT_MAX_REQUESTS));
+        assertEquals(requests.map(BatchUpdaterTest::json), batches.flatMap(batch -> batch));
+    }
+
+    @Test
+    void reportsTheBatchesAppliedBeforeAFailure() {
+        final List<Request> requests = requests(sessions(SESSIONS, 0));
+        transport.then(200)
+                 .then(200)
+                 .then(ScriptedTransport.json(400, "{\"error\":{\"code\":400,\"message\":\"invalid request\"}}"));
+        final java.util.List<Integer> applied = new CopyOnWriteArrayList<>();
+
+        final BatchUpdateException error =
+                assertThrows(BatchUpdateException.class,
+                             () -> batchUpdater.batchUpdate("deck", requests, 0, applied::add));
+
+        assertEquals(2, error.appliedBatches());
+        assertEquals(java.util.List.of(0, 1), applied);
+        assertEquals(3, transport.calls().size());
+    }
+
+    @Test
+    void resumesAfterTheAppliedBatches() throws IOException {
+        final List<Request> requests = requests(sessions(SESSIONS, 0));
+
+        batchUpdater.batchUpdate("deck", requests, 2, batch -> { });
+
+        assertEquals(requests.drop(2 * BatchUpdater.DEFAULT_MAX_REQUESTS).map(BatchUpdaterTest::json),
+                     sentBatches().flatMap(batch -> batch));
+    }
+
+    private List<List<String>> sentBatches() {
+        return List.ofAll(transport.calls()).map(call -> {
+            try {
+                final BatchUpdatePresentationRequest batch =
+                        JSON_FACTORY.fromString(call.content(), BatchUpdatePresentationRequest.class);
+                return List.ofAll(batch.getRequests()).map(BatchUpdaterTest::json);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+    }
+
+    private static List<Request> requests(final List<Session> sessions) {
+        return SlidesGenerator.slidesRequests(SlideTemplate.withAllVariables("template"),
+                                              SlidesGenerator.slideIds(sessions.size()),
+                                              sessions);
+    }
+
+    private static List<Session> sessions(final int count, final int titleLength) {
+        final LocalDateTime first = LocalDateTime.of(2019, 1, 16, 9, 0);
+        return List.range(0, count).map(index -> new Session.Builder()
+                                                            .title(Strings.padEnd("Session " + index, titleLength, '.'))
+                                                            .speakers(List.of("Speaker " + index))
+                                                            .room("Room " + index % 8)
+                                                            .start(first.plusMinutes(45L * (index / 8)))
+                                                            .end(first.plusMinutes(45L * (index / 8) + 40))
+                                                            .build());
+    }
+
+    private static String json(final Request request) {
+        try {
+            return JSON_FACTORY.toString(request);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
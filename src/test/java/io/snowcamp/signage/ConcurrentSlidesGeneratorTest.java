@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.slides.v1.Slides;
+
+import io.snowcamp.signage.session.Session;
+import io.snowcamp.signage.testing.ScriptedTransport;
+import io.vavr.collection.List;
+
+class ConcurrentSlidesGeneratorTest {
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private static final Duration DELAY = Duration.ofMillis(20);
+    private static final int CONCURRENCY = 3;
+    private static final LocalDateTime NINE = LocalDateTime.of(2019, 1, 16, 9, 0);
+    private final ScriptedTransport transport = new ScriptedTransport().delay(DELAY);
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    ConcurrentSlidesGeneratorTest() {
+        final AtomicInteger copies = new AtomicInteger();
+        transport.otherwise(call -> {
+            if (call.url().contains("/copy")) {
+                return ScriptedTransport.json(200, "{\"id\":\"copy-" + copies.incrementAndGet() + "\"}");
+            }
+            if ("GET".equals(call.method())) {
+                return ScriptedTransport.json(200, "{\"slides\":[{\"objectId\":\"template_slide\",\"pageElements\":"
+                        + "[{\"objectId\":\"text\",\"shape\":{\"text\":{\"textElements\":[{\"textRun\":"
+                        + "{\"content\":\"{{ title }}\\n{{ room }}\\n\"}}]}}}]}]}");
+            }
+            return ScriptedTransport.json(200, "{}");
+        });
+    }
+
+    @Test
+    void returnsTheResultsInTheOrderOfTheDecks() {
+        final List<Deck> decks = decks(8);
+
+        final List<GeneratedPresentation> generated;
+        try (ConcurrentSlidesGenerator generator = new ConcurrentSlidesGenerator.Builder()
+                .slidesGenerator(counting(slidesGenerator()))
+                .concurrency(CONCURRENCY)
+                .build()) {
+            generated = generator.generateSlides("template", decks);
+        }
+
+        assertEquals(decks, generated.map(GeneratedPresentation::deck));
+        generated.forEach(presentation -> assertTrue(presentation.presentationId().isSuccess(),
+                                                     presentation.toString()));
+        assertEquals(decks.size(), generated.map(presentation -> presentation.presentationId().get())
+                                            .distinct()
+                                            .size());
+    }
+
+    @Test
+    void runsAtMostTheConcurrencyAtOnce() {
+        try (ConcurrentSlidesGenerator generator = new ConcurrentSlidesGenerator.Builder()
+                .slidesGenerator(counting(slidesGenerator()))
+                .concurrency(CONCURRENCY)
+                .build()) {
+            generator.generateSlides("template", decks(4 * CONCURRENCY));
+        }
+
+        assertTrue(maxRunning.get() <= CONCURRENCY, maxRunning + " generations at once");
+        assertTrue(maxRunning.get() > 1, "no generation at the same time");
+    }
+
+    @Test
+    void reportsTheLatencyOfEachDeck() {
+        final List<GeneratedPresentation> generated;
+        try (ConcurrentSlidesGenerator generator = new ConcurrentSlidesGenerator.Builder()
+                .slidesGenerator(slidesGenerator())
+                .concurrency(CONCURRENCY)
+                .build()) {
+            generated = generator.generateSlides("template", decks(CONCURRENCY));
+        }
+
+        // at least a copy, and a batch update, each answered after the delay
+        generated.forEach(presentation -> assertTrue(presentation.latency().compareTo(DELAY.multipliedBy(2)) >= 0,
+                                                     presentation.toString()));
+    }
+
+    @Test
+    void rejectsAConcurrencyAlongAnExecutor() {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertThrows(IllegalArgumentException.class,
+                         () -> new ConcurrentSlidesGenerator.Builder().slidesGenerator(slidesGenerator())
+                                                                       .concurrency(CONCURRENCY)
+                                                                       .executor(executor)
+                                                                       .build());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private SlidesGenerator slidesGenerator() {
+        return new SlidesGenerator(new Slides.Builder(transport, JSON_FACTORY, null).setApplicationName("test").build(),
+                                   new Drive.Builder(transport, JSON_FACTORY, null).setApplicationName("test").build());
+    }
+
+    /**
+     * Counts the generations running at once.
+     */
+    private PresentationGenerator counting(final PresentationGenerator slidesGenerator) {
+        return (templatePresentationId, deck) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                return slidesGenerator.generateSlides(templatePresentationId, deck);
+            } finally {
+                running.decrementAndGet();
+            }
+        };
+    }
+
+    private static List<Deck> decks(final int count) {
+        return List.range(0, count).map(index -> new Deck("deck-" + index, "Deck " + index, sessions(count - index)));
+    }
+
+    private static List<Session> sessions(final int count) {
+        return List.range(0, count).map(index -> new Session.Builder().title("Session " + index)
+                                                                     .speakers(List.of("Speaker " + index))
+                                                                     .room("Room " + index)
+                                                                     .start(NINE.plusHours(index))
+                                                                     .end(NINE.plusHours(index).plusMinutes(45))
+                                                                     .build());
+    }
+}
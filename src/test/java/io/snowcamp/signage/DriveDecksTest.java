@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.drive.Drive;
+
+import io.snowcamp.signage.gsuite.ApiThrottle;
+import io.snowcamp.signage.session.Session;
+import io.snowcamp.signage.testing.ScriptedTransport;
+import io.vavr.collection.HashMap;
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.control.Try;
+
+class DriveDecksTest {
+    private static final Pattern PART_REQUEST = Pattern.compile("^(GET|POST|PATCH|PUT|DELETE) (\\S+) HTTP/1.1$",
+                                                                Pattern.MULTILINE);
+    private static final Pattern FILE_ID = Pattern.compile("/files/([^/?]+)");
+    private static final String BOUNDARY = "batch_test";
+    private final java.util.List<Long> sleeps = new CopyOnWriteArrayList<>();
+    private final ApiThrottle throttle = new ApiThrottle.Builder().name("drive")
+                                                                  .permitsPerSecond(1000)
+                                                                  .initialBackOff(Duration.ofMillis(10))
+                                                                  .maxRetries(2)
+                                                                  .sleeper(sleeps::add)
+                                                                  .build();
+    private final ScriptedTransport transport = new ScriptedTransport();
+    private final DriveDecks driveDecks =
+            new DriveDecks.Builder().googleDrive(new Drive.Builder(transport,
+                                                                   JacksonFactory.getDefaultInstance(),
+                                                                   throttle.wrap(request -> {
+                                                                   }))
+                                                         .setApplicationName("test")
+                                                         .build())
+                                    .throttle(throttle)
+                                    .build();
+
+    @Test
+    void chargesEachCallOfABatch() {
+        transport.otherwise(call -> batchResponse(parts(call).map(part -> 200)));
+
+        final Map<String, Try<String>> copies = driveDecks.copyAll("template", decks(3));
+
+        assertEquals(3, copies.count(copy -> copy._2.isSuccess()));
+        assertEquals(1, transport.calls().size());
+        // the batch along with its 3 calls
+        assertEquals(4, throttle.metrics().attempts());
+    }
+
+    @Test
+    void sendsAgainTheCallsFailedOnARateLimit() {
+        final java.util.List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        transport.otherwise(call -> {
+            final List<String> parts = parts(call);
+            batchSizes.add(parts.size());
+            // the second call is rate limited the first time only
+            return batchResponse(parts.zipWithIndex()
+                                      .map(part -> batchSizes.size() == 1 && part._2 == 1 ? 429 : 200));
+        });
+
+        final Map<String, Try<String>> copies = driveDecks.copyAll("template", decks(3));
+
+        assertEquals(3, copies.count(copy -> copy._2.isSuccess()));
+        assertEquals(java.util.List.of(3, 1), batchSizes);
+        assertEquals(1, sleeps.size());
+        assertEquals(1, driveDecks.metrics().copies().retries());
+        assertEquals(1, throttle.metrics().retries());
+        // two batches along with their 3 then 1 calls
+        assertEquals(6, throttle.metrics().attempts());
+    }
+
+    @Test
+    void retriesTheBatchAsASingleCall() {
+        transport.then(ScriptedTransport.json(429, "{\"error\":{\"code\":429,\"message\":\"rate limited\"}}"))
+                 .otherwise(call -> batchResponse(parts(call).map(part -> 200)));
+
+        final Map<String, Try<String>> copies = driveDecks.copyAll("template", decks(2));
+
+        assertEquals(2, copies.count(copy -> copy._2.isSuccess()));
+        assertEquals(2, transport.calls().size());
+        assertEquals(1, sleeps.size());
+        // the batch sent twice, its 2 calls charged once
+        assertEquals(4, throttle.metrics().attempts());
+        assertEquals(1, throttle.metrics().retries());
+    }
+
+    @Test
+    void givesUpAfterTheMaxRetries() {
+        transport.otherwise(call -> batchResponse(parts(call).map(part -> 429)));
+
+        final Map<String, Try<String>> copies = driveDecks.copyAll("template", decks(2));
+
+        assertTrue(copies.forAll(copy -> copy._2.isFailure()));
+        assertEquals(3, transport.calls().size());
+        assertEquals(4, driveDecks.metrics().copies().retries());
+    }
+
+    @Test
+    void doesNotCopyAgainOnAServerError() {
+        transport.otherwise(call -> batchResponse(parts(call).map(part -> 503)));
+
+        final Map<String, Try<String>> copies = driveDecks.copyAll("template", decks(2));
+
+        // the copies may have been made: copied again, the decks would be there twice
+        assertTrue(copies.forAll(copy -> copy._2.isFailure()));
+        assertEquals(1, transport.calls().size());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    void doesNotSendAgainTheOtherFailures() {
+        transport.otherwise(call -> batchResponse(parts(call).map(part -> 404)));
+
+        final Map<String, Try<String>> copies = driveDecks.copyAll("template", decks(2));
+
+        assertTrue(copies.forAll(copy -> copy._2.isFailure()));
+        assertEquals(1, transport.calls().size());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    void trashesTheSupersededPresentations() throws IOException {
+        final java.util.List<List<String>> trashed = new CopyOnWriteArrayList<>();
+        transport.then(ScriptedTransport.json(200, "{\"files\":["
+                + "{\"id\":\"old-1\",\"appProperties\":{\"signageDeck\":\"deck-1\"}},"
+                + "{\"id\":\"old-2\",\"appProperties\":{\"signageDeck\":\"deck-2\"}},"
+                + "{\"id\":\"new-1\",\"appProperties\":{\"signageDeck\":\"deck-1\"}}]}"))
+                 .otherwise(call -> {
+                     final List<String> parts = parts(call);
+                     trashed.add(parts.map(DriveDecksTest::fileId));
+                     // old-2 fails on a server error the first time only
+                     return batchResponse(parts.map(part -> trashed.size() == 1 && part.contains("old-2") ? 503 : 200));
+                 });
+
+        final List<String> superseded =
+                driveDecks.trashSuperseded(HashMap.of("deck-1", "new-1").put("deck-2", "new-2"));
+
+        assertEquals(List.of("old-1", "old-2"), superseded);
+        assertEquals(java.util.List.of(List.of("old-1", "old-2"), List.of("old-2")), trashed);
+    }
+
+    private static List<Deck> decks(final int count) {
+        return List.range(0, count).map(index -> new Deck("deck-" + index, "Deck " + index, List.<Session>empty()));
+    }
+
+    /**
+     * The request line of each call of a batch.
+     */
+    private static List<String> parts(final ScriptedTransport.Call call) {
+        assertTrue(call.contentType().startsWith("multipart/mixed"), call.contentType());
+        List<String> parts = List.empty();
+        final Matcher matcher = PART_REQUEST.matcher(call.content());
+        while (matcher.find()) {
+            parts = parts.append(matcher.group());
+        }
+        return parts;
+    }
+
+    private static String fileId(final String part) {
+        final Matcher matcher = FILE_ID.matcher(part);
+        return matcher.find() ? matcher.group(1) : part;
+    }
+
+    /**
+     * A Drive batch response answering each call with the given status, in order.
+     */
+    private static LowLevelHttpResponse batchResponse(final List<Integer> statuses) {
+        final StringBuilder content = new StringBuilder();
+        statuses.zipWithIndex().forEach(status -> {
+            final String body = status._1 == 200
+                                ? "{\"id\":\"copy-" + status._2 + "\"}"
+                                : "{\"error\":{\"code\":" + status._1 + ",\"message\":\"failed\"}}";
+            content.append("--").append(BOUNDARY).append("\r\n")
+                   .append("Content-Type: application/http\r\n")
+                   .append("Content-ID: <response-").append(status._2 + 1).append(">\r\n\r\n")
+                   .append("HTTP/1.1 ").append(status._1).append(status._1 == 200 ? " OK" : " Error").append("\r\n")
+                   .append("Content-Type: application/json; charset=UTF-8\r\n\r\n")
+                   .append(body).append("\r\n");
+        });
+        content.append("--").append(BOUNDARY).append("--\r\n");
+        return new MockLowLevelHttpResponse().setStatusCode(200)
+                                             .setContentType("multipart/mixed; boundary=" + BOUNDARY)
+                                             .setContent(content.toString());
+    }
+}
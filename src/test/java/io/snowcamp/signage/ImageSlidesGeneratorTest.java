@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.base.Strings;
+
+class ImageSlidesGeneratorTest {
+    @Test
+    void keepsAPlainKey() {
+        assertEquals("2019-01-16_Room_1", ImageSlidesGenerator.directoryName("2019-01-16_Room_1"));
+    }
+
+    @Test
+    void keepsTheDecksInTheDirectory() {
+        final Path directory = Paths.get("slides");
+
+        for (final String key : new String[] {"..", "../../etc", "/tmp/deck", "room\\..\\..", ""}) {
+            final Path deckDirectory = directory.resolve(ImageSlidesGenerator.directoryName(key)).normalize();
+            assertEquals(directory, deckDirectory.getParent(), key);
+        }
+    }
+
+    @Test
+    void keepsApartTheKeysReplacedByTheSameName() {
+        final String room = ImageSlidesGenerator.directoryName("Room: 1");
+
+        assertTrue(room.startsWith("Room__1-"), room);
+        assertNotEquals(room, ImageSlidesGenerator.directoryName("Room? 1"));
+    }
+
+    @Test
+    void shortensALongKey() {
+        final String key = Strings.repeat("a", 200);
+
+        assertEquals(64, ImageSlidesGenerator.directoryName(key).length());
+        assertNotEquals(ImageSlidesGenerator.directoryName(key), ImageSlidesGenerator.directoryName(key + "b"));
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static io.snowcamp.signage.SlidesRequests.deleteSlideRequest;
+import static io.snowcamp.signage.SlidesRequests.duplicateSlideRequest;
+import static io.snowcamp.signage.SlidesRequests.moveSlidesRequest;
+import static io.snowcamp.signage.SlidesRequests.replaceTextRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.slides.v1.Slides;
+import com.google.api.services.slides.v1.model.BatchUpdatePresentationRequest;
+import com.google.api.services.slides.v1.model.Request;
+
+import io.snowcamp.signage.manifest.DeckManifest;
+import io.snowcamp.signage.manifest.Manifest;
+import io.snowcamp.signage.manifest.SlideManifest;
+import io.snowcamp.signage.session.Session;
+import io.snowcamp.signage.testing.ScriptedTransport;
+import io.vavr.collection.List;
+import io.vavr.control.Try;
+
+class IncrementalSlidesGeneratorTest {
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private static final String TEMPLATE = "template";
+    private static final String TITLE = "{{ title }}";
+    private static final String SPEAKERS = "{{ speakers }}";
+    private static final String ROOM = "{{ room }}";
+    private static final LocalDateTime NINE = LocalDateTime.of(2019, 1, 16, 9, 0);
+    private final ScriptedTransport transport = new ScriptedTransport();
+    private final AtomicInteger copies = new AtomicInteger();
+    private final Manifest manifest = new Manifest();
+    private volatile String templateText = TITLE + "\n" + SPEAKERS + "\n" + ROOM + "\n";
+
+    IncrementalSlidesGeneratorTest() {
+        transport.otherwise(call -> {
+            if (call.url().contains("/copy")) {
+                return ScriptedTransport.json(200, "{\"id\":\"copy-" + copies.incrementAndGet() + "\"}");
+            }
+            if ("GET".equals(call.method())) {
+                return ScriptedTransport.json(200, "{\"slides\":[{\"objectId\":\"template_slide\",\"pageElements\":"
+                        + "[{\"objectId\":\"text\",\"shape\":{\"text\":{\"textElements\":[{\"textRun\":{\"content\":"
+                        + "\"" + templateText.replace("\n", "\\n") + "\"}}]}}}]}]}");
+            }
+            return ScriptedTransport.json(200, "{}");
+        });
+    }
+
+    @Test
+    void sendsNothingWhenNothingChanged() {
+        final IncrementalSlidesGenerator generator = generator(BatchUpdater.DEFAULT_MAX_REQUESTS);
+        assertEquals(Try.success("copy-1"), generator.generateSlides(TEMPLATE, deck(sessions("A", "B", "C"))));
+        final int calls = transport.calls().size();
+
+        assertEquals(Try.success("copy-1"), generator.generateSlides(TEMPLATE, deck(sessions("A", "B", "C"))));
+
+        assertEquals(calls, transport.calls().size());
+    }
+
+    @Test
+    void replacesTheTextsOfAModifiedSession() {
+        final IncrementalSlidesGenerator generator = generator(BatchUpdater.DEFAULT_MAX_REQUESTS);
+        generator.generateSlides(TEMPLATE, deck(sessions("A", "B", "C")));
+        final String slideB = slideId("B");
+        final int calls = transport.calls().size();
+
+        final List<Session> moved = sessions("A", "B", "C").update(1, session("B", 1, "Amphi Z"));
+        assertEquals(Try.success("copy-1"), generator.generateSlides(TEMPLATE, deck(moved)));
+
+        // the previous room is replaced back by its variable, then by the new room
+        assertEquals(json(List.of(replaceTextRequest(slideB, "Amphi B", ROOM),
+                                  replaceTextRequest(slideB, ROOM, "Amphi Z"))),
+                     json(sentRequests(calls)));
+        assertEquals(slideB, slideId("B"));
+        assertEquals("Amphi Z", slide("B").variables().get(ROOM).get());
+    }
+
+    @Test
+    void duplicatesThePreviousSlideForAnAddedSession() {
+        final IncrementalSlidesGenerator generator = generator(BatchUpdater.DEFAULT_MAX_REQUESTS);
+        generator.generateSlides(TEMPLATE, deck(sessions("A", "B", "C")));
+        final List<String> previousSlides = slideIds();
+        final String slideC = slideId("C");
+        final int calls = transport.calls().size();
+
+        // displayed in the reverse order: C, X, B, A
+        final List<Session> added = sessions("A", "B", "C").insert(2, session("X", 2, "Amphi X"));
+        generator.generateSlides(TEMPLATE, deck(added));
+
+        final String slideX = slideId("X");
+        assertEquals(json(List.of(duplicateSlideRequest(slideC, slideX),
+                                  replaceTextRequest(slideX, "Session C", TITLE),
+                                  replaceTextRequest(slideX, "Speaker C", SPEAKERS),
+                                  replaceTextRequest(slideX, "Amphi C", ROOM),
+                                  replaceTextRequest(slideX, TITLE, "Session X"),
+                                  replaceTextRequest(slideX, SPEAKERS, "Speaker X"),
+                                       replaceTextRequest(slideX, ROOM, "Amphi X"))),
+                     json(sentRequests(calls)));
+        assertEquals(previousSlides.insert(1, slideX), slideIds());
+    }
+
+    @Test
+    void movesUpfrontTheSlideOfAnAddedFirstSession() {
+        final IncrementalSlidesGenerator generator = generator(BatchUpdater.DEFAULT_MAX_REQUESTS);
+        generator.generateSlides(TEMPLATE, deck(sessions("A", "B", "C")));
+        final String slideC = slideId("C");
+        final int calls = transport.calls().size();
+
+        // the last session is displayed first
+        generator.generateSlides(TEMPLATE, deck(sessions("A", "B", "C").append(session("D", 3, "Amphi D"))));
+
+        final String slideD = slideId("D");
+        final List<Request> requests = sentRequests(calls);
+        assertEquals(json(List.of(duplicateSlideRequest(slideC, slideD), moveSlidesRequest(List.of(slideD), 0))),
+                     json(requests.take(2)));
+        assertTrue(requests.drop(2).forAll(request -> request.getReplaceAllText() != null
+                           && request.getReplaceAllText().getPageObjectIds().contains(slideD)),
+                   requests.toString());
+        assertEquals(slideD, slideIds().head());
+    }
+
+    @Test
+    void deletesTheSlideOfARemovedSession() {
+        final IncrementalSlidesGenerator generator = generator(BatchUpdater.DEFAULT_MAX_REQUESTS);
+        generator.generateSlides(TEMPLATE, deck(sessions("A", "B", "C")));
+        final String slideB = slideId("B");
+        final int calls = transport.calls().size();
+
+        generator.generateSlides(TEMPLATE, deck(List.of(session("A", 0, "Amphi A"), session("C", 2, "Amphi C"))));
+
+        assertEquals(json(List.of(deleteSlideRequest(slideB))), json(sentRequests(calls)));
+        assertEquals(2, slideIds().size());
+    }
+
+    @Test
+    void movesEverySlideOfRescheduledSessions() {
+        final IncrementalSlidesGenerator generator = generator(BatchUpdater.DEFAULT_MAX_REQUESTS);
+        generator.generateSlides(TEMPLATE, deck(sessions("A", "B", "C")));
+        final String slideA = slideId("A");
+        final String slideB = slideId("B");
+        final String slideC = slideId("C");
+        final int calls = transport.calls().size();
+
+        generator.generateSlides(TEMPLATE, deck(sessions("A", "B", "C").reverse()));
+
+        assertEquals(json(List.of(moveSlidesRequest(List.of(slideA), 0),
+                                  moveSlidesRequest(List.of(slideB), 1),
+                                  moveSlidesRequest(List.of(slideC), 2))),
+                     json(sentRequests(calls)));
+        assertEquals(List.of(slideA, slideB, slideC), slideIds());
+    }
+
+    @Test
+    void generatesAgainWhenATextIsAlsoATextOfTheTemplate() {
+        templateText = "Session B\n" + TITLE + "\n" + SPEAKERS + "\n" + ROOM + "\n";
+        final IncrementalSlidesGenerator generator = generator(BatchUpdater.DEFAULT_MAX_REQUESTS);
+        generator.generateSlides(TEMPLATE, deck(sessions("A", "B", "C")));
+        final int calls = transport.calls().size();
+
+        // replacing "Session B" back would replace the text of the template too
+        final List<Session> moved = sessions("A", "B", "C").update(1, session("B", 1, "Amphi Z"));
+        assertEquals(Try.success("copy-2"), generator.generateSlides(TEMPLATE, deck(moved)));
+
+        assertTrue(sentRequests(calls).exists(request -> request.getDuplicateObject() != null
+                && "template_slide".equals(request.getDuplicateObject().getObjectId())));
+        assertTrashed(calls, "copy-1");
+        assertEquals("copy-2", manifest.deck("deck").get().presentationId());
+    }
+
+    @Test
+    void generatesAgainAPresentationPartiallyUpdated() {
+        // a batch per room replaced back and forth
+        final IncrementalSlidesGenerator generator = generator(2);
+        generator.generateSlides(TEMPLATE, deck(sessions("A", "B", "C")));
+        final List<Session> moved = List.of(session("A", 0, "Amphi X"),
+                                            session("B", 1, "Amphi Y"),
+                                            session("C", 2, "Amphi Z"));
+        transport.then(200).then(500);
+
+        assertTrue(generator.generateSlides(TEMPLATE, deck(moved)).isFailure());
+
+        // none of the slides is known any more, but the presentation is
+        assertEquals("copy-1", manifest.deck("deck").get().presentationId());
+        assertTrue(manifest.deck("deck").get().slides().isEmpty());
+        final int calls = transport.calls().size();
+
+        assertEquals(Try.success("copy-2"), generator.generateSlides(TEMPLATE, deck(moved)));
+
+        assertTrashed(calls, "copy-1");
+        assertEquals(3, slideIds().size());
+    }
+
+    private IncrementalSlidesGenerator generator(final int maxRequests) {
+        final Slides googleSlides = new Slides.Builder(transport, JSON_FACTORY, null).setApplicationName("test")
+                                                                                    .build();
+        final Drive googleDrive = new Drive.Builder(transport, JSON_FACTORY, null).setApplicationName("test").build();
+        final BatchUpdater batchUpdater = new BatchUpdater.Builder().googleSlides(googleSlides)
+                                                                    .maxRequests(maxRequests)
+                                                                    .build();
+        final SlidesGenerator slidesGenerator =
+                new SlidesGenerator(googleSlides, new DriveDecks.Builder().googleDrive(googleDrive).build(),
+                                    batchUpdater);
+        return new IncrementalSlidesGenerator(slidesGenerator, batchUpdater, manifest);
+    }
+
+    private void assertTrashed(final int fromCall, final String presentationId) {
+        assertTrue(List.ofAll(transport.calls())
+                       .drop(fromCall)
+                       .exists(call -> call.url().endsWith("batch/drive/v3")
+                               && call.content().contains("/files/" + presentationId + "?")),
+                   presentationId + " not trashed");
+    }
+
+    /**
+     * The requests of the Slides batches sent from the given call on.
+     */
+    private List<Request> sentRequests(final int fromCall) {
+        return List.ofAll(transport.calls())
+                   .drop(fromCall)
+                   .filter(call -> call.url().endsWith(":batchUpdate"))
+                   .flatMap(call -> List.ofAll(Try.of(() -> JSON_FACTORY.fromString(
+                           call.content(), BatchUpdatePresentationRequest.class)).get().getRequests()));
+    }
+
+    private List<String> slideIds() {
+        return manifest.deck("deck").map(DeckManifest::slides).get().map(SlideManifest::slideId);
+    }
+
+    private String slideId(final String name) {
+        return slide(name).slideId();
+    }
+
+    private SlideManifest slide(final String name) {
+        return manifest.deck("deck").get().slides().find(slide -> slide.sessionKey().startsWith("Session " + name))
+                       .get();
+    }
+
+    /**
+     * The requests as sent, their models telling apart a missing field from a default one.
+     */
+    private static List<String> json(final List<Request> requests) {
+        return requests.map(request -> Try.of(() -> JSON_FACTORY.toString(request)).get());
+    }
+
+    private static Deck deck(final List<Session> sessions) {
+        return new Deck("deck", "Deck", sessions);
+    }
+
+    private static List<Session> sessions(final String... names) {
+        return List.of(names).zipWithIndex().map(name -> session(name._1, name._2, "Amphi " + name._1));
+    }
+
+    private static Session session(final String name, final int slot, final String room) {
+        return new Session.Builder().title("Session " + name)
+                                    .speakers(List.of("Speaker " + name))
+                                    .room(room)
+                                    .start(NINE.plusHours(slot))
+                                    .end(NINE.plusHours(slot).plusMinutes(45))
+                                    .build();
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.snowcamp.signage.render.SlideRenderer;
+import io.snowcamp.signage.session.DaySessions;
+import io.snowcamp.signage.session.Session;
+import io.snowcamp.signage.testing.MutableClock;
+import io.vavr.collection.List;
+
+class KioskServerTest {
+    private static final LocalDate DAY = LocalDate.of(2019, 1, 16);
+    private static final String LOOPBACK = "127.0.0.1";
+    private static final String ROOM = "Amphi";
+    private static final Pattern IMAGE_SOURCE = Pattern.compile("<img src=\"(/slides/[^\"]+)\"");
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private final MutableClock clock = new MutableClock(LocalDateTime.of(DAY, LocalTime.of(9, 10))
+                                                                     .toInstant(ZoneOffset.UTC));
+    private Path cache;
+    private KioskServer kiosk;
+
+    @BeforeEach
+    void start(@TempDir final Path directory) throws IOException {
+        final Path layout = Files.writeString(directory.resolve("layout.json"), "{\"width\":64,\"height\":36}");
+        cache = directory.resolve("cache");
+        kiosk = new KioskServer.Builder().renderer(SlideRenderer.load(layout))
+                                         .cacheDirectory(cache)
+                                         .address(InetAddress.getByName(LOOPBACK))
+                                         .port(0)
+                                         .tick(Duration.ofMillis(20))
+                                         .clock(clock)
+                                         .build();
+        kiosk.update(List.of(new DaySessions(DAY, List.of(session("Keynote", 9), session("Opening talk", 10)))));
+        kiosk.start();
+    }
+
+    @AfterEach
+    void close() {
+        kiosk.close();
+    }
+
+    @Test
+    void answersAPage304WhileItsSlideIsTheSame() throws Exception {
+        final HttpResponse<String> page = awaitPage();
+        final String etag = page.headers().firstValue("ETag").get();
+
+        assertEquals(304, get("/rooms/" + ROOM, etag).statusCode());
+        assertEquals(200, get("/rooms/" + ROOM, "\"other\"").statusCode());
+
+        clock.advance(Duration.ofHours(1));
+        final HttpResponse<String> next = awaitChange(etag);
+        assertNotEquals(etag, next.headers().firstValue("ETag").get());
+        assertEquals(304, get("/rooms/" + ROOM, next.headers().firstValue("ETag").get()).statusCode());
+        assertTrue(kiosk.metrics().counter("pages.notModified").sum() >= 2);
+    }
+
+    @Test
+    void servesAnImageWithAnImmutableETag() throws Exception {
+        final String image = imageOf(awaitPage());
+
+        final HttpResponse<byte[]> sent = client.send(request(image, null), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, sent.statusCode());
+        assertEquals("image/png", sent.headers().firstValue("Content-Type").get());
+        assertTrue(sent.headers().firstValue("Cache-Control").get().contains("immutable"));
+        final Path cached = cache.resolve(image.substring("/slides/".length()));
+        assertArrayEquals(Files.readAllBytes(cached), sent.body());
+
+        assertEquals(304, get(image, sent.headers().firstValue("ETag").get()).statusCode());
+    }
+
+    @Test
+    void servesOnlyTheImagesOfTheCache() throws Exception {
+        awaitPage();
+        Files.writeString(cache.resolveSibling("secret.png"), "secret");
+        Files.writeString(cache.resolve("notes.txt"), "notes");
+
+        for (final String path : new String[] {"/slides/..%2Fsecret.png", "/slides/%2E%2E/secret.png",
+                                               "/slides/notes.txt", "/slides/", "/slides/0123abcd.png"}) {
+            assertEquals(404, get(path, null).statusCode(), path);
+        }
+    }
+
+    @Test
+    void answers404ForAnUnknownRoom() throws Exception {
+        awaitPage();
+
+        assertEquals(404, get("/rooms/Unknown", null).statusCode());
+        assertEquals(404, get("/elsewhere", null).statusCode());
+        final HttpResponse<String> rooms = get("/rooms/", null);
+        assertEquals(200, rooms.statusCode());
+        assertTrue(rooms.body().contains("href=\"/rooms/" + ROOM + "\""), rooms.body());
+    }
+
+    @Test
+    void tellsTheScreensToReloadOnceTheirSlideChanges() throws Exception {
+        final String version = unquote(awaitPage().headers().firstValue("ETag").get());
+        final HttpResponse<Stream<String>> events =
+                client.send(request("/rooms/" + ROOM + "/events?version=" + version, null),
+                            HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, events.statusCode());
+        assertEquals("text/event-stream; charset=utf-8", events.headers().firstValue("Content-Type").get());
+
+        final CompletableFuture<String> event = CompletableFuture.supplyAsync(
+                () -> events.body().filter(line -> line.startsWith("data: ")).findFirst().get());
+        clock.advance(Duration.ofHours(1));
+
+        final String changed = event.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS).substring("data: ".length());
+        assertNotEquals(version, changed);
+        assertEquals('"' + changed + '"', get("/rooms/" + ROOM, null).headers().firstValue("ETag").get());
+    }
+
+    private HttpResponse<String> awaitPage() throws Exception {
+        return await(() -> get("/rooms/" + ROOM, null), response -> response.statusCode() == 200);
+    }
+
+    private HttpResponse<String> awaitChange(final String etag) throws Exception {
+        return await(() -> get("/rooms/" + ROOM, etag), response -> response.statusCode() == 200);
+    }
+
+    private static <T> T await(final java.util.concurrent.Callable<T> call,
+                               final java.util.function.Predicate<T> done) throws Exception {
+        final long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        T result = call.call();
+        while (!done.test(result) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(20);
+            result = call.call();
+        }
+        assertTrue(done.test(result), "timed out");
+        return result;
+    }
+
+    private HttpResponse<String> get(final String path, final String ifNoneMatch)
+            throws IOException, InterruptedException {
+        return client.send(request(path, ifNoneMatch), HttpResponse.BodyHandlers.ofString(UTF_8));
+    }
+
+    private HttpRequest request(final String path, final String ifNoneMatch) {
+        final URI uri = URI.create("http://" + LOOPBACK + ':' + kiosk.port() + path);
+        final HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(TIMEOUT);
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return request.build();
+    }
+
+    private static String imageOf(final HttpResponse<String> page) {
+        final Matcher image = IMAGE_SOURCE.matcher(page.body());
+        assertTrue(image.find(), page.body());
+        return image.group(1);
+    }
+
+    private static String unquote(final String etag) {
+        return etag.substring(1, etag.length() - 1);
+    }
+
+    private static Session session(final String title, final int hour) {
+        return new Session.Builder().title(title)
+                                    .speakers(List.of("Speaker"))
+                                    .room(ROOM)
+                                    .start(LocalDateTime.of(DAY, LocalTime.of(hour, 0)))
+                                    .end(LocalDateTime.of(DAY, LocalTime.of(hour, 45)))
+                                    .build();
+    }
+}
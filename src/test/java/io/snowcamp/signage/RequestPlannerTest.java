@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.slides.v1.model.BatchUpdatePresentationRequest;
+import com.google.api.services.slides.v1.model.Request;
+
+import io.snowcamp.signage.session.Session;
+import io.vavr.collection.List;
+import io.vavr.control.Try;
+
+class RequestPlannerTest {
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    private static final LocalDateTime NINE = LocalDateTime.of(2019, 1, 16, 9, 0);
+    private static final List<Deck> DECKS = List.of(deck("wednesday", 3), deck("thursday", 7), deck("friday", 2));
+
+    @Test
+    void plansTheRequestsOfTheSlidesGenerator() {
+        final RequestPlan plan = new RequestPlanner.Builder().build().plan(DECKS);
+
+        assertEquals(3, plan.presentations());
+        assertEquals(12, plan.slides());
+        assertEquals(12, plan.duplicateRequests());
+        assertEquals(3, plan.deleteRequests());
+        assertEquals(plan.decks().flatMap(DeckPlan::requests).size() - 15, plan.replaceRequests());
+        plan.decks().zip(DECKS).forEach(deck -> assertEquals(json(generatorRequests(deck._2)),
+                                                             json(deck._1.requests())));
+    }
+
+    @Test
+    void splitsTheRequestsAsTheBatchUpdater() {
+        final RequestPlan plan = new RequestPlanner.Builder().maxRequests(10).build().plan(DECKS);
+
+        plan.decks().zip(DECKS).forEach(deck -> assertEquals(
+                generatorRequests(deck._2).grouped(10).map(List::size).toList(), deck._1.batchRequests()));
+        // the template, then the batches of every deck
+        assertEquals(1 + plan.decks().map(deck -> deck.batchRequests().size()).sum().longValue(), plan.slidesCalls());
+        assertEquals(DECKS.map(deck -> generatorRequests(deck).grouped(10).size()).max().get().longValue(),
+                     plan.longestDeckCalls());
+    }
+
+    @Test
+    void estimatesThePayloadOfEachBatch() {
+        final int maxBytes = 2048;
+        final RequestPlan plan = new RequestPlanner.Builder().maxBytes(maxBytes).build().plan(DECKS);
+
+        for (final Deck deck : DECKS) {
+            final DeckPlan deckPlan = plan.decks().find(candidate -> candidate.key().equals(deck.key())).get();
+            final List<Long> payloads = batchPayloads(deckPlan.requests(), deckPlan.batchRequests());
+            assertEquals(payloads.size(), deckPlan.batchBytes().size());
+            payloads.zip(deckPlan.batchBytes()).forEach(batch -> {
+                assertTrue(batch._1 <= batch._2 && batch._2 - batch._1 <= 2, batch.toString());
+                assertTrue(batch._2 <= maxBytes, batch.toString());
+            });
+        }
+        assertEquals(plan.decks().flatMap(DeckPlan::batchBytes).sum().longValue(), plan.requestBytes());
+    }
+
+    @Test
+    void chargesTheDriveThrottleForEveryCopyAndBatch() {
+        final RequestPlan plan = new RequestPlanner.Builder().driveBatchSize(2)
+                                                             .drivePermitsPerSecond(2)
+                                                             .slidesPermitsPerSecond(4)
+                                                             .build()
+                                                             .plan(DECKS);
+
+        assertEquals(2, plan.driveCalls());
+        assertEquals(3, plan.driveRequests());
+        assertEquals((3 + 2) / 2.0, plan.driveMinimumSeconds());
+        assertEquals(plan.slidesCalls() / 4.0, plan.slidesMinimumSeconds());
+    }
+
+    private static List<Request> generatorRequests(final Deck deck) {
+        return SlidesGenerator.slidesRequests(SlideTemplate.withAllVariables(RequestPlanner.TEMPLATE_SLIDE_ID),
+                                              SlidesGenerator.slideIds(deck.sessions().size()),
+                                              deck.sessions());
+    }
+
+    /**
+     * The bytes of each batchUpdate call as sent.
+     */
+    private static List<Long> batchPayloads(final List<Request> requests, final List<Integer> batchRequests) {
+        List<Request> pending = requests;
+        List<Long> payloads = List.empty();
+        for (final int size : batchRequests) {
+            final BatchUpdatePresentationRequest batch =
+                    new BatchUpdatePresentationRequest().setRequests(pending.take(size).asJava());
+            payloads = payloads.append((long) Try.of(() -> JSON_FACTORY.toByteArray(batch)).get().length);
+            pending = pending.drop(size);
+        }
+        assertTrue(pending.isEmpty());
+        return payloads;
+    }
+
+    private static List<String> json(final List<Request> requests) {
+        return requests.map(request -> Try.of(() -> JSON_FACTORY.toString(request)).get());
+    }
+
+    private static Deck deck(final String key, final int sessions) {
+        return new Deck(key, key, List.range(0, sessions).map(index -> new Session.Builder()
+                .title("Session " + key + " " + index)
+                .speakers(List.of("Speaker " + index))
+                .room("Room " + index)
+                .start(NINE.plusHours(index))
+                .end(NINE.plusHours(index).plusMinutes(45))
+                .build()));
+    }
+}
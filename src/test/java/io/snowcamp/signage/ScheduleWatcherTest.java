@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.snowcamp.signage.gsuite.FileChange;
+import io.snowcamp.signage.testing.MutableClock;
+
+class ScheduleWatcherTest {
+    private static final Duration QUIET_PERIOD = Duration.ofSeconds(10);
+    private static final Duration MAX_DELAY = Duration.ofSeconds(30);
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(5);
+    private final MutableClock clock = new MutableClock(Instant.parse("2019-01-16T08:00:00Z"));
+    private final java.util.List<Long> runs = new CopyOnWriteArrayList<>();
+    private final java.util.List<Boolean> superseded = new CopyOnWriteArrayList<>();
+    private volatile long version = 1;
+    private volatile ScheduleWatcher.Regeneration during = (change, isSuperseded) -> { };
+    // the regenerations run on the polling thread, the ones triggered while running wait for the current one
+    private final ScheduleWatcher watcher =
+            new ScheduleWatcher.Builder().changeSource(fileId -> new FileChange(version, clock.instant()))
+                                         .fileId("schedule")
+                                         .pollInterval(POLL_INTERVAL)
+                                         .quietPeriod(QUIET_PERIOD)
+                                         .maxDelay(MAX_DELAY)
+                                         .clock(clock)
+                                         .runner(Runnable::run)
+                                         .regeneration((change, isSuperseded) -> {
+                                             runs.add(change.version());
+                                             during.regenerate(change, isSuperseded);
+                                             superseded.add(isSuperseded.getAsBoolean());
+                                         })
+                                         .build();
+
+    @AfterEach
+    void closeWatcher() {
+        watcher.close();
+    }
+
+    @Test
+    void runsRightAwayOnTheFirstPoll() {
+        watcher.poll();
+
+        assertEquals(java.util.List.of(1L), runs);
+    }
+
+    @Test
+    void waitsForTheQuietPeriod() {
+        watcher.poll();
+        version = 2;
+
+        watcher.poll();
+        tick();
+        watcher.poll();
+        assertEquals(java.util.List.of(1L), runs);
+
+        tick();
+        watcher.poll();
+        assertEquals(java.util.List.of(1L, 2L), runs);
+    }
+
+    @Test
+    void runsAfterTheMaxDelayWhileTheEditsGoOn() {
+        watcher.poll();
+
+        // a new version at every poll: the edits are never quiet
+        for (long elapsed = 0; elapsed < MAX_DELAY.toSeconds(); elapsed += POLL_INTERVAL.toSeconds()) {
+            version++;
+            watcher.poll();
+            tick();
+        }
+        assertEquals(java.util.List.of(1L), runs);
+
+        version++;
+        watcher.poll();
+        assertEquals(java.util.List.of(1L, version), runs);
+    }
+
+    @Test
+    void coalescesTheChangesSeenDuringARun() {
+        watcher.poll();
+        during = (change, isSuperseded) -> {
+            if (change.version() == 2) {
+                // two bursts of edits end while the regeneration of version 2 runs
+                for (long next = 3; next <= 4; next++) {
+                    version = next;
+                    watcher.poll();
+                    clock.advance(QUIET_PERIOD);
+                    watcher.poll();
+                }
+            }
+        };
+        version = 2;
+        watcher.poll();
+        clock.advance(QUIET_PERIOD);
+
+        watcher.poll();
+
+        assertEquals(java.util.List.of(1L, 2L, 4L), runs);
+        assertEquals(java.util.List.of(false, true, false), superseded);
+        assertEquals(1, watcher.metrics().counter("runs.coalesced").sum());
+        assertEquals(1, watcher.metrics().counter("runs.superseded").sum());
+    }
+
+    private void tick() {
+        clock.advance(POLL_INTERVAL);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.drive.Drive;
+
+import io.snowcamp.signage.session.Session;
+import io.snowcamp.signage.session.SessionRowParser;
+import io.snowcamp.signage.session.SessionsParser;
+import io.snowcamp.signage.testing.ScriptedTransport;
+import io.vavr.collection.List;
+import io.vavr.collection.Stream;
+import io.vavr.control.Try;
+
+class SlidesPipelineTest {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2019, 1, 16);
+    private static final Pattern PART_REQUEST = Pattern.compile("^(POST|PATCH) (\\S+) HTTP/1.1$", Pattern.MULTILINE);
+    private static final String BOUNDARY = "batch_test";
+    private final ScriptedTransport transport = new ScriptedTransport();
+    private final AtomicInteger files = new AtomicInteger();
+    private final AtomicInteger sessionsRead = new AtomicInteger();
+    private final java.util.List<String> generations = new java.util.concurrent.CopyOnWriteArrayList<>();
+    private final java.util.Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+    private final AtomicInteger overlaps = new AtomicInteger();
+
+    SlidesPipelineTest() {
+        transport.otherwise(this::batchResponse);
+    }
+
+    @Test
+    void reportsThePresentationsInTheOrderOfTheDecks() throws InterruptedException {
+        final SlidesPipeline.Result result = run(sessions(0, 1, 2), 4, generator(() -> { }));
+
+        assertEquals(List.of(day(0), day(1), day(2)), result.presentations().map(generated -> generated.deck().key()));
+        assertEquals(3, result.days().get().size());
+        result.presentations().forEach(generated -> assertTrue(generated.presentationId().isSuccess()));
+    }
+
+    @Test
+    void readsNoFurtherThanTheQueuesAllow() throws InterruptedException {
+        final int days = 20;
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        final PresentationGenerator blocked = generator(() -> {
+            started.countDown();
+            Try.run(released::await);
+        });
+        final SlidesPipeline pipeline = pipeline(sessions(List.range(0, days)), 1, blocked);
+
+        final Thread run = new Thread(() -> Try.run(() -> pipeline.run("schedule", "template")));
+        run.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // the stages fill their queues, then wait for the generation
+        TimeUnit.MILLISECONDS.sleep(200);
+        final int read = sessionsRead.get();
+        released.countDown();
+        run.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertTrue(read < days / 2, read + " sessions read while the first deck was generated");
+        assertEquals(days, sessionsRead.get());
+        assertEquals(days, generations.size());
+    }
+
+    @Test
+    void generatesAReopenedDeckOnceTheFirstGenerationIsDone() throws InterruptedException {
+        // a late session of the first day, read after the second day
+        final PresentationGenerator slow = generator(() -> Try.run(() -> Thread.sleep(50)));
+        final SlidesPipeline.Result result = run(sessions(0, 1, 0, 2), 4, slow);
+
+        assertEquals(List.of(day(0), day(1), day(2)), result.presentations().map(generated -> generated.deck().key()));
+        assertEquals(2, List.ofAll(generations).count(day(0)::equals));
+        assertEquals(0, overlaps.get());
+        // the last generation is reported, the presentation of the first one is trashed
+        final String reported = result.presentations().head().presentationId().get();
+        assertEquals(day(0) + "#2", reported);
+        assertTrue(List.ofAll(transport.calls())
+                       .exists(call -> call.content().contains("PATCH /drive/v3/files/" + day(0) + "%231?")),
+                   "first presentation not trashed");
+        assertEquals(2, result.presentations().head().deck().sessions().size());
+    }
+
+    private SlidesPipeline.Result run(final List<Session> sessions,
+                                      final int queueCapacity,
+                                      final PresentationGenerator generator) throws InterruptedException {
+        return pipeline(sessions, queueCapacity, generator).run("schedule", "template");
+    }
+
+    private SlidesPipeline pipeline(final List<Session> sessions,
+                                    final int queueCapacity,
+                                    final PresentationGenerator generator) {
+        final Drive googleDrive = new Drive.Builder(transport, JacksonFactory.getDefaultInstance(), null)
+                                           .setApplicationName("test")
+                                           .build();
+        return new SlidesPipeline.Builder().sessionsParser(new SessionsParser(rowParser(sessions)))
+                                           .deckLayout(DeckLayout.DAY)
+                                           .generator(new ConcurrentSlidesGenerator.Builder()
+                                                              .slidesGenerator(generator)
+                                                              .concurrency(2)
+                                                              .build())
+                                           .driveDecks(new DriveDecks.Builder().googleDrive(googleDrive).build())
+                                           .queueCapacity(queueCapacity)
+                                           .build();
+    }
+
+    /**
+     * Hands the sessions one at a time, counting them.
+     */
+    private SessionRowParser rowParser(final List<Session> sessions) {
+        return new SessionRowParser() {
+            @Override
+            public Try<Stream<Session>> parseSessions(final String spreadSheetId) {
+                return Try.success(Stream.ofAll(sessions));
+            }
+
+            @Override
+            public Try<Integer> parseSessions(final String spreadSheetId,
+                                              final java.util.function.Consumer<? super Session> consumer) {
+                sessions.forEach(session -> {
+                    sessionsRead.incrementAndGet();
+                    consumer.accept(session);
+                });
+                return Try.success(sessions.size());
+            }
+        };
+    }
+
+    /**
+     * Generates a deck as "<key>#<generation>", running the given step meanwhile.
+     */
+    private PresentationGenerator generator(final Runnable step) {
+        return (templatePresentationId, deck) -> {
+            if (running.computeIfAbsent(deck.key(), key -> new AtomicInteger()).incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            try {
+                generations.add(deck.key());
+                step.run();
+                return Try.success(deck.key() + "#" + List.ofAll(generations).count(deck.key()::equals));
+            } finally {
+                running.get(deck.key()).decrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Answers every part of a Drive batch with a file.
+     */
+    private MockLowLevelHttpResponse batchResponse(final ScriptedTransport.Call call) {
+        final StringBuilder content = new StringBuilder();
+        final Matcher parts = PART_REQUEST.matcher(call.content());
+        int part = 0;
+        while (parts.find()) {
+            part++;
+            content.append("--").append(BOUNDARY).append("\r\n")
+                   .append("Content-Type: application/http\r\n")
+                   .append("Content-ID: <response-").append(part).append(">\r\n\r\n")
+                   .append("HTTP/1.1 200 OK\r\n")
+                   .append("Content-Type: application/json; charset=UTF-8\r\n\r\n")
+                   .append("{\"id\":\"file-").append(files.incrementAndGet()).append("\"}\r\n");
+        }
+        content.append("--").append(BOUNDARY).append("--\r\n");
+        return new MockLowLevelHttpResponse().setStatusCode(200)
+                                             .setContentType("multipart/mixed; boundary=" + BOUNDARY)
+                                             .setContent(content.toString());
+    }
+
+    private static String day(final int day) {
+        return FIRST_DAY.plusDays(day).toString();
+    }
+
+    /**
+     * A session on each of the given days, in this order.
+     */
+    private static List<Session> sessions(final Integer... days) {
+        return sessions(List.of(days));
+    }
+
+    private static List<Session> sessions(final List<Integer> days) {
+        return days.zipWithIndex().map(day -> new Session.Builder()
+                .title("Session " + day._2)
+                .speakers(List.of("Speaker " + day._2))
+                .room("Room " + day._2)
+                .start(LocalDateTime.of(FIRST_DAY.plusDays(day._1), LocalTime.of(9, 0).plusHours(day._2)))
+                .end(LocalDateTime.of(FIRST_DAY.plusDays(day._1), LocalTime.of(9, 45).plusHours(day._2)))
+                .build());
+    }
+}
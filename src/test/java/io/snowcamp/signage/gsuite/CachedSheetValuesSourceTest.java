@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.drive.Drive;
+
+import io.snowcamp.signage.testing.ScriptedTransport;
+import io.vavr.collection.List;
+
+class CachedSheetValuesSourceTest {
+    private static final String SPREADSHEET = "spreadsheet";
+    private static final String RANGE = "Sessions!B9:O";
+    private final ScriptedTransport transport = new ScriptedTransport();
+    private final Drive googleDrive =
+            new Drive.Builder(transport, JacksonFactory.getDefaultInstance(), null).setApplicationName("test").build();
+    private final AtomicLong version = new AtomicLong(1);
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger reads = new AtomicInteger();
+    private final SheetValuesSource source =
+            (spreadsheetId, range) -> java.util.List.of(java.util.List.of("read " + reads.incrementAndGet()));
+
+    @TempDir
+    Path directory;
+
+    CachedSheetValuesSourceTest() {
+        transport.otherwise(call -> ScriptedTransport.json(200, "{\"version\":\"" + version.get() + "\"}"));
+    }
+
+    @Test
+    void readsTheRangeOnAMiss() throws IOException {
+        final CachedSheetValuesSource cache = cache(Duration.ZERO).build();
+
+        assertEquals(rows("read 1"), cache.values(SPREADSHEET, RANGE));
+
+        assertEquals(1, reads.get());
+        assertEquals(1, cache.metrics().misses());
+        assertEquals(1, cache.metrics().validations());
+    }
+
+    @Test
+    void keepsTheRangeOfTheSameVersion() throws IOException {
+        cache(Duration.ZERO).build().values(SPREADSHEET, RANGE);
+        final CachedSheetValuesSource cache = cache(Duration.ZERO).build();
+
+        assertEquals(rows("read 1"), cache.values(SPREADSHEET, RANGE));
+
+        assertEquals(1, reads.get());
+        assertEquals(1, cache.metrics().hits());
+        // without a TTL, every run asks Drive for the version
+        assertEquals(1, cache.metrics().validations());
+        assertEquals(2, transport.calls().size());
+    }
+
+    @Test
+    void readsTheRangeAgainOnANewVersion() throws IOException {
+        cache(Duration.ZERO).build().values(SPREADSHEET, RANGE);
+        version.incrementAndGet();
+        final CachedSheetValuesSource cache = cache(Duration.ZERO).build();
+
+        assertEquals(rows("read 2"), cache.values(SPREADSHEET, RANGE));
+
+        assertEquals(1, cache.metrics().misses());
+        assertEquals(rows("read 2"), cache(Duration.ZERO).build().values(SPREADSHEET, RANGE));
+    }
+
+    @Test
+    void doesNotAskTheVersionWithinTheTtl() throws IOException {
+        cache(Duration.ofMinutes(1)).build().values(SPREADSHEET, RANGE);
+        version.incrementAndGet();
+        now.addAndGet(Duration.ofSeconds(59).toMillis());
+        final CachedSheetValuesSource cache = cache(Duration.ofMinutes(1)).build();
+
+        assertEquals(rows("read 1"), cache.values(SPREADSHEET, RANGE));
+
+        assertEquals(1, cache.metrics().hits());
+        assertEquals(0, cache.metrics().validations());
+        assertEquals(1, transport.calls().size());
+
+        now.addAndGet(Duration.ofSeconds(1).toMillis());
+        assertEquals(rows("read 2"), cache.values(SPREADSHEET, RANGE));
+        assertEquals(1, cache.metrics().validations());
+    }
+
+    @Test
+    void readsTheRangeAgainWhenForced() throws IOException {
+        cache(Duration.ofMinutes(1)).build().values(SPREADSHEET, RANGE);
+        final CachedSheetValuesSource cache = cache(Duration.ofMinutes(1)).forceRefresh(true).build();
+
+        assertEquals(rows("read 2"), cache.values(SPREADSHEET, RANGE));
+
+        assertEquals(1, cache.metrics().misses());
+        assertEquals(rows("read 2"), cache(Duration.ofMinutes(1)).build().values(SPREADSHEET, RANGE));
+    }
+
+    @Test
+    void readsTheRangeAgainOverACorruptEntry() throws IOException {
+        cache(Duration.ofMinutes(1)).build().values(SPREADSHEET, RANGE);
+        final Path entry = entry();
+        Files.write(entry, "{\"rows\": [[".getBytes(UTF_8));
+        final CachedSheetValuesSource cache = cache(Duration.ofMinutes(1)).build();
+
+        assertEquals(rows("read 2"), cache.values(SPREADSHEET, RANGE));
+
+        assertEquals(1, cache.metrics().misses());
+        assertEquals(rows("read 2"), cache(Duration.ofMinutes(1)).build().values(SPREADSHEET, RANGE));
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    void readsTheRangeAgainOverAMissingEntry() throws IOException {
+        cache(Duration.ofMinutes(1)).build().values(SPREADSHEET, RANGE);
+        Files.delete(entry());
+        final CachedSheetValuesSource cache = cache(Duration.ofMinutes(1)).build();
+
+        assertEquals(rows("read 2"), cache.values(SPREADSHEET, RANGE));
+
+        assertEquals(1, cache.metrics().misses());
+    }
+
+    private CachedSheetValuesSource.Builder cache(final Duration ttl) {
+        return new CachedSheetValuesSource.Builder().source(source)
+                                                    .googleDrive(googleDrive)
+                                                    .directory(directory)
+                                                    .ttl(ttl)
+                                                    .clock(now::get);
+    }
+
+    private Path entry() throws IOException {
+        try (java.util.stream.Stream<Path> entries = Files.list(directory)) {
+            final List<Path> paths = List.ofAll(entries::iterator);
+            assertEquals(1, paths.size(), paths.toString());
+            return paths.head();
+        }
+    }
+
+    private static java.util.List<java.util.List<Object>> rows(final String cell) {
+        return java.util.List.of(java.util.List.of(cell));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.gsuite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+
+import io.snowcamp.signage.testing.ScriptedTransport;
+
+class ThrottledRequestTest {
+    private static final GenericUrl URL = new GenericUrl("https://slides.googleapis.com/v1/presentations/deck");
+    private final java.util.List<Long> sleeps = new CopyOnWriteArrayList<>();
+    private final ScriptedTransport transport = new ScriptedTransport();
+
+    private ApiThrottle.Builder throttle() {
+        return new ApiThrottle.Builder().name("slides")
+                                        .permitsPerSecond(1000)
+                                        .initialBackOff(Duration.ofMillis(10))
+                                        .sleeper(sleeps::add);
+    }
+
+    private HttpRequestFactory requests(final ApiThrottle throttle) {
+        return transport.createRequestFactory(throttle.wrap(request -> {
+        }));
+    }
+
+    @Test
+    void waitsForRetryAfterOnTooManyRequests() throws IOException {
+        final ApiThrottle throttle = throttle().build();
+        transport.then(ScriptedTransport.json(429, "{}").addHeader("Retry-After", "2"));
+
+        assertEquals(200, requests(throttle).buildGetRequest(URL).execute().getStatusCode());
+
+        assertEquals(2, transport.calls().size());
+        assertEquals(1, sleeps.size());
+        assertTrue(sleeps.get(0) >= 2000, "slept " + sleeps.get(0) + " ms");
+        assertEquals(1, throttle.metrics().retries());
+    }
+
+    @Test
+    void stopsAfterTheMaxRetries() {
+        final ApiThrottle throttle = throttle().maxRetries(2).failureThreshold(10).build();
+        transport.otherwise(call -> ScriptedTransport.json(503, "{}"));
+
+        final HttpResponseException error =
+                assertThrows(HttpResponseException.class, () -> requests(throttle).buildGetRequest(URL).execute());
+
+        assertEquals(503, error.getStatusCode());
+        assertEquals(3, transport.calls().size());
+        assertEquals(2, throttle.metrics().retries());
+        assertEquals(1, throttle.metrics().failures());
+    }
+
+    @Test
+    void countsNoFailureForARetriedCall() throws IOException {
+        final ApiThrottle throttle = throttle().build();
+        transport.then(503).then(429);
+
+        assertEquals(200, requests(throttle).buildGetRequest(URL).execute().getStatusCode());
+
+        assertEquals(3, transport.calls().size());
+        assertEquals(0, throttle.metrics().failures());
+    }
+
+    @Test
+    void doesNotResendAPostAfterAServerError() {
+        final ApiThrottle throttle = throttle().build();
+        transport.then(503);
+
+        final HttpResponseException error = assertThrows(HttpResponseException.class, () -> post(throttle));
+
+        assertEquals(503, error.getStatusCode());
+        assertEquals(1, transport.calls().size());
+        assertEquals(1, throttle.metrics().failures());
+    }
+
+    @Test
+    void resendsAPostAfterTooManyRequests() throws IOException {
+        final ApiThrottle throttle = throttle().build();
+        transport.then(429);
+
+        // the call is rejected before it is applied
+        assertEquals(200, post(throttle).getStatusCode());
+
+        assertEquals(2, transport.calls().size());
+        assertEquals(0, throttle.metrics().failures());
+    }
+
+    @Test
+    void opensTheCircuitAfterTheFailureThreshold() throws IOException {
+        final ApiThrottle throttle = throttle().maxRetries(0).failureThreshold(2).build();
+        transport.otherwise(call -> ScriptedTransport.json(503, "{}"));
+        final HttpRequestFactory requests = requests(throttle);
+
+        assertThrows(HttpResponseException.class, () -> requests.buildGetRequest(URL).execute());
+        assertThrows(HttpResponseException.class, () -> requests.buildGetRequest(URL).execute());
+        assertThrows(CircuitOpenException.class, () -> requests.buildGetRequest(URL).execute());
+
+        assertEquals(CircuitBreaker.State.OPEN, throttle.circuitBreaker().state());
+        assertEquals(2, transport.calls().size());
+        assertEquals(1, throttle.metrics().rejections());
+    }
+
+    @Test
+    void retriesAnIdempotentCallAfterAnIOException() throws IOException {
+        final ApiThrottle throttle = throttle().build();
+        transport.thenFail(new SocketTimeoutException("read timed out"));
+
+        assertEquals(200, requests(throttle).buildGetRequest(URL).execute().getStatusCode());
+
+        assertEquals(2, transport.calls().size());
+    }
+
+    @Test
+    void doesNotResendAPostAfterAnIOException() {
+        final ApiThrottle throttle = throttle().build();
+        transport.thenFail(new SocketTimeoutException("read timed out"));
+
+        assertThrows(SocketTimeoutException.class, () -> post(throttle));
+
+        // the batch may have been applied before the answer was lost
+        assertEquals(1, transport.calls().size());
+        assertEquals(1, throttle.metrics().failures());
+    }
+
+    private HttpResponse post(final ApiThrottle throttle) throws IOException {
+        return requests(throttle).buildPostRequest(URL, ByteArrayContent.fromString("application/json", "{}"))
+                                 .execute();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.manifest;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+
+class RunJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void ignoresATornLastLine() throws IOException {
+        final Path path = directory.resolve("journal");
+        try (RunJournal journal = RunJournal.open(path)) {
+            journal.copied("day-1", "presentation-1");
+        }
+        // the crash stopped the append of the next record
+        Files.write(path, "{\"deck\":\"day-2\",\"step\":\"cop".getBytes(UTF_8), APPEND);
+
+        try (RunJournal journal = RunJournal.open(path)) {
+            assertEquals("presentation-1", journal.progress("day-1").get().presentationId());
+            assertEquals(Option.none(), journal.progress("day-2"));
+        }
+        assertEquals(1, Files.readAllLines(path).size());
+    }
+
+    @Test
+    void keepsTheUnfinishedDecksOnly() throws IOException {
+        final Path path = directory.resolve("journal");
+        try (RunJournal journal = RunJournal.open(path)) {
+            journal.copied("day-1", "presentation-1");
+            journal.copied("day-2", "presentation-2");
+            journal.requests("day-1", "template", List.of("slide-1"), "hash-1");
+            journal.batchApplied("day-1", 0);
+            journal.done("day-1");
+            journal.requests("day-2", "template", List.of("slide-1", "slide-2"), "hash-2");
+        }
+
+        try (RunJournal journal = RunJournal.open(path)) {
+            assertEquals(Option.none(), journal.progress("day-1"));
+            assertTrue(journal.progress("day-2").isDefined());
+            assertEquals(1, journal.metrics().counter("decks.resumable").sum());
+        }
+        final java.util.List<String> lines = Files.readAllLines(path);
+        assertEquals(2, lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.contains("\"day-2\"")), lines.toString());
+        assertTrue(Files.notExists(directory.resolve("journal.tmp")));
+    }
+
+    @Test
+    void resumesAfterTheLastBatchApplied() throws IOException {
+        final Path path = directory.resolve("journal");
+        try (RunJournal journal = RunJournal.open(path)) {
+            journal.copied("day-1", "presentation-1");
+            journal.requests("day-1", "template", List.of("slide-1", "slide-2"), "hash-1");
+            journal.batchApplied("day-1", 0);
+            journal.batchApplied("day-1", 1);
+        }
+
+        // compacted twice, the progress is kept as is
+        RunJournal.open(path).close();
+        try (RunJournal journal = RunJournal.open(path)) {
+            final DeckProgress progress = journal.progress("day-1").get();
+            assertEquals("presentation-1", progress.presentationId());
+            assertEquals(Option.some("template"), progress.templateSlideId());
+            assertEquals(List.of("slide-1", "slide-2"), progress.slideIds());
+            assertEquals(Option.some("hash-1"), progress.requestsHash());
+            assertEquals(2, progress.appliedBatches());
+
+            journal.batchApplied("day-1", 2);
+            assertEquals(3, journal.progress("day-1").get().appliedBatches());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.sched;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import io.vavr.collection.List;
+
+class CsvReaderTest {
+    @Test
+    void splitsTheFieldsAtTheCommas() throws IOException {
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("", "", "")), records("a,b,c\n,,\n"));
+    }
+
+    @Test
+    void keepsTheCommasOfAQuotedField() throws IOException {
+        assertEquals(List.of(List.of("a, b", "c")), records("\"a, b\",c"));
+    }
+
+    @Test
+    void unescapesTheDoubledQuotes() throws IOException {
+        assertEquals(List.of(List.of("say \"hi\"", "\"\"")), records("\"say \"\"hi\"\"\",\"\"\"\"\"\"\n"));
+    }
+
+    @Test
+    void keepsTheLineBreaksOfAQuotedField() throws IOException {
+        assertEquals(List.of(List.of("line 1\nline 2\r\nline 3", "a"), List.of("b", "c")),
+                     records("\"line 1\nline 2\r\nline 3\",a\nb,c\n"));
+    }
+
+    @Test
+    void endsTheRecordsAtTheCarriageReturns() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d"), List.of("e")), records("a,b\r\n\"c\",d\r\ne\r"));
+    }
+
+    @Test
+    void skipsTheByteOrderMark() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("\uFEFFc")), records("\uFEFFa,b\n\uFEFFc\n"));
+    }
+
+    @Test
+    void keepsTheFieldOfAnUnterminatedQuote() throws IOException {
+        assertEquals(List.of(List.of("a", "open\nrest,")), records("a,\"open\nrest,"));
+    }
+
+    @Test
+    void readsTheRecordsAcrossTheBuffer() throws IOException {
+        final String field = "x".repeat(10_000);
+
+        assertEquals(List.of(List.of(field, field), List.of("a")), records(field + ",\"" + field + "\"\r\na"));
+    }
+
+    private static List<List<String>> records(final String csv) throws IOException {
+        List<List<String>> records = List.empty();
+        try (CsvReader reader = new CsvReader(new StringReader(csv))) {
+            for (java.util.List<String> record = reader.readRecord(); record != null; record = reader.readRecord()) {
+                records = records.append(List.ofAll(record));
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.sched;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.snowcamp.signage.session.Session;
+import io.vavr.collection.List;
+
+class SchedCsvParserTest {
+    private static final int SHEET_HEADING_LINES = 8;
+    private static final List<String> COLUMN_TITLES =
+            List.of("Name", "Type", "Start", "End", "Description", "Format", "Level", "Language", "Speakers",
+                    "Companies", "Tags", "Capacity", "Attendees", "Venue");
+    private static final List<List<String>> ROWS = List.of(
+            row("Welcome", "1/16/2019 8:30 AM", "1/16/2019 9:00 AM", "", "Hall"),
+            row("Keynote, \"the\" opening", "1/16/2019 9:00 AM", "1/16/2019 9:45 AM", "JOHN DOE; jane doe",
+                "Amphi A"),
+            row("Java\nat scale", "1/16/2019 10:00 AM", "1/16/2019 10:45 AM", "Ada Lovelace", "Room 1"),
+            row("Snow", "1/17/2019 2:00 PM", "1/17/2019 6:00 PM", "Bob", "Slopes"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsTheSessionsOfTheSheet() throws IOException {
+        final Path csv = csv(SHEET_HEADING_LINES - 1);
+
+        assertEquals(sheetSessions(), csvSessions(csv));
+        assertEquals(3, csvSessions(csv).size());
+    }
+
+    @Test
+    void leavesOutTheHeadingLinesWhateverTheirNumber() throws IOException {
+        assertEquals(sheetSessions(), csvSessions(csv(0)));
+        assertEquals(sheetSessions(), csvSessions(csv(2)));
+    }
+
+    @Test
+    void readsAFileWithoutColumnTitles() throws IOException {
+        final Path csv = directory.resolve("sessions.csv");
+        Files.write(csv, ROWS.map(SchedCsvParserTest::record), UTF_8);
+
+        assertEquals(sheetSessions(), csvSessions(csv));
+    }
+
+    /**
+     * The export from Sched: the given lines describing the event, the titles of the columns, then the rows, each
+     * starting with the id of the session in the column A.
+     */
+    private Path csv(final int eventLines) throws IOException {
+        final List<String> lines = List.fill(eventLines, () -> "SnowCamp 2019,,")
+                                       .append(record(COLUMN_TITLES))
+                                       .appendAll(ROWS.map(SchedCsvParserTest::record));
+        final Path csv = directory.resolve("sessions-" + eventLines + ".csv");
+        Files.writeString(csv, "\uFEFF" + lines.mkString("\r\n") + "\r\n", UTF_8);
+        return csv;
+    }
+
+    private static List<String> csvSessions(final Path csv) {
+        return new SchedCsvParser().parseSessions(csv.toString()).get().map(Session::toString).toList();
+    }
+
+    /**
+     * The same rows read by Sheets from the range {@link SchedRows#RANGE}: without the lines heading the sheet nor the
+     * column A.
+     */
+    private static List<String> sheetSessions() {
+        final java.util.List<java.util.List<Object>> values =
+                ROWS.map(row -> List.<Object>ofAll(row).asJava()).asJava();
+        return new SchedParser((spreadsheetId, range) -> values).parseSessions("sheet")
+                                                               .get()
+                                                               .map(Session::toString)
+                                                               .toList();
+    }
+
+    private static String record(final List<String> row) {
+        return row.prepend("id")
+                  .map(field -> '"' + field.replace("\"", "\"\"") + '"')
+                  .mkString(",");
+    }
+
+    private static List<String> row(final String title,
+                                    final String start,
+                                    final String end,
+                                    final String speakers,
+                                    final String room) {
+        return List.of(title, "Talk", start, end, "", "", "", "", speakers, "", "", "", "", room);
+    }
+}
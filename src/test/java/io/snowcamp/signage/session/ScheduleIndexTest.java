@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import io.vavr.Tuple;
+import io.vavr.collection.List;
+
+class ScheduleIndexTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2019, 1, 16, 9, 0);
+
+    @Test
+    void reportsEveryOverlappingPair() {
+        final Session a = session("A", 0, 100);
+        final Session b = session("B", 10, 20);
+        final Session c = session("C", 15, 30);
+        final Session d = session("D", 100, 110);
+
+        assertEquals(List.of(Tuple.of(a, b), Tuple.of(a, c), Tuple.of(b, c)),
+                     ScheduleIndex.of(List.of(d, c, b, a)).conflicts());
+    }
+
+    @Test
+    void reportsNoConflictBetweenConsecutiveSessions() {
+        assertEquals(List.empty(),
+                     ScheduleIndex.of(List.of(session("A", 0, 40), session("B", 40, 80), session("C", 80, 120)))
+                                  .conflicts());
+    }
+
+    private static Session session(final String title, final int from, final int to) {
+        return new Session.Builder()
+                          .title(title)
+                          .speakers(List.empty())
+                          .room("Room 1")
+                          .start(DAY.plusMinutes(from))
+                          .end(DAY.plusMinutes(to))
+                          .build();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 SnowCamp.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.snowcamp.signage.testing;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.Json;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+
+/**
+ * A transport answering the calls with the responses and the failures queued, in order, then with its default answer.
+ * Every call is recorded with its content.
+ */
+public final class ScriptedTransport extends MockHttpTransport {
+    public static final class Call {
+        private final String method;
+        private final String url;
+        private final String contentType;
+        private final String content;
+
+        private Call(final String method, final String url, final String contentType, final String content) {
+            this.method = method;
+            this.url = url;
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        public String method() {
+            return method;
+        }
+
+        public String url() {
+            return url;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String content() {
+            return content;
+        }
+    }
+
+    private final Deque<Object> outcomes = new ConcurrentLinkedDeque<>();
+    private final java.util.List<Call> calls = new CopyOnWriteArrayList<>();
+    private volatile Function<Call, LowLevelHttpResponse> answer = call -> json(200, "{}");
+    private volatile Duration delay = Duration.ZERO;
+
+    public static MockLowLevelHttpResponse json(final int statusCode, final String content) {
+        return new MockLowLevelHttpResponse().setStatusCode(statusCode)
+                                             .setContentType(Json.MEDIA_TYPE)
+                                             .setContent(content);
+    }
+
+    public ScriptedTransport then(final LowLevelHttpResponse response) {
+        outcomes.add(requireNonNull(response));
+        return this;
+    }
+
+    public ScriptedTransport then(final int statusCode) {
+        return then(json(statusCode, "{}"));
+    }
+
+    public ScriptedTransport thenFail(final IOException failure) {
+        outcomes.add(requireNonNull(failure));
+        return this;
+    }
+
+    /**
+     * The answer to the calls once the queued outcomes are used.
+     */
+    public ScriptedTransport otherwise(final Function<Call, LowLevelHttpResponse> answer) {
+        this.answer = requireNonNull(answer);
+        return this;
+    }
+
+    /**
+     * Answers every call once the given delay is elapsed, as a remote server would.
+     */
+    public ScriptedTransport delay(final Duration delay) {
+        this.delay = requireNonNull(delay);
+        return this;
+    }
+
+    public java.util.List<Call> calls() {
+        return calls;
+    }
+
+    @Override
+    public LowLevelHttpRequest buildRequest(final String method, final String url) {
+        return new MockLowLevelHttpRequest(url) {
+            @Override
+            public LowLevelHttpResponse execute() throws IOException {
+                final Call call = new Call(method, url, getContentType(), getContentAsString());
+                calls.add(call);
+                try {
+                    Thread.sleep(delay.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted before the answer");
+                }
+                final Object outcome = outcomes.poll();
+                if (outcome instanceof IOException) {
+                    throw (IOException) outcome;
+                }
+                return outcome == null ? answer.apply(call) : (LowLevelHttpResponse) outcome;
+            }
+        };
+    }
+}